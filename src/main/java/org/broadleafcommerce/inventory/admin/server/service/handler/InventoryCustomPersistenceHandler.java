@@ -25,6 +25,10 @@ import org.broadleafcommerce.inventory.domain.Inventory;
 import org.broadleafcommerce.inventory.exception.ConcurrentInventoryModificationException;
 import org.broadleafcommerce.inventory.service.FulfillmentLocationService;
 import org.broadleafcommerce.inventory.service.InventoryService;
+import org.broadleafcommerce.inventory.service.call.InventoryAdjustmentRequest;
+import org.broadleafcommerce.inventory.service.call.InventoryAdjustmentResult;
+import org.broadleafcommerce.inventory.service.retry.InventoryRetryCallback;
+import org.broadleafcommerce.inventory.service.retry.InventoryRetryPolicy;
 import org.broadleafcommerce.openadmin.client.dto.BasicFieldMetadata;
 import org.broadleafcommerce.openadmin.client.dto.ClassMetadata;
 import org.broadleafcommerce.openadmin.client.dto.DynamicResultSet;
@@ -38,26 +42,39 @@ import org.broadleafcommerce.openadmin.server.dao.DynamicEntityDao;
 import org.broadleafcommerce.openadmin.server.service.handler.CustomPersistenceHandlerAdapter;
 import org.broadleafcommerce.openadmin.server.service.persistence.module.InspectHelper;
 import org.broadleafcommerce.openadmin.server.service.persistence.module.RecordHelper;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.DefaultTransactionDefinition;
 
 import javax.annotation.Resource;
 
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 public class InventoryCustomPersistenceHandler extends CustomPersistenceHandlerAdapter {
 
     private static final Log LOG = LogFactory.getLog(InventoryCustomPersistenceHandler.class);
 
-    private static final Integer MAX_RETRIES = 5;
-
     @Resource(name = "blInventoryService")
     protected InventoryService inventoryService;
 
     @Resource(name = "blFulfillmentLocationService")
     protected FulfillmentLocationService fulfillmentLocationService;
 
+    @Resource(name = "blInventoryRetryPolicy")
+    protected InventoryRetryPolicy inventoryRetryPolicy;
+
+    @Resource(name = "blTransactionManager")
+    protected PlatformTransactionManager transactionManager;
+
     protected static final String QUANTITY_AVAILABLE_CHANGE_FIELD_NAME = "quantityAvailableChange";
     protected static final String QUANTITY_ON_HAND_CHANGE_FIELD_NAME = "quantityOnHandChange";
+    protected static final String QUANTITY_AVAILABLE_FIELD_NAME = "quantityAvailable";
+    protected static final String QUANTITY_ON_HAND_FIELD_NAME = "quantityOnHand";
+    protected static final String ID_FIELD_NAME = "id";
 
     @Override
     public Boolean canHandleUpdate(PersistencePackage persistencePackage) {
@@ -140,17 +157,17 @@ public class InventoryCustomPersistenceHandler extends CustomPersistenceHandlerA
     }
 
     @Override
-    public Entity update(PersistencePackage persistencePackage, DynamicEntityDao dynamicEntityDao, RecordHelper helper) throws ServiceException {
+    public Entity update(PersistencePackage persistencePackage, final DynamicEntityDao dynamicEntityDao, final RecordHelper helper) throws ServiceException {
 
-        Entity entity  = persistencePackage.getEntity();
+        final Entity entity  = persistencePackage.getEntity();
 
         try {
 
             PersistencePerspective persistencePerspective = persistencePackage.getPersistencePerspective();
-            Map<String, FieldMetadata> adminProperties = helper.getSimpleMergedProperties(Inventory.class.getName(), persistencePerspective);
-            Object primaryKey = helper.getPrimaryKey(entity, adminProperties);
-            Inventory adminInstance = (Inventory) dynamicEntityDao.retrieve(Class.forName(entity.getType()[0]), primaryKey);
-            adminInstance = (Inventory) helper.createPopulatedInstance(adminInstance, entity, adminProperties, false);
+            final Map<String, FieldMetadata> adminProperties = helper.getSimpleMergedProperties(Inventory.class.getName(), persistencePerspective);
+            final Object primaryKey = helper.getPrimaryKey(entity, adminProperties);
+            final Class<?> entityClass = Class.forName(entity.getType()[0]);
+            Inventory adminInstance = (Inventory) dynamicEntityDao.retrieve(entityClass, primaryKey);
 
             Integer quantityAvailableChange = 0;
             Integer quantityAvailableOnHandChange = 0;
@@ -164,42 +181,49 @@ public class InventoryCustomPersistenceHandler extends CustomPersistenceHandlerA
                 }
             }
 
-            adminInstance.setQuantityAvailable(adminInstance.getQuantityAvailable() + quantityAvailableChange);
-            adminInstance.setQuantityOnHand(adminInstance.getQuantityOnHand() + quantityAvailableOnHandChange);
-
-            if (adminInstance.getQuantityAvailable() < 0) {
-                entity.setValidationFailure(true);
-                entity.addValidationError(QUANTITY_AVAILABLE_CHANGE_FIELD_NAME, "quantityAvailableIsNegative");
-                return entity;
-            } else if (adminInstance.getQuantityOnHand() < 0) {
-                entity.setValidationFailure(true);
-                entity.addValidationError(QUANTITY_ON_HAND_CHANGE_FIELD_NAME, "quantityOnHandIsNegative");
-                return entity;
+            // The changes are applied as a relative update in the database rather than read-modify-write here, so
+            // they cannot collide with checkouts decrementing the same row. The update is guarded against either
+            // quantity going negative and hands back the row with its post-update values.
+            final InventoryAdjustmentRequest adjustment;
+            if (quantityAvailableChange != 0 || quantityAvailableOnHandChange != 0) {
+                adjustment = new InventoryAdjustmentRequest(adminInstance.getId(), quantityAvailableChange, quantityAvailableOnHandChange);
+            } else {
+                adjustment = null;
             }
 
-            // There is a retry policy set in case of concurrent update exceptions where several
-            // requests would try to update the inventory at the same time. The call to decrement inventory,
-            // by default creates a new transaction because repeatable reads would occur if it were called
-            // inside of the same transaction. Essentially, we want to try to transactionally decrement the
-            // inventory, but if it fails due to locking, then we need to leave the transaction and re-read
-            // the data to ensure repeatable reads don't prevent us from getting the freshest data. The
-            // retry count is in place to handle higher concurrency situations where there may be more than one
-            // failure.
-            int retryCount = 0;
-
-            while (retryCount < MAX_RETRIES) {
-
-                try {
-                    inventoryService.save(adminInstance);
-                    break;
-                } catch (ConcurrentInventoryModificationException ex) {
-                    retryCount++;
-                    if (retryCount == MAX_RETRIES) {
-                        throw new ServiceException("Unable to update the inventory due to too many users" +
-                                "concurrently updating this inventory. Please try again.");
+            if (!isEdited(entity, adminProperties)) {
+                // Only the quantities were changed, so there is nothing to save and nothing to retry.
+                if (adjustment != null) {
+                    InventoryAdjustmentResult result = inventoryService.adjustInventory(Collections.singletonList(adjustment)).get(0);
+                    if (result.isValidationFailure()) {
+                        entity.setValidationFailure(true);
+                        entity.addValidationError(result.getValidationErrorField(), result.getValidationErrorMessage());
+                        return entity;
                     }
+                    adminInstance = result.getInventory();
                 }
+                return helper.getRecord(adminProperties, adminInstance, null, null);
+            }
 
+            // There is a retry policy set in case of concurrent update exceptions when fields other than the
+            // quantities are edited while other requests update the inventory at the same time. A failed save leaves
+            // its transaction rollback-only, so each attempt runs in a transaction of its own that re-reads the
+            // record, applies the edited fields to it and saves it before applying the quantity change. A conflict
+            // therefore retries both, and a rejected quantity change rolls back the edits with it.
+            try {
+                adminInstance = inventoryRetryPolicy.execute(Collections.singletonList(adminInstance.getSku().getId()),
+                        new InventoryRetryCallback<Inventory, Exception>() {
+                            @Override
+                            public Inventory doWithRetry() throws Exception {
+                                return saveEdits(entityClass, primaryKey, entity, adminProperties, adjustment, dynamicEntityDao, helper);
+                            }
+                        });
+            } catch (ConcurrentInventoryModificationException ex) {
+                throw new ServiceException("Unable to update the inventory due to too many users " +
+                        "concurrently updating this inventory. Please try again.", ex);
+            }
+            if (adminInstance == null) {
+                return entity;
             }
 
             return helper.getRecord(adminProperties, adminInstance, null, null);
@@ -211,6 +235,88 @@ public class InventoryCustomPersistenceHandler extends CustomPersistenceHandlerA
 
     }
 
-}
+    /**
+     * Applies many quantity changes at once, for example when an entire fulfillment location is adjusted after a
+     * stock count. All of the changes are applied in one transaction as guarded relative updates, so they never
+     * have to be retried against concurrent checkouts. Rows that fail validation are skipped and reported in the
+     * returned results using the same message keys as {@link #update}.
+     * @param adjustments
+     * @return one result per adjustment, in the same order
+     * @throws ServiceException
+     */
+    public List<InventoryAdjustmentResult> bulkUpdate(List<InventoryAdjustmentRequest> adjustments) throws ServiceException {
+        try {
+            List<InventoryAdjustmentResult> results = inventoryService.adjustInventory(adjustments);
+            for (InventoryAdjustmentResult result : results) {
+                if (result.isValidationFailure() && LOG.isDebugEnabled()) {
+                    LOG.debug("Skipped inventory adjustment for " + describe(result.getRequest()) + ": " + result.getValidationErrorMessage());
+                }
+            }
+            return results;
+        } catch (Exception e) {
+            LOG.error("Unable to apply " + adjustments.size() + " inventory adjustments", e);
+            throw new ServiceException("Unable to apply " + adjustments.size() + " inventory adjustments", e);
+        }
+    }
 
+    /**
+     * @return whether any field other than the id and the read-only quantities was submitted
+     */
+    protected boolean isEdited(Entity entity, Map<String, FieldMetadata> adminProperties) {
+        for (Property property : entity.getProperties()) {
+            String name = property.getName();
+            if (adminProperties.containsKey(name) && !ID_FIELD_NAME.equals(name)
+                    && !QUANTITY_AVAILABLE_FIELD_NAME.equals(name) && !QUANTITY_ON_HAND_FIELD_NAME.equals(name)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Saves the edited fields to a freshly read copy of the record and then applies the quantity change, if any,
+     * in a new transaction
+     * @return the saved record, or null if the quantity change failed validation, in which case the failure is
+     * recorded on the entity and nothing is saved
+     */
+    protected Inventory saveEdits(Class<?> entityClass, Object primaryKey, Entity entity, Map<String, FieldMetadata> adminProperties,
+            InventoryAdjustmentRequest adjustment, DynamicEntityDao dynamicEntityDao, RecordHelper helper) throws Exception {
+        TransactionStatus status = transactionManager.getTransaction(new DefaultTransactionDefinition(TransactionDefinition.PROPAGATION_REQUIRES_NEW));
+        try {
+            Inventory inventory = (Inventory) dynamicEntityDao.retrieve(entityClass, primaryKey);
+
+            // The quantities submitted with the form may be stale, so the current values are kept
+            Integer quantityAvailable = inventory.getQuantityAvailable();
+            Integer quantityOnHand = inventory.getQuantityOnHand();
+            inventory = (Inventory) helper.createPopulatedInstance(inventory, entity, adminProperties, false);
+            inventory.setQuantityAvailable(quantityAvailable);
+            inventory.setQuantityOnHand(quantityOnHand);
+            inventory = inventoryService.save(inventory);
+
+            if (adjustment != null) {
+                InventoryAdjustmentResult result = inventoryService.adjustInventory(Collections.singletonList(adjustment)).get(0);
+                if (result.isValidationFailure()) {
+                    entity.setValidationFailure(true);
+                    entity.addValidationError(result.getValidationErrorField(), result.getValidationErrorMessage());
+                    return null;
+                }
+                inventory = result.getInventory();
+            }
 
+            transactionManager.commit(status);
+            return inventory;
+        } finally {
+            if (!status.isCompleted()) {
+                transactionManager.rollback(status);
+            }
+        }
+    }
+
+    protected String describe(InventoryAdjustmentRequest adjustment) {
+        if (adjustment.getInventoryId() != null) {
+            return "inventory id " + adjustment.getInventoryId();
+        }
+        return "sku id " + adjustment.getSkuId() + " at fulfillment location id " + adjustment.getFulfillmentLocationId();
+    }
+
+}
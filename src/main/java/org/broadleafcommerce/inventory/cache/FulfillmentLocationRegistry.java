@@ -0,0 +1,62 @@
+/**
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.broadleafcommerce.inventory.cache;
+
+import org.broadleafcommerce.inventory.domain.FulfillmentLocation;
+
+import java.util.List;
+
+/**
+ * An immutable, node-local copy of all fulfillment locations. Locations change rarely but are resolved on nearly
+ * every request, so lookups are answered from a snapshot that is replaced as a whole whenever a location is saved
+ * or deleted. The instances handed out are shared and detached and must not be modified, merged or persisted; code
+ * that writes an entity referring to one must first replace it with a reference resolved by id in its own
+ * transaction, as the inventory DAO does, since the snapshot may be older than the row.
+ */
+public interface FulfillmentLocationRegistry {
+
+    /**
+     * @return every fulfillment location
+     */
+    public List<FulfillmentLocation> readAll();
+
+    /**
+     * @param fulfillmentLocationId
+     * @return the fulfillment location with the id, or null if there is none
+     */
+    public FulfillmentLocation readById(Long fulfillmentLocationId);
+
+    /**
+     * @return the default fulfillment location, or null if none is flagged as the default
+     */
+    public FulfillmentLocation readDefault();
+
+    /**
+     * @return the fulfillment locations that offer pickup
+     */
+    public List<FulfillmentLocation> readPickupLocations();
+
+    /**
+     * @return the fulfillment locations that ship
+     */
+    public List<FulfillmentLocation> readShippingLocations();
+
+    /**
+     * Replaces the snapshot with one read from the database
+     */
+    public void rebuild();
+
+}
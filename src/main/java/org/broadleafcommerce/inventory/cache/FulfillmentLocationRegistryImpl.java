@@ -0,0 +1,184 @@
+/**
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.broadleafcommerce.inventory.cache;
+
+import org.broadleafcommerce.inventory.dao.FulfillmentLocationDao;
+import org.broadleafcommerce.inventory.domain.FulfillmentLocation;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.Resource;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Default {@link FulfillmentLocationRegistry}. Any committed change to a fulfillment location, whether made through
+ * the service, the admin or a bulk update, advances a modification count through {@link #invalidate()}. The next
+ * lookup notices that its snapshot predates the count and rebuilds it with a single query; every other lookup is a
+ * read of an immutable snapshot. Changes made on other nodes are picked up once the snapshot is older than
+ * {@link #refreshInterval}.
+ */
+@Component("blFulfillmentLocationRegistry")
+public class FulfillmentLocationRegistryImpl implements FulfillmentLocationRegistry {
+
+    protected static final AtomicLong MODIFICATIONS = new AtomicLong();
+
+    /**
+     * Marks every registry on this node as out of date. Call once a change to a fulfillment location has committed.
+     */
+    public static void invalidate() {
+        MODIFICATIONS.incrementAndGet();
+    }
+
+    @Resource(name = "blFulfillmentLocationDao")
+    protected FulfillmentLocationDao fulfillmentLocationDao;
+
+    @Resource(name = "blTransactionManager")
+    protected PlatformTransactionManager transactionManager;
+
+    /**
+     * The maximum age, in milliseconds, of a snapshot before it is rebuilt to pick up changes from other nodes.
+     * Zero or less disables the refresh.
+     */
+    protected long refreshInterval = 5 * 60 * 1000L;
+
+    protected final AtomicReference<Snapshot> snapshot = new AtomicReference<Snapshot>();
+
+    @Override
+    public List<FulfillmentLocation> readAll() {
+        return current().all;
+    }
+
+    @Override
+    public FulfillmentLocation readById(Long fulfillmentLocationId) {
+        FulfillmentLocation fulfillmentLocation = current().byId.get(fulfillmentLocationId);
+        if (fulfillmentLocation == null && fulfillmentLocationId != null) {
+            //the location may have been created on another node since the snapshot was built
+            fulfillmentLocation = fulfillmentLocationDao.readById(fulfillmentLocationId);
+            if (fulfillmentLocation != null) {
+                invalidate();
+            }
+        }
+        return fulfillmentLocation;
+    }
+
+    @Override
+    public FulfillmentLocation readDefault() {
+        return current().defaultLocation;
+    }
+
+    @Override
+    public List<FulfillmentLocation> readPickupLocations() {
+        return current().pickupLocations;
+    }
+
+    @Override
+    public List<FulfillmentLocation> readShippingLocations() {
+        return current().shippingLocations;
+    }
+
+    /**
+     * Reads the locations in a read-write transaction of its own. Joining the caller's transaction would let a
+     * read-only one route the read to a lagging replica, caching a change that was just invalidated as its old value,
+     * and would leave the shared instances managed by the caller's persistence context.
+     */
+    @Override
+    public synchronized void rebuild() {
+        //taken before reading, so that a change committed during the read triggers another rebuild
+        long modifications = MODIFICATIONS.get();
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        List<FulfillmentLocation> fulfillmentLocations = transactionTemplate.execute(new TransactionCallback<List<FulfillmentLocation>>() {
+            @Override
+            public List<FulfillmentLocation> doInTransaction(TransactionStatus status) {
+                return fulfillmentLocationDao.readAll();
+            }
+        });
+        snapshot.set(new Snapshot(fulfillmentLocations, modifications, System.currentTimeMillis()));
+    }
+
+    protected Snapshot current() {
+        Snapshot current = snapshot.get();
+        if (isStale(current)) {
+            synchronized (this) {
+                current = snapshot.get();
+                if (isStale(current)) {
+                    rebuild();
+                    current = snapshot.get();
+                }
+            }
+        }
+        return current;
+    }
+
+    protected boolean isStale(Snapshot current) {
+        return current == null || current.modifications != MODIFICATIONS.get()
+                || (refreshInterval > 0 && System.currentTimeMillis() - current.built > refreshInterval);
+    }
+
+    public void setRefreshInterval(long refreshInterval) {
+        this.refreshInterval = refreshInterval;
+    }
+
+    protected static class Snapshot {
+
+        protected final List<FulfillmentLocation> all;
+        protected final Map<Long, FulfillmentLocation> byId;
+        protected final FulfillmentLocation defaultLocation;
+        protected final List<FulfillmentLocation> pickupLocations;
+        protected final List<FulfillmentLocation> shippingLocations;
+        protected final long modifications;
+        protected final long built;
+
+        protected Snapshot(List<FulfillmentLocation> fulfillmentLocations, long modifications, long built) {
+            Map<Long, FulfillmentLocation> byId = new HashMap<Long, FulfillmentLocation>();
+            List<FulfillmentLocation> pickupLocations = new ArrayList<FulfillmentLocation>();
+            List<FulfillmentLocation> shippingLocations = new ArrayList<FulfillmentLocation>();
+            FulfillmentLocation defaultLocation = null;
+            for (FulfillmentLocation fulfillmentLocation : fulfillmentLocations) {
+                byId.put(fulfillmentLocation.getId(), fulfillmentLocation);
+                if (Boolean.TRUE.equals(fulfillmentLocation.getPickupLocation())) {
+                    pickupLocations.add(fulfillmentLocation);
+                }
+                if (Boolean.TRUE.equals(fulfillmentLocation.getShippingLocation())) {
+                    shippingLocations.add(fulfillmentLocation);
+                }
+                if (defaultLocation == null && Boolean.TRUE.equals(fulfillmentLocation.getDefaultLocation())) {
+                    defaultLocation = fulfillmentLocation;
+                }
+            }
+            this.all = Collections.unmodifiableList(new ArrayList<FulfillmentLocation>(fulfillmentLocations));
+            this.byId = Collections.unmodifiableMap(byId);
+            this.defaultLocation = defaultLocation;
+            this.pickupLocations = Collections.unmodifiableList(pickupLocations);
+            this.shippingLocations = Collections.unmodifiableList(shippingLocations);
+            this.modifications = modifications;
+            this.built = built;
+        }
+
+    }
+
+}
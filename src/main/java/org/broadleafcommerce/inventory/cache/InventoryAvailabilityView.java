@@ -0,0 +1,83 @@
+/**
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.broadleafcommerce.inventory.cache;
+
+/**
+ * A node-local view of the quantity available for each sku at each fulfillment location, used to answer
+ * availability questions without going to the database. Entries are dropped when the
+ * {@link InventoryInvalidationBus} reports that the record was changed on any node.
+ *
+ * Lookups use primitive ids and return {@link #UNKNOWN} rather than null so that callers checking many skus do not
+ * have to allocate for each lookup.
+ *
+ * The view holds a bounded number of records. Once it is full, values for records it does not hold yet are not
+ * recorded, and lookups for them fall back to the database.
+ */
+public interface InventoryAvailabilityView {
+
+    /**
+     * Returned when the view does not hold a current value for the requested record
+     */
+    public static final int UNKNOWN = Integer.MIN_VALUE;
+
+    /**
+     * @return whether the view is in use. A disabled view holds nothing and always answers {@link #UNKNOWN}.
+     */
+    public boolean isEnabled();
+
+    /**
+     * @param skuId
+     * @param fulfillmentLocationId
+     * @return the quantity available, or {@link #UNKNOWN}
+     */
+    public int getQuantityAvailable(long skuId, long fulfillmentLocationId);
+
+    /**
+     * @return the current invalidation generation. Take it before reading the values to be put, and pass it to
+     * {@link #putQuantityAvailable(long, long, int, long, long)}.
+     */
+    public long getGeneration();
+
+    /**
+     * Records the quantity available as of the given version. A value older than the one already held is ignored,
+     * as is a value read before the record was last invalidated, since the read may predate the change that caused
+     * the invalidation, and a value for a new record once the view is full.
+     * @param skuId
+     * @param fulfillmentLocationId
+     * @param quantityAvailable
+     * @param version the version of the inventory record the quantity was read from
+     * @param generation the value of {@link #getGeneration()} taken before the quantity was read
+     */
+    public void putQuantityAvailable(long skuId, long fulfillmentLocationId, int quantityAvailable, long version, long generation);
+
+    /**
+     * Drops the value held for the record, if any, and rejects values for it that were read before this call
+     * @param skuId
+     * @param fulfillmentLocationId
+     */
+    public void remove(long skuId, long fulfillmentLocationId);
+
+    /**
+     * Drops every value held by the view
+     */
+    public void clear();
+
+    /**
+     * @return the number of records the view holds a value for
+     */
+    public int size();
+
+}
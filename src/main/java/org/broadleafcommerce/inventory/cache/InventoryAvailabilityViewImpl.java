@@ -0,0 +1,238 @@
+/**
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.broadleafcommerce.inventory.cache;
+
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Default {@link InventoryAvailabilityView}, backed by a concurrent map. Values expire after
+ * {@link #timeToLive} milliseconds as a backstop for invalidations that are lost by the transport.
+ *
+ * The map holds at most {@link #maxEntries} values. A put for a new record into a full view first drops expired
+ * values, at most once per {@link #tombstoneTimeToLive}, and is ignored if the view is still full. Tombstones are
+ * always written, since dropping one could let a stale value back in.
+ *
+ * Removing a record leaves a tombstone stamped with a new generation, so that a value read before the invalidation
+ * but put after it is rejected. Tombstones are purged once they are older than {@link #tombstoneTimeToLive}; from
+ * then on any put whose read started before the purged tombstone was written is rejected as well.
+ */
+@Component("blInventoryAvailabilityView")
+public class InventoryAvailabilityViewImpl implements InventoryAvailabilityView, InventoryInvalidationListener {
+
+    @Resource(name = "blInventoryInvalidationBus")
+    protected InventoryInvalidationBus inventoryInvalidationBus;
+
+    protected boolean enabled = false;
+
+    protected long timeToLive = 60 * 60 * 1000L;
+
+    /**
+     * The largest number of records the view holds values for
+     */
+    protected int maxEntries = 200000;
+
+    /**
+     * How long, in milliseconds, a tombstone is kept. It only has to outlast the longest read whose value is put.
+     */
+    protected long tombstoneTimeToLive = 60 * 1000L;
+
+    protected final ConcurrentMap<InventoryKey, Entry> entries = new ConcurrentHashMap<InventoryKey, Entry>();
+
+    protected final AtomicLong generation = new AtomicLong();
+
+    /**
+     * Puts read before this generation are rejected, because tombstones up to it may have been purged
+     */
+    protected volatile long oldestAcceptedGeneration = 0;
+
+    protected final AtomicLong lastPurge = new AtomicLong(System.currentTimeMillis());
+
+    @PostConstruct
+    public void init() {
+        inventoryInvalidationBus.addListener(this);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        inventoryInvalidationBus.removeListener(this);
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @Override
+    public int getQuantityAvailable(long skuId, long fulfillmentLocationId) {
+        if (!enabled) {
+            return UNKNOWN;
+        }
+        Entry entry = entries.get(new InventoryKey(skuId, fulfillmentLocationId));
+        if (entry == null || entry.tombstone || System.currentTimeMillis() - entry.loaded > timeToLive) {
+            return UNKNOWN;
+        }
+        return entry.quantityAvailable;
+    }
+
+    @Override
+    public long getGeneration() {
+        return generation.get();
+    }
+
+    @Override
+    public void putQuantityAvailable(long skuId, long fulfillmentLocationId, int quantityAvailable, long version, long generation) {
+        if (!enabled || generation < oldestAcceptedGeneration) {
+            return;
+        }
+        InventoryKey key = new InventoryKey(skuId, fulfillmentLocationId);
+        long now = System.currentTimeMillis();
+        Entry entry = new Entry(quantityAvailable, version, generation, now, false);
+        while (true) {
+            Entry existing = entries.get(key);
+            if (existing == null) {
+                if (isFull(now)) {
+                    return;
+                }
+                existing = entries.putIfAbsent(key, entry);
+                if (existing == null) {
+                    return;
+                }
+            }
+            //a tombstone newer than the read means the value may predate the change that was invalidated
+            boolean newer = existing.tombstone ? existing.generation > generation : existing.version > version;
+            if (newer || entries.replace(key, existing, entry)) {
+                return;
+            }
+        }
+    }
+
+    @Override
+    public void remove(long skuId, long fulfillmentLocationId) {
+        if (!enabled) {
+            entries.remove(new InventoryKey(skuId, fulfillmentLocationId));
+            return;
+        }
+        long now = System.currentTimeMillis();
+        entries.put(new InventoryKey(skuId, fulfillmentLocationId), new Entry(UNKNOWN, 0, generation.incrementAndGet(), now, true));
+        purgeTombstones(now);
+    }
+
+    protected void purgeTombstones(long now) {
+        long last = lastPurge.get();
+        if (now - last < tombstoneTimeToLive || !lastPurge.compareAndSet(last, now)) {
+            return;
+        }
+        long purgedGeneration = oldestAcceptedGeneration;
+        Iterator<Map.Entry<InventoryKey, Entry>> itr = entries.entrySet().iterator();
+        while (itr.hasNext()) {
+            Entry entry = itr.next().getValue();
+            if (entry.tombstone ? now - entry.loaded > tombstoneTimeToLive : now - entry.loaded > timeToLive) {
+                if (entry.tombstone) {
+                    purgedGeneration = Math.max(purgedGeneration, entry.generation);
+                }
+                itr.remove();
+            }
+        }
+        oldestAcceptedGeneration = purgedGeneration;
+    }
+
+    /**
+     * @return whether the view has no room for another record, after dropping what has expired if it is due
+     */
+    protected boolean isFull(long now) {
+        if (entries.size() < maxEntries) {
+            return false;
+        }
+        purgeTombstones(now);
+        return entries.size() >= maxEntries;
+    }
+
+    @Override
+    public void invalidate(InventoryInvalidationBatch batch) {
+        for (int i = 0; i < batch.size(); i++) {
+            //a change to the sku itself leaves its quantities as they were
+            if (!batch.isSkuChange(i)) {
+                remove(batch.getSkuId(i), batch.getFulfillmentLocationId(i));
+            }
+        }
+    }
+
+    @Override
+    public void clear() {
+        //reads in flight must not repopulate what was just cleared
+        oldestAcceptedGeneration = generation.incrementAndGet();
+        entries.clear();
+    }
+
+    @Override
+    public int size() {
+        int size = 0;
+        for (Entry entry : entries.values()) {
+            if (!entry.tombstone) {
+                size++;
+            }
+        }
+        return size;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+        if (!enabled) {
+            clear();
+        }
+    }
+
+    public void setTimeToLive(long timeToLive) {
+        this.timeToLive = timeToLive;
+    }
+
+    public void setMaxEntries(int maxEntries) {
+        this.maxEntries = maxEntries;
+    }
+
+    public void setTombstoneTimeToLive(long tombstoneTimeToLive) {
+        this.tombstoneTimeToLive = tombstoneTimeToLive;
+    }
+
+    protected static class Entry {
+
+        protected final int quantityAvailable;
+        protected final long version;
+        protected final long generation;
+        protected final long loaded;
+        protected final boolean tombstone;
+
+        protected Entry(int quantityAvailable, long version, long generation, long loaded, boolean tombstone) {
+            this.quantityAvailable = quantityAvailable;
+            this.version = version;
+            this.generation = generation;
+            this.loaded = loaded;
+            this.tombstone = tombstone;
+        }
+
+    }
+
+}
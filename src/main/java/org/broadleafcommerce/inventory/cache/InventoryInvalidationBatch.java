@@ -0,0 +1,86 @@
+/**
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.broadleafcommerce.inventory.cache;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * A coalesced set of {@link InventoryKey}s that were touched by one or more committed transactions. The keys are
+ * held as two parallel primitive arrays so that the batch stays compact when it is serialized by a remote
+ * {@link InventoryInvalidationTransport}.
+ */
+public class InventoryInvalidationBatch implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    protected final long[] skuIds;
+    protected final long[] fulfillmentLocationIds;
+
+    public InventoryInvalidationBatch(long[] skuIds, long[] fulfillmentLocationIds) {
+        if (skuIds.length != fulfillmentLocationIds.length) {
+            throw new IllegalArgumentException("The sku and fulfillment location id arrays must be the same length");
+        }
+        this.skuIds = skuIds;
+        this.fulfillmentLocationIds = fulfillmentLocationIds;
+    }
+
+    public InventoryInvalidationBatch(Collection<InventoryKey> keys) {
+        this.skuIds = new long[keys.size()];
+        this.fulfillmentLocationIds = new long[keys.size()];
+        int i = 0;
+        for (InventoryKey key : keys) {
+            skuIds[i] = key.getSkuId();
+            fulfillmentLocationIds[i] = key.getFulfillmentLocationId();
+            i++;
+        }
+    }
+
+    public int size() {
+        return skuIds.length;
+    }
+
+    public long getSkuId(int index) {
+        return skuIds[index];
+    }
+
+    public long getFulfillmentLocationId(int index) {
+        return fulfillmentLocationIds[index];
+    }
+
+    /**
+     * @param index
+     * @return whether the key at the index reports a change to the sku itself, with
+     * {@link InventoryKey#ALL_FULFILLMENT_LOCATIONS} in place of the fulfillment location, rather than to inventory
+     */
+    public boolean isSkuChange(int index) {
+        return fulfillmentLocationIds[index] == InventoryKey.ALL_FULFILLMENT_LOCATIONS;
+    }
+
+    /**
+     * @return the keys in this batch as {@link InventoryKey} instances
+     */
+    public List<InventoryKey> getKeys() {
+        List<InventoryKey> keys = new ArrayList<InventoryKey>(skuIds.length);
+        for (int i = 0; i < skuIds.length; i++) {
+            keys.add(new InventoryKey(skuIds[i], fulfillmentLocationIds[i]));
+        }
+        return keys;
+    }
+
+}
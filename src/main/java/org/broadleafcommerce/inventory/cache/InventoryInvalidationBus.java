@@ -0,0 +1,62 @@
+/**
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.broadleafcommerce.inventory.cache;
+
+import org.broadleafcommerce.inventory.domain.Inventory;
+
+/**
+ * Collects the inventory keys touched inside a transaction and, once that transaction commits, broadcasts them
+ * over the configured {@link InventoryInvalidationTransport}. Keys changed by a transaction that rolls back are
+ * never sent. Because only committed changes are published, node-local caches that listen on this bus can safely
+ * use long expirations.
+ */
+public interface InventoryInvalidationBus {
+
+    /**
+     * Records that the passed inventory was changed. If there is no active transaction, the key is sent immediately.
+     * @param inventory
+     */
+    public void keyChanged(Inventory inventory);
+
+    /**
+     * Records that the inventory identified by the key was changed. If there is no active transaction, the key is
+     * sent immediately.
+     * @param key
+     */
+    public void keyChanged(InventoryKey key);
+
+    /**
+     * Records that the sku itself, rather than its inventory, was changed, so that what nodes hold about whether the
+     * sku is active and tracks inventory is dropped. If there is no active transaction, the change is sent
+     * immediately.
+     * @param skuId the changed sku, or null if the change may affect every sku, such as a change to the inventory
+     * type of a category
+     */
+    public void skuChanged(Long skuId);
+
+    /**
+     * Registers a listener on this node for invalidations coming from any node
+     * @param listener
+     */
+    public void addListener(InventoryInvalidationListener listener);
+
+    /**
+     * Removes a previously registered listener
+     * @param listener
+     */
+    public void removeListener(InventoryInvalidationListener listener);
+
+}
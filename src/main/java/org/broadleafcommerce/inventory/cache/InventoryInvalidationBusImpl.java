@@ -0,0 +1,173 @@
+/**
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.broadleafcommerce.inventory.cache;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.broadleafcommerce.inventory.domain.Inventory;
+import org.springframework.core.Ordered;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+@Component("blInventoryInvalidationBus")
+public class InventoryInvalidationBusImpl implements InventoryInvalidationBus {
+
+    private static final Log LOG = LogFactory.getLog(InventoryInvalidationBusImpl.class);
+
+    @Resource(name = "blInventoryInvalidationTransport")
+    protected InventoryInvalidationTransport transport;
+
+    protected int maxBatchSize = 500;
+
+    /**
+     * The bus of this node, for JPA entity listeners, which are not created by Spring
+     */
+    protected static volatile InventoryInvalidationBus current;
+
+    /**
+     * @return the bus of this node, or null before it has been created
+     */
+    public static InventoryInvalidationBus getCurrent() {
+        return current;
+    }
+
+    @PostConstruct
+    public void init() {
+        current = this;
+    }
+
+    @Override
+    public void keyChanged(Inventory inventory) {
+        if (inventory == null || inventory.getSku() == null || inventory.getFulfillmentLocation() == null) {
+            return;
+        }
+        keyChanged(new InventoryKey(inventory.getSku().getId(), inventory.getFulfillmentLocation().getId()));
+    }
+
+    @Override
+    public void skuChanged(Long skuId) {
+        keyChanged(new InventoryKey(skuId == null ? InventoryKey.ALL_SKUS : skuId, InventoryKey.ALL_FULFILLMENT_LOCATIONS));
+    }
+
+    @Override
+    public void keyChanged(InventoryKey key) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            getPendingInvalidations().keys.add(key);
+        } else {
+            publish(Collections.singleton(key));
+        }
+    }
+
+    /**
+     * Finds the pending keys for the current transaction, registering a new synchronization if this is the first
+     * key changed in it. The keys are held by the synchronization itself rather than bound as a transaction
+     * resource so that a suspended outer transaction and a REQUIRES_NEW inner transaction never share them.
+     */
+    protected PendingInvalidations getPendingInvalidations() {
+        for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+            if (synchronization instanceof PendingInvalidations && ((PendingInvalidations) synchronization).getBus() == this) {
+                return (PendingInvalidations) synchronization;
+            }
+        }
+        PendingInvalidations pending = new PendingInvalidations();
+        TransactionSynchronizationManager.registerSynchronization(pending);
+        return pending;
+    }
+
+    /**
+     * Splits the coalesced keys into batches of at most {@link #maxBatchSize} and sends them over the transport.
+     * The changes have already been committed at this point, so a transport failure is logged rather than thrown.
+     * @param keys
+     */
+    protected void publish(Collection<InventoryKey> keys) {
+        List<InventoryKey> batch = new ArrayList<InventoryKey>(Math.min(keys.size(), maxBatchSize));
+        for (InventoryKey key : keys) {
+            batch.add(key);
+            if (batch.size() == maxBatchSize) {
+                send(batch);
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            send(batch);
+        }
+    }
+
+    protected void send(List<InventoryKey> keys) {
+        try {
+            transport.send(new InventoryInvalidationBatch(keys));
+        } catch (RuntimeException e) {
+            LOG.error("Unable to broadcast invalidation of " + keys.size() + " inventory keys", e);
+        }
+    }
+
+    @Override
+    public void addListener(InventoryInvalidationListener listener) {
+        transport.addListener(listener);
+    }
+
+    @Override
+    public void removeListener(InventoryInvalidationListener listener) {
+        transport.removeListener(listener);
+    }
+
+    public void setTransport(InventoryInvalidationTransport transport) {
+        this.transport = transport;
+    }
+
+    public void setMaxBatchSize(int maxBatchSize) {
+        this.maxBatchSize = maxBatchSize;
+    }
+
+    protected class PendingInvalidations extends TransactionSynchronizationAdapter {
+
+        protected final Set<InventoryKey> keys = new LinkedHashSet<InventoryKey>();
+
+        protected InventoryInvalidationBusImpl getBus() {
+            return InventoryInvalidationBusImpl.this;
+        }
+
+        /**
+         * Publishes ahead of other after-completion work, which may rely on this node's listeners having already
+         * seen the change
+         */
+        @Override
+        public int getOrder() {
+            return Ordered.HIGHEST_PRECEDENCE;
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            if (status == STATUS_COMMITTED && !keys.isEmpty()) {
+                publish(keys);
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,30 @@
+/**
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.broadleafcommerce.inventory.cache;
+
+/**
+ * Receives the inventory keys that were changed by committed transactions on any node. Implementations should
+ * drop exactly the keys in the batch from whatever they are caching.
+ */
+public interface InventoryInvalidationListener {
+
+    /**
+     * Invalidates the keys contained in the batch
+     * @param batch
+     */
+    public void invalidate(InventoryInvalidationBatch batch);
+
+}
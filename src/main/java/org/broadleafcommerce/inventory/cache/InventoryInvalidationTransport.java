@@ -0,0 +1,46 @@
+/**
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.broadleafcommerce.inventory.cache;
+
+/**
+ * Moves {@link InventoryInvalidationBatch}es between application nodes. Implementations must deliver every batch
+ * that is sent to the listeners registered on every node, including the node that sent it.
+ *
+ * The default implementation, {@link LoopbackInventoryInvalidationTransport}, only delivers to the local node. To
+ * broadcast across a cluster, override the <code>blInventoryInvalidationTransport</code> bean with an implementation
+ * backed by your messaging infrastructure.
+ */
+public interface InventoryInvalidationTransport {
+
+    /**
+     * Broadcasts the batch to all nodes
+     * @param batch
+     */
+    public void send(InventoryInvalidationBatch batch);
+
+    /**
+     * Registers a listener on this node that will receive every batch delivered by this transport
+     * @param listener
+     */
+    public void addListener(InventoryInvalidationListener listener);
+
+    /**
+     * Removes a previously registered listener
+     * @param listener
+     */
+    public void removeListener(InventoryInvalidationListener listener);
+
+}
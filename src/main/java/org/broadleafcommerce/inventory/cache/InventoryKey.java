@@ -0,0 +1,80 @@
+/**
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.broadleafcommerce.inventory.cache;
+
+import java.io.Serializable;
+
+/**
+ * Identifies a single inventory record by its {@link org.broadleafcommerce.core.catalog.domain.Sku} id and
+ * {@link org.broadleafcommerce.inventory.domain.FulfillmentLocation} id. Used as a lightweight key by node-local
+ * caches and views so that they do not have to hold on to entities.
+ */
+public class InventoryKey implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Stands in for the fulfillment location of a key that reports a change to the sku itself rather than to its
+     * inventory at any one location
+     */
+    public static final long ALL_FULFILLMENT_LOCATIONS = 0L;
+
+    /**
+     * Stands in for the sku of such a key when the change may affect every sku
+     */
+    public static final long ALL_SKUS = 0L;
+
+    protected final long skuId;
+    protected final long fulfillmentLocationId;
+
+    public InventoryKey(long skuId, long fulfillmentLocationId) {
+        this.skuId = skuId;
+        this.fulfillmentLocationId = fulfillmentLocationId;
+    }
+
+    public long getSkuId() {
+        return skuId;
+    }
+
+    public long getFulfillmentLocationId() {
+        return fulfillmentLocationId;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof InventoryKey)) {
+            return false;
+        }
+        InventoryKey other = (InventoryKey) obj;
+        return skuId == other.skuId && fulfillmentLocationId == other.fulfillmentLocationId;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = (int) (skuId ^ (skuId >>> 32));
+        result = 31 * result + (int) (fulfillmentLocationId ^ (fulfillmentLocationId >>> 32));
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return skuId + "@" + fulfillmentLocationId;
+    }
+
+}
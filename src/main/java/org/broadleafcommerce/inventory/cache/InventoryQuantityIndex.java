@@ -0,0 +1,135 @@
+/**
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.broadleafcommerce.inventory.cache;
+
+/**
+ * A compact index of the quantity available for every sku at every fulfillment location, intended for pages that
+ * need in-stock flags for thousands of skus at once. Unlike {@link InventoryAvailabilityView}, the index is meant to
+ * hold the whole catalog and is loaded in bulk, and values are read in batches into caller supplied arrays so that
+ * no objects are allocated per lookup.
+ *
+ * A record changed on any node is marked unknown once the {@link InventoryInvalidationBus} reports it, and is filled
+ * in again by the next caller that reads it from the database. Callers take the {@link #getGeneration() generation}
+ * before that read and pass it back with the value, so that a value read before the record was invalidated is
+ * rejected rather than held until the record next changes.
+ *
+ * Next to the quantities, the index holds whether each sku is active and tracks inventory, so that in-stock checks
+ * can apply the sku rules without loading the sku. A sku's state is dropped once the bus reports a change to the
+ * sku, its product or a category through {@link InventoryInvalidationBus#skuChanged(Long)}, and expires at the next
+ * start or end of its active period.
+ */
+public interface InventoryQuantityIndex {
+
+    /**
+     * Returned when the index does not hold a current value for the requested record
+     */
+    public static final int UNKNOWN = Integer.MIN_VALUE;
+
+    /**
+     * Sku state of a sku that is active and tracks inventory, so that its quantity decides whether it is in stock
+     */
+    public static final int SKU_TRACKED = 0;
+
+    /**
+     * Sku state of an active sku that does not track inventory, which is always in stock
+     */
+    public static final int SKU_UNTRACKED = 1;
+
+    /**
+     * Sku state of a sku that is not active, which is never in stock
+     */
+    public static final int SKU_INACTIVE = 2;
+
+    /**
+     * @return whether the index is in use. A disabled index holds nothing and always answers {@link #UNKNOWN}.
+     */
+    public boolean isEnabled();
+
+    /**
+     * @param skuId
+     * @param fulfillmentLocationId
+     * @return the quantity available, or {@link #UNKNOWN}
+     */
+    public int getQuantityAvailable(long skuId, long fulfillmentLocationId);
+
+    /**
+     * Reads the quantity available for each of the skus at the fulfillment location
+     * @param skuIds
+     * @param fulfillmentLocationId
+     * @param quantities receives the quantity available, or {@link #UNKNOWN}, at the same position as each sku id
+     * @return the number of skus for which the index does not hold a value
+     */
+    public int getQuantitiesAvailable(long[] skuIds, long fulfillmentLocationId, int[] quantities);
+
+    /**
+     * Reads the state of each of the skus
+     * @param skuIds
+     * @param states receives {@link #SKU_TRACKED}, {@link #SKU_UNTRACKED}, {@link #SKU_INACTIVE} or {@link #UNKNOWN}
+     * at the same position as each sku id
+     * @return the number of skus for which the index does not hold a state
+     */
+    public int getSkuStates(long[] skuIds, int[] states);
+
+    /**
+     * Records the state of the sku, unless the sku has been reported changed since the given generation was taken
+     * @param skuId
+     * @param state one of {@link #SKU_TRACKED}, {@link #SKU_UNTRACKED} or {@link #SKU_INACTIVE}
+     * @param expiresAt the time, in milliseconds, at which the state stops applying because the sku's active period
+     * starts or ends, or zero if it does not expire
+     * @param generation the value of {@link #getGeneration()} taken before the sku was read
+     */
+    public void putSkuState(long skuId, int state, long expiresAt, long generation);
+
+    /**
+     * @return the current invalidation generation, to be taken before reading the values later passed to
+     * {@link #putQuantityAvailable(long, long, int, long)} or {@link #putSkuState(long, int, long, long)}
+     */
+    public long getGeneration();
+
+    /**
+     * Records the quantity available for the sku at the fulfillment location, unless the record has been invalidated
+     * since the given generation was taken
+     * @param skuId
+     * @param fulfillmentLocationId
+     * @param quantityAvailable
+     * @param generation the value of {@link #getGeneration()} taken before the quantity was read
+     */
+    public void putQuantityAvailable(long skuId, long fulfillmentLocationId, int quantityAvailable, long generation);
+
+    /**
+     * Marks the value held for the record as unknown, and rejects values for it read before this call
+     * @param skuId
+     * @param fulfillmentLocationId
+     */
+    public void invalidate(long skuId, long fulfillmentLocationId);
+
+    /**
+     * Drops the state held for the sku, and rejects states for it read before this call
+     * @param skuId the sku, or {@link InventoryKey#ALL_SKUS} to drop the state of every sku
+     */
+    public void invalidateSku(long skuId);
+
+    /**
+     * Drops every value held by the index
+     */
+    public void clear();
+
+    /**
+     * @return the number of records the index has a slot for, including those currently marked unknown
+     */
+    public int size();
+
+}
@@ -0,0 +1,62 @@
+/**
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.broadleafcommerce.inventory.cache;
+
+import java.io.Serializable;
+
+/**
+ * A flat projection of the quantities and version of one inventory record, read without hydrating the
+ * {@link org.broadleafcommerce.inventory.domain.Inventory} entity
+ */
+public class InventorySnapshotRecord implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    protected final long skuId;
+    protected final long fulfillmentLocationId;
+    protected final int quantityAvailable;
+    protected final int quantityOnHand;
+    protected final long version;
+
+    public InventorySnapshotRecord(Long skuId, Long fulfillmentLocationId, Integer quantityAvailable, Integer quantityOnHand, Long version) {
+        this.skuId = skuId;
+        this.fulfillmentLocationId = fulfillmentLocationId;
+        this.quantityAvailable = quantityAvailable;
+        this.quantityOnHand = quantityOnHand;
+        this.version = version;
+    }
+
+    public long getSkuId() {
+        return skuId;
+    }
+
+    public long getFulfillmentLocationId() {
+        return fulfillmentLocationId;
+    }
+
+    public int getQuantityAvailable() {
+        return quantityAvailable;
+    }
+
+    public int getQuantityOnHand() {
+        return quantityOnHand;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+}
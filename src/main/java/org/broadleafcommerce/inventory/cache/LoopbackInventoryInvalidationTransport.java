@@ -0,0 +1,65 @@
+/**
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.broadleafcommerce.inventory.cache;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * An {@link InventoryInvalidationTransport} that synchronously delivers every batch to the listeners registered
+ * in this JVM. Suitable for single node installations and for tests.
+ */
+@Component("blInventoryInvalidationTransport")
+public class LoopbackInventoryInvalidationTransport implements InventoryInvalidationTransport {
+
+    private static final Log LOG = LogFactory.getLog(LoopbackInventoryInvalidationTransport.class);
+
+    protected final List<InventoryInvalidationListener> listeners = new CopyOnWriteArrayList<InventoryInvalidationListener>();
+
+    @Override
+    public void send(InventoryInvalidationBatch batch) {
+        deliver(batch);
+    }
+
+    /**
+     * Hands the batch to each registered listener. A failing listener does not prevent delivery to the others.
+     * @param batch
+     */
+    protected void deliver(InventoryInvalidationBatch batch) {
+        for (InventoryInvalidationListener listener : listeners) {
+            try {
+                listener.invalidate(batch);
+            } catch (RuntimeException e) {
+                LOG.error("Unable to deliver an inventory invalidation batch to " + listener, e);
+            }
+        }
+    }
+
+    @Override
+    public void addListener(InventoryInvalidationListener listener) {
+        listeners.add(listener);
+    }
+
+    @Override
+    public void removeListener(InventoryInvalidationListener listener) {
+        listeners.remove(listener);
+    }
+
+}
@@ -0,0 +1,143 @@
+/**
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.broadleafcommerce.inventory.cache;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * A read-only, memory-mapped inventory snapshot file. The file holds a fixed-width header followed by fixed-width
+ * records sorted by sku id and then fulfillment location id:
+ *
+ * <pre>
+ * header: magic (int), format version (int), record count (int), created time millis (long)
+ * record: sku id (long), fulfillment location id (long), quantity available (int), quantity on hand (int), version (long)
+ * </pre>
+ *
+ * Records are read straight from the mapped file, so the snapshot takes no heap beyond this object and a lookup is
+ * a binary search over the mapping.
+ */
+public class MappedInventorySnapshot {
+
+    public static final int MAGIC = 0x424C4953;
+    public static final int FORMAT_VERSION = 1;
+    public static final int HEADER_SIZE = 4 + 4 + 4 + 8;
+    public static final int RECORD_SIZE = 8 + 8 + 4 + 4 + 8;
+
+    public static final int RECORD_COUNT_OFFSET = 8;
+    public static final int CREATED_OFFSET = 12;
+
+    protected final ByteBuffer buffer;
+    protected final int size;
+    protected final long created;
+
+    protected MappedInventorySnapshot(ByteBuffer buffer) {
+        if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != FORMAT_VERSION) {
+            throw new IllegalArgumentException("Not an inventory snapshot file, or an unsupported format version");
+        }
+        this.buffer = buffer;
+        this.size = buffer.getInt(RECORD_COUNT_OFFSET);
+        this.created = buffer.getLong(CREATED_OFFSET);
+        if (buffer.capacity() < HEADER_SIZE + (long) size * RECORD_SIZE) {
+            throw new IllegalArgumentException("The inventory snapshot file is truncated");
+        }
+    }
+
+    /**
+     * Maps the given snapshot file into memory
+     * @param file
+     * @return the snapshot
+     * @throws IOException
+     */
+    public static MappedInventorySnapshot map(File file) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            FileChannel channel = raf.getChannel();
+            //the mapping stays valid after the channel is closed
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return new MappedInventorySnapshot(buffer);
+        } finally {
+            raf.close();
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return the time, in milliseconds, at which the snapshot was exported
+     */
+    public long getCreated() {
+        return created;
+    }
+
+    public long getSkuId(int index) {
+        return buffer.getLong(offset(index));
+    }
+
+    public long getFulfillmentLocationId(int index) {
+        return buffer.getLong(offset(index) + 8);
+    }
+
+    public int getQuantityAvailable(int index) {
+        return buffer.getInt(offset(index) + 16);
+    }
+
+    public int getQuantityOnHand(int index) {
+        return buffer.getInt(offset(index) + 20);
+    }
+
+    public long getVersion(int index) {
+        return buffer.getLong(offset(index) + 24);
+    }
+
+    /**
+     * @param skuId
+     * @param fulfillmentLocationId
+     * @return the index of the record for the sku at the fulfillment location, or -1 if the snapshot has none
+     */
+    public int indexOf(long skuId, long fulfillmentLocationId) {
+        int low = 0;
+        int high = size - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            long midSkuId = getSkuId(mid);
+            int cmp = midSkuId < skuId ? -1 : midSkuId > skuId ? 1 : 0;
+            if (cmp == 0) {
+                long midLocationId = getFulfillmentLocationId(mid);
+                cmp = midLocationId < fulfillmentLocationId ? -1 : midLocationId > fulfillmentLocationId ? 1 : 0;
+            }
+            if (cmp < 0) {
+                low = mid + 1;
+            } else if (cmp > 0) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    protected int offset(int index) {
+        return HEADER_SIZE + index * RECORD_SIZE;
+    }
+
+}
@@ -0,0 +1,489 @@
+/**
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.broadleafcommerce.inventory.cache;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.broadleafcommerce.inventory.dao.InventoryDao;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * {@link InventoryQuantityIndex} held outside of the Java heap in direct buffers. Each buffer is an open addressing
+ * hash table with linear probing. The quantity table holds the sku id, the fulfillment location id, the quantity
+ * available and the generation at which the record was last invalidated in each slot, so that an index of millions
+ * of records neither adds objects for the garbage collector to trace nor costs anything per lookup beyond the probe
+ * itself. A second, smaller table keyed by sku id alone holds the sku states in the same way, with the time at which
+ * each state expires.
+ *
+ * Slots are never removed, only marked {@link #UNKNOWN}, because the set of sku and location pairs only grows in
+ * practice. An invalidation adds a slot for a record the index does not hold yet, so that a value read before it
+ * cannot be put afterwards. A table doubles once it is more than {@link #MAX_LOAD_FACTOR} full.
+ *
+ * When enabled, the quantities are loaded from the database in the background once the application context starts.
+ * Until then, lookups answer {@link #UNKNOWN} and callers fall back to the database. Sku states are filled in by the
+ * callers that read them.
+ */
+@Component("blInventoryQuantityIndex")
+public class OffHeapInventoryQuantityIndex implements InventoryQuantityIndex, InventoryInvalidationListener,
+        ApplicationListener<ContextRefreshedEvent> {
+
+    private static final Log LOG = LogFactory.getLog(OffHeapInventoryQuantityIndex.class);
+
+    protected static final int SLOT_SIZE = 32;
+    protected static final int SKU_STATE_SLOT_SIZE = 40;
+    protected static final int SKU_ID_OFFSET = 0;
+    protected static final int FULFILLMENT_LOCATION_ID_OFFSET = 8;
+    protected static final int VALUE_OFFSET = 16;
+    protected static final int GENERATION_OFFSET = 24;
+    protected static final int EXPIRES_AT_OFFSET = 32;
+    protected static final float MAX_LOAD_FACTOR = 0.6f;
+
+    @Resource(name = "blInventoryInvalidationBus")
+    protected InventoryInvalidationBus inventoryInvalidationBus;
+
+    @Resource(name = "blInventoryDao")
+    protected InventoryDao inventoryDao;
+
+    protected boolean enabled = false;
+
+    /**
+     * The number of quantity slots allocated up front, rounded up to a power of two
+     */
+    protected int initialCapacity = 1 << 16;
+
+    /**
+     * The number of sku state slots allocated up front, rounded up to a power of two
+     */
+    protected int initialSkuStateCapacity = 1 << 14;
+
+    /**
+     * The number of records read from the database per query while loading
+     */
+    protected int loadPageSize = 1000;
+
+    protected final ReadWriteLock lock = new ReentrantReadWriteLock();
+    protected final AtomicBoolean loaded = new AtomicBoolean(false);
+    protected final AtomicLong generation = new AtomicLong();
+
+    protected Slots quantities;
+    protected Slots skuStates;
+
+    @PostConstruct
+    public void init() {
+        quantities = new Slots(SLOT_SIZE, initialCapacity);
+        skuStates = new Slots(SKU_STATE_SLOT_SIZE, initialSkuStateCapacity);
+        inventoryInvalidationBus.addListener(this);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        inventoryInvalidationBus.removeListener(this);
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @Override
+    public int getQuantityAvailable(long skuId, long fulfillmentLocationId) {
+        if (!enabled) {
+            return UNKNOWN;
+        }
+        lock.readLock().lock();
+        try {
+            int slot = quantities.find(skuId, fulfillmentLocationId);
+            return isEmpty(slot) ? UNKNOWN : quantities.buffer.getInt(slot + VALUE_OFFSET);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public int getQuantitiesAvailable(long[] skuIds, long fulfillmentLocationId, int[] quantities) {
+        if (!enabled) {
+            Arrays.fill(quantities, 0, skuIds.length, UNKNOWN);
+            return skuIds.length;
+        }
+        int unknown = 0;
+        lock.readLock().lock();
+        try {
+            for (int i = 0; i < skuIds.length; i++) {
+                int slot = this.quantities.find(skuIds[i], fulfillmentLocationId);
+                quantities[i] = isEmpty(slot) ? UNKNOWN : this.quantities.buffer.getInt(slot + VALUE_OFFSET);
+                if (quantities[i] == UNKNOWN) {
+                    unknown++;
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return unknown;
+    }
+
+    @Override
+    public int getSkuStates(long[] skuIds, int[] states) {
+        if (!enabled) {
+            Arrays.fill(states, 0, skuIds.length, UNKNOWN);
+            return skuIds.length;
+        }
+        long now = System.currentTimeMillis();
+        int unknown = 0;
+        lock.readLock().lock();
+        try {
+            for (int i = 0; i < skuIds.length; i++) {
+                int slot = skuStates.find(skuIds[i], InventoryKey.ALL_FULFILLMENT_LOCATIONS);
+                states[i] = UNKNOWN;
+                if (!isEmpty(slot)) {
+                    long expiresAt = skuStates.buffer.getLong(slot + EXPIRES_AT_OFFSET);
+                    if (expiresAt == 0 || expiresAt > now) {
+                        states[i] = skuStates.buffer.getInt(slot + VALUE_OFFSET);
+                    }
+                }
+                if (states[i] == UNKNOWN) {
+                    unknown++;
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return unknown;
+    }
+
+    @Override
+    public long getGeneration() {
+        return generation.get();
+    }
+
+    @Override
+    public void putQuantityAvailable(long skuId, long fulfillmentLocationId, int quantityAvailable, long generation) {
+        if (!enabled) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            quantities.put(skuId, fulfillmentLocationId, quantityAvailable, generation);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void putSkuState(long skuId, int state, long expiresAt, long generation) {
+        if (!enabled) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            int slot = skuStates.put(skuId, InventoryKey.ALL_FULFILLMENT_LOCATIONS, state, generation);
+            if (slot >= 0) {
+                skuStates.buffer.putLong(slot + EXPIRES_AT_OFFSET, expiresAt);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void invalidate(long skuId, long fulfillmentLocationId) {
+        if (!enabled) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            quantities.markUnknown(skuId, fulfillmentLocationId, generation.incrementAndGet());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void invalidateSku(long skuId) {
+        if (!enabled) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            markSkuUnknown(skuId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void invalidate(InventoryInvalidationBatch batch) {
+        if (!enabled) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            for (int i = 0; i < batch.size(); i++) {
+                if (batch.isSkuChange(i)) {
+                    markSkuUnknown(batch.getSkuId(i));
+                } else {
+                    quantities.markUnknown(batch.getSkuId(i), batch.getFulfillmentLocationId(i), generation.incrementAndGet());
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    protected void markSkuUnknown(long skuId) {
+        if (skuId == InventoryKey.ALL_SKUS) {
+            skuStates.clear(initialSkuStateCapacity, generation.incrementAndGet());
+        } else {
+            skuStates.markUnknown(skuId, InventoryKey.ALL_FULFILLMENT_LOCATIONS, generation.incrementAndGet());
+        }
+    }
+
+    @Override
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            long cleared = generation.incrementAndGet();
+            quantities.clear(initialCapacity, cleared);
+            skuStates.clear(initialSkuStateCapacity, cleared);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return quantities.size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void onApplicationEvent(ContextRefreshedEvent event) {
+        if (!enabled || !loaded.compareAndSet(false, true)) {
+            return;
+        }
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    long start = System.currentTimeMillis();
+                    int count = load();
+                    LOG.info("Loaded " + count + " inventory records into the quantity index in "
+                            + (System.currentTimeMillis() - start) + "ms");
+                } catch (RuntimeException e) {
+                    LOG.error("Unable to load the inventory quantity index, lookups will fall back to the database", e);
+                }
+            }
+        }, "blInventoryQuantityIndexLoader");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Reads every inventory record from the database into the index
+     * @return the number of records read
+     */
+    public int load() {
+        int count = 0;
+        long lastSkuId = 0;
+        long lastFulfillmentLocationId = 0;
+        List<InventorySnapshotRecord> page;
+        do {
+            long pageGeneration = generation.get();
+            page = inventoryDao.readInventorySnapshotRecords(lastSkuId, lastFulfillmentLocationId, loadPageSize);
+            lock.writeLock().lock();
+            try {
+                for (InventorySnapshotRecord record : page) {
+                    quantities.put(record.getSkuId(), record.getFulfillmentLocationId(), record.getQuantityAvailable(), pageGeneration);
+                    lastSkuId = record.getSkuId();
+                    lastFulfillmentLocationId = record.getFulfillmentLocationId();
+                    count++;
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        } while (page.size() == loadPageSize);
+        return count;
+    }
+
+    protected static boolean isEmpty(int slot) {
+        return slot < 0;
+    }
+
+    protected static int hash(long skuId, long fulfillmentLocationId) {
+        long h = skuId * 0x9E3779B97F4A7C15L ^ fulfillmentLocationId * 0xC2B2AE3D27D4EB4FL;
+        h ^= h >>> 32;
+        h ^= h >>> 16;
+        return (int) h;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+        if (!enabled && quantities != null) {
+            clear();
+        }
+    }
+
+    public void setInitialCapacity(int initialCapacity) {
+        this.initialCapacity = initialCapacity;
+    }
+
+    public void setInitialSkuStateCapacity(int initialSkuStateCapacity) {
+        this.initialSkuStateCapacity = initialSkuStateCapacity;
+    }
+
+    public void setLoadPageSize(int loadPageSize) {
+        this.loadPageSize = loadPageSize;
+    }
+
+    /**
+     * One hash table in a direct buffer. Every slot starts with the sku id, the fulfillment location id, an int value
+     * and the generation at which the key was last invalidated; larger slots carry further fields after them. Callers
+     * hold the index lock.
+     */
+    protected static class Slots {
+
+        protected final int slotSize;
+        protected ByteBuffer buffer;
+        protected int capacity;
+        protected int size;
+
+        /**
+         * Values read before the table was last cleared are rejected whether or not their key still has a slot
+         */
+        protected long oldestAcceptedGeneration = 0;
+
+        protected Slots(int slotSize, int requestedCapacity) {
+            this.slotSize = slotSize;
+            allocate(requestedCapacity);
+        }
+
+        /**
+         * Records the value unless the key has been invalidated since the generation was taken
+         * @return the byte offset of the slot written, or -1 if the value was rejected
+         */
+        protected int put(long skuId, long fulfillmentLocationId, int value, long generation) {
+            if (generation < oldestAcceptedGeneration) {
+                return -1;
+            }
+            int slot = find(skuId, fulfillmentLocationId);
+            if (isEmpty(slot)) {
+                slot = insert(skuId, fulfillmentLocationId);
+            } else if (buffer.getLong(slot + GENERATION_OFFSET) > generation) {
+                //the key was invalidated after the value was read
+                return -1;
+            }
+            buffer.putInt(slot + VALUE_OFFSET, value);
+            return slot;
+        }
+
+        protected void markUnknown(long skuId, long fulfillmentLocationId, long generation) {
+            int slot = find(skuId, fulfillmentLocationId);
+            if (isEmpty(slot)) {
+                slot = insert(skuId, fulfillmentLocationId);
+            }
+            buffer.putInt(slot + VALUE_OFFSET, UNKNOWN);
+            buffer.putLong(slot + GENERATION_OFFSET, generation);
+        }
+
+        /**
+         * Adds an unknown slot for a key the table does not hold, growing the table first if needed
+         * @return the byte offset of the new slot
+         */
+        protected int insert(long skuId, long fulfillmentLocationId) {
+            if (size + 1 > capacity * MAX_LOAD_FACTOR) {
+                resize(capacity * 2);
+            }
+            int slot = -find(skuId, fulfillmentLocationId) - 1;
+            for (int offset = 0; offset < slotSize; offset += 8) {
+                buffer.putLong(slot + offset, 0L);
+            }
+            buffer.putLong(slot + SKU_ID_OFFSET, skuId);
+            buffer.putLong(slot + FULFILLMENT_LOCATION_ID_OFFSET, fulfillmentLocationId);
+            buffer.putInt(slot + VALUE_OFFSET, UNKNOWN);
+            size++;
+            return slot;
+        }
+
+        /**
+         * @return the byte offset of the slot holding the key, or <code>-(offset + 1)</code> of the empty slot where
+         * the key would be inserted
+         */
+        protected int find(long skuId, long fulfillmentLocationId) {
+            int mask = capacity - 1;
+            int index = hash(skuId, fulfillmentLocationId) & mask;
+            while (true) {
+                int offset = index * slotSize;
+                long slotSkuId = buffer.getLong(offset + SKU_ID_OFFSET);
+                long slotFulfillmentLocationId = buffer.getLong(offset + FULFILLMENT_LOCATION_ID_OFFSET);
+                if (slotSkuId == 0 && slotFulfillmentLocationId == 0) {
+                    return -offset - 1;
+                }
+                if (slotSkuId == skuId && slotFulfillmentLocationId == fulfillmentLocationId) {
+                    return offset;
+                }
+                index = (index + 1) & mask;
+            }
+        }
+
+        protected void clear(int requestedCapacity, long generation) {
+            oldestAcceptedGeneration = generation;
+            allocate(requestedCapacity);
+        }
+
+        protected void allocate(int requestedCapacity) {
+            capacity = Integer.highestOneBit(Math.max(requestedCapacity, 16) - 1) << 1;
+            buffer = ByteBuffer.allocateDirect(capacity * slotSize);
+            size = 0;
+        }
+
+        protected void resize(int newCapacity) {
+            ByteBuffer oldBuffer = buffer;
+            int oldCapacity = capacity;
+            buffer = ByteBuffer.allocateDirect(newCapacity * slotSize);
+            capacity = newCapacity;
+            for (int i = 0; i < oldCapacity; i++) {
+                int offset = i * slotSize;
+                long skuId = oldBuffer.getLong(offset + SKU_ID_OFFSET);
+                long fulfillmentLocationId = oldBuffer.getLong(offset + FULFILLMENT_LOCATION_ID_OFFSET);
+                if (skuId != 0 || fulfillmentLocationId != 0) {
+                    int slot = -find(skuId, fulfillmentLocationId) - 1;
+                    for (int field = 0; field < slotSize; field += 8) {
+                        buffer.putLong(slot + field, oldBuffer.getLong(offset + field));
+                    }
+                }
+            }
+        }
+
+    }
+
+}
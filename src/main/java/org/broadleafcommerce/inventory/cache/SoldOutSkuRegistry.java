@@ -0,0 +1,52 @@
+/**
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.broadleafcommerce.inventory.cache;
+
+/**
+ * A node-local set of skus known to be sold out at their default fulfillment location, checked by the add to cart
+ * workflow before it touches the database so that traffic for a sold out sku is turned away cheaply.
+ *
+ * A sku is marked once a committed decrement takes its quantity available to zero, or once a read finds nothing
+ * available, and is cleared once any increment or admin change to its inventory commits on this node or once the
+ * {@link InventoryInvalidationBus} reports a change to its inventory from any node. Marks also expire after a short
+ * time, which bounds how long a sku stays turned away should an invalidation be lost.
+ */
+public interface SoldOutSkuRegistry {
+
+    /**
+     * @param skuId
+     * @return whether the sku is currently marked as sold out
+     */
+    public boolean isSoldOut(long skuId);
+
+    /**
+     * Marks the sku as sold out
+     * @param skuId
+     */
+    public void markSoldOut(long skuId);
+
+    /**
+     * Removes the sold out mark from the sku, if any
+     * @param skuId
+     */
+    public void clear(long skuId);
+
+    /**
+     * Removes every sold out mark
+     */
+    public void clearAll();
+
+}
@@ -0,0 +1,109 @@
+/**
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.broadleafcommerce.inventory.cache;
+
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Default {@link SoldOutSkuRegistry}, holding the time each mark expires in a concurrent map keyed by sku id
+ */
+@Component("blSoldOutSkuRegistry")
+public class SoldOutSkuRegistryImpl implements SoldOutSkuRegistry, InventoryInvalidationListener {
+
+    @Resource(name = "blInventoryInvalidationBus")
+    protected InventoryInvalidationBus inventoryInvalidationBus;
+
+    protected boolean enabled = true;
+
+    /**
+     * How long, in milliseconds, a sku stays marked as sold out unless it is cleared sooner
+     */
+    protected long timeToLive = 30 * 1000L;
+
+    protected final ConcurrentMap<Long, Long> soldOutUntil = new ConcurrentHashMap<Long, Long>();
+
+    @PostConstruct
+    public void init() {
+        inventoryInvalidationBus.addListener(this);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        inventoryInvalidationBus.removeListener(this);
+    }
+
+    @Override
+    public boolean isSoldOut(long skuId) {
+        if (!enabled) {
+            return false;
+        }
+        Long until = soldOutUntil.get(skuId);
+        if (until == null) {
+            return false;
+        }
+        if (until < System.currentTimeMillis()) {
+            soldOutUntil.remove(skuId, until);
+            return false;
+        }
+        return true;
+    }
+
+    @Override
+    public void markSoldOut(long skuId) {
+        if (enabled) {
+            soldOutUntil.put(skuId, System.currentTimeMillis() + timeToLive);
+        }
+    }
+
+    @Override
+    public void clear(long skuId) {
+        soldOutUntil.remove(skuId);
+    }
+
+    @Override
+    public void clearAll() {
+        soldOutUntil.clear();
+    }
+
+    @Override
+    public void invalidate(InventoryInvalidationBatch batch) {
+        if (soldOutUntil.isEmpty()) {
+            return;
+        }
+        for (int i = 0; i < batch.size(); i++) {
+            soldOutUntil.remove(batch.getSkuId(i));
+        }
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+        if (!enabled) {
+            clearAll();
+        }
+    }
+
+    public void setTimeToLive(long timeToLive) {
+        this.timeToLive = timeToLive;
+    }
+
+}
@@ -27,11 +27,19 @@ import org.broadleafcommerce.core.workflow.ProcessContext;
 import org.broadleafcommerce.core.workflow.WorkflowException;
 import org.broadleafcommerce.inventory.exception.ConcurrentInventoryModificationException;
 import org.broadleafcommerce.inventory.service.InventoryService;
+import org.broadleafcommerce.inventory.service.retry.InventoryRetryCallback;
+import org.broadleafcommerce.inventory.service.retry.InventoryRetryPolicy;
+import org.broadleafcommerce.inventory.util.InventoryFlightEvent;
+import org.broadleafcommerce.inventory.util.trace.InventorySpan;
+import org.broadleafcommerce.inventory.util.trace.InventoryTracer;
 import org.springframework.stereotype.Component;
 
 import javax.annotation.Resource;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * This error handler essentially does exactly what the {@link DefaultErrorHandler} does, 
@@ -48,12 +56,16 @@ public class InventoryCompensatingCheckoutErrorHandler implements ErrorHandler {
     
     @Resource(name="blInventoryService")
     protected InventoryService inventoryService;
+
+    @Resource(name="blInventoryRetryPolicy")
+    protected InventoryRetryPolicy inventoryRetryPolicy;
+
+    @Resource(name="blInventoryTracer")
+    protected InventoryTracer tracer;
     
     @SuppressWarnings("unused")
     private String name;
     
-    private final int maxRetries = 5;
-    
     @Override
     public void setBeanName(String name) {
         this.name = name;
@@ -70,25 +82,43 @@ public class InventoryCompensatingCheckoutErrorHandler implements ErrorHandler {
         // The DecrementInventoryActivity, if successful, adds the inventory that was decremented to the context.  If we 
         // find that, then we need to attempt to compensate for that inventory.
         if (seed.getUserDefinedFields() != null && seed.getUserDefinedFields().get("BLC_INVENTORY_DECREMENTED") != null) {
-            Map<Sku, Integer> inventoryToIncrement = (Map<Sku, Integer>)seed.getUserDefinedFields().get("BLC_INVENTORY_DECREMENTED");
+            final Map<Sku, Integer> inventoryToIncrement = (Map<Sku, Integer>)seed.getUserDefinedFields().get("BLC_INVENTORY_DECREMENTED");
             if (! inventoryToIncrement.isEmpty()) {
-                int retryCount = 0;
-    
-                while (retryCount < maxRetries) {
-                    try {
-                        inventoryService.incrementInventory(inventoryToIncrement);
-                        break;
-                    } catch (ConcurrentInventoryModificationException ex) {
-                        retryCount++;
-                        if (retryCount == maxRetries) {
-                            LOG.error("After an exception was encountered during checkout, where inventory was decremented. " + maxRetries + " attempts were made to compensate, " +
-                                    "but were unsuccessful for order ID: " + seed.getOrder().getId() + ". This should be corrected manually!", ex);
+                List<Long> skuIds = new ArrayList<Long>(inventoryToIncrement.size());
+                for (Sku sku : inventoryToIncrement.keySet()) {
+                    skuIds.add(sku.getId());
+                }
+
+                // Keyed by the order, so the inventory is given back only once however often this handler runs
+                final String orderReference = seed.getOrder().getId() == null ? null : String.valueOf(seed.getOrder().getId());
+
+                // Compensation is never shed, since the inventory has already been taken from the skus
+                final AtomicInteger attempts = new AtomicInteger();
+                InventorySpan span = tracer.startSpan(InventoryTracer.COMPENSATE_INVENTORY);
+                String outcome = InventoryFlightEvent.FAILURE;
+                try {
+                    inventoryRetryPolicy.executeWithoutShedding(skuIds, new InventoryRetryCallback<Void, RuntimeException>() {
+                        @Override
+                        public Void doWithRetry() throws ConcurrentInventoryModificationException {
+                            attempts.incrementAndGet();
+                            if (orderReference == null) {
+                                inventoryService.incrementInventory(inventoryToIncrement);
+                            } else {
+                                inventoryService.incrementInventory(inventoryToIncrement, null, orderReference);
+                            }
+                            return null;
                         }
-                    } catch (RuntimeException ex) {
-                        LOG.error("An unexpected error occured in the error handler of the checkout workflow trying to compensate for inventory. This happend for order ID: " +
-                                seed.getOrder().getId() + ". This should be corrected manually!", ex);
-                        break;
-                    }
+                    });
+                    outcome = InventoryFlightEvent.SUCCESS;
+                } catch (ConcurrentInventoryModificationException ex) {
+                    outcome = InventoryFlightEvent.CONFLICT;
+                    LOG.error("After an exception was encountered during checkout, where inventory was decremented, the retry policy was exhausted " +
+                            "trying to compensate for order ID: " + seed.getOrder().getId() + ". This should be corrected manually!", ex);
+                } catch (RuntimeException ex) {
+                    LOG.error("An unexpected error occured in the error handler of the checkout workflow trying to compensate for inventory. This happend for order ID: " +
+                            seed.getOrder().getId() + ". This should be corrected manually!", ex);
+                } finally {
+                    span.end(skuIds.size(), null, Math.max(0, attempts.get() - 1), outcome);
                 }
             }
         }
@@ -18,6 +18,7 @@ package org.broadleafcommerce.inventory.dao;
 import org.broadleafcommerce.inventory.domain.FulfillmentLocation;
 import org.springframework.stereotype.Repository;
 
+import javax.annotation.Resource;
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
 import javax.persistence.Query;
@@ -30,10 +31,14 @@ public class FulfillmentLocationDaoImpl implements FulfillmentLocationDao {
     @PersistenceContext(unitName="blPU")
     protected EntityManager em;
 
+    @Resource(name = "blInventoryQueryProfiler")
+    protected InventoryQueryProfiler queryProfiler;
+
     @SuppressWarnings("unchecked")
     @Override
     public List<FulfillmentLocation> readAll() {
-        return em.createNamedQuery("BC_READ_ALL_FULFILLMENT_LOCATIONS").getResultList();
+        Query query = em.createNamedQuery("BC_READ_ALL_FULFILLMENT_LOCATIONS");
+        return queryProfiler.getResultList("BC_READ_ALL_FULFILLMENT_LOCATIONS", query);
     }
 
     @Override
@@ -55,6 +60,6 @@ public class FulfillmentLocationDaoImpl implements FulfillmentLocationDao {
     public void updateOtherDefaultLocationToFalse(FulfillmentLocation fulfillmentLocation) {
         Query query = em.createNamedQuery("BC_UPDATE_ALL_FULFILLMENT_LOCATIONS_TO_NOT_DEFAULT");
         query.setParameter("fulfillmentLocationId", fulfillmentLocation.getId());
-        query.executeUpdate();
+        queryProfiler.executeUpdate("BC_UPDATE_ALL_FULFILLMENT_LOCATIONS_TO_NOT_DEFAULT", query);
     }
 }
@@ -0,0 +1,249 @@
+/**
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.broadleafcommerce.inventory.dao;
+
+import org.broadleafcommerce.inventory.cache.InventoryKey;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedOperationParameter;
+import org.springframework.jmx.export.annotation.ManagedOperationParameters;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Tracks which inventory records cause the most concurrent modification conflicts, so that hot skus can be spotted
+ * while checkout is slow and given special handling. Conflicts are reported by the DAO when a save or lock fails, and
+ * the retry loops report how many retries each conflicting operation needed.
+ *
+ * Memory is bounded by a space-saving sketch of {@link #capacity} keys: a key that is not tracked replaces the key
+ * with the fewest conflicts and inherits its count as a possible overstatement. Any key with more conflicts than
+ * the total divided by the capacity is guaranteed to be tracked. Only conflicts are recorded, so the detector costs
+ * nothing on the uncontended path.
+ *
+ * The hottest keys are available over JMX when the application exports annotated beans, for example with
+ * &lt;context:mbean-export/&gt;.
+ */
+@Component("blInventoryContentionDetector")
+@ManagedResource(objectName = "org.broadleafcommerce:name=InventoryContentionDetector", description = "Inventory contention detector")
+public class InventoryContentionDetector {
+
+    /**
+     * The location recorded for conflicts whose record is not known, such as those surfacing only in a retry loop
+     */
+    public static final long UNKNOWN_LOCATION = 0L;
+
+    /**
+     * The most keys remembered for a single retry loop
+     */
+    protected static final int MAX_KEYS_PER_LOOP = 16;
+
+    protected volatile boolean enabled = true;
+
+    protected int capacity = 64;
+
+    /**
+     * How long, in milliseconds, it takes a key's conflict rate to halve once it stops conflicting
+     */
+    protected long halfLife = 10000L;
+
+    protected final Map<InventoryKey, InventoryContentionStatistics> sketch = new HashMap<InventoryKey, InventoryContentionStatistics>();
+
+    /**
+     * The keys that conflicted during the retry loop running on this thread
+     */
+    protected final ThreadLocal<Set<InventoryKey>> loopKeys = new ThreadLocal<Set<InventoryKey>>() {
+        @Override
+        protected Set<InventoryKey> initialValue() {
+            return new LinkedHashSet<InventoryKey>();
+        }
+    };
+
+    /**
+     * Records a failed save or lock of an inventory record
+     * @param skuId
+     * @param fulfillmentLocationId
+     */
+    public void recordConflict(long skuId, long fulfillmentLocationId) {
+        if (!enabled) {
+            return;
+        }
+        InventoryKey key = new InventoryKey(skuId, fulfillmentLocationId);
+        long now = System.currentTimeMillis();
+        synchronized (sketch) {
+            track(key).recordConflict(now, halfLife);
+        }
+        Set<InventoryKey> keys = loopKeys.get();
+        if (keys.size() < MAX_KEYS_PER_LOOP) {
+            keys.add(key);
+        }
+    }
+
+    /**
+     * Marks the start of a retry loop on this thread
+     */
+    public void startRetryLoop() {
+        loopKeys.get().clear();
+    }
+
+    /**
+     * Records how many retries a retry loop needed against the keys that conflicted in it. When no conflict was
+     * reported for a specific record, the retries are recorded against each sku at {@link #UNKNOWN_LOCATION}.
+     * @param skuIds the skus the loop was modifying
+     * @param retries the number of attempts after the first
+     */
+    public void finishRetryLoop(Collection<Long> skuIds, int retries) {
+        Set<InventoryKey> keys = loopKeys.get();
+        if (!enabled || retries == 0) {
+            keys.clear();
+            return;
+        }
+        long now = System.currentTimeMillis();
+        synchronized (sketch) {
+            if (keys.isEmpty()) {
+                for (Long skuId : skuIds) {
+                    if (skuId != null) {
+                        InventoryContentionStatistics statistics = track(new InventoryKey(skuId, UNKNOWN_LOCATION));
+                        statistics.recordConflict(now, halfLife);
+                        statistics.recordRetries(retries);
+                    }
+                }
+            } else {
+                for (InventoryKey key : keys) {
+                    InventoryContentionStatistics statistics = sketch.get(key);
+                    if (statistics != null) {
+                        statistics.recordRetries(retries);
+                    }
+                }
+            }
+        }
+        keys.clear();
+    }
+
+    /**
+     * Must be called holding the lock on the sketch
+     */
+    protected InventoryContentionStatistics track(InventoryKey key) {
+        InventoryContentionStatistics statistics = sketch.get(key);
+        if (statistics != null) {
+            statistics.conflicts++;
+            return statistics;
+        }
+        if (sketch.size() < capacity) {
+            statistics = new InventoryContentionStatistics(key, 1, 0);
+        } else {
+            InventoryContentionStatistics min = null;
+            for (InventoryContentionStatistics candidate : sketch.values()) {
+                if (min == null || candidate.conflicts < min.conflicts) {
+                    min = candidate;
+                }
+            }
+            sketch.remove(min.key);
+            statistics = new InventoryContentionStatistics(key, min.conflicts + 1, min.conflicts);
+        }
+        sketch.put(key, statistics);
+        return statistics;
+    }
+
+    /**
+     * @param count
+     * @return copies of the statistics of up to the given number of keys, highest recent conflict rate first
+     */
+    public List<InventoryContentionStatistics> getHotKeys(int count) {
+        final long now = System.currentTimeMillis();
+        List<InventoryContentionStatistics> hotKeys = new ArrayList<InventoryContentionStatistics>();
+        synchronized (sketch) {
+            for (InventoryContentionStatistics statistics : sketch.values()) {
+                hotKeys.add(new InventoryContentionStatistics(statistics));
+            }
+        }
+        Collections.sort(hotKeys, new Comparator<InventoryContentionStatistics>() {
+            @Override
+            public int compare(InventoryContentionStatistics first, InventoryContentionStatistics second) {
+                return Double.compare(second.getConflictsPerSecond(now, halfLife), first.getConflictsPerSecond(now, halfLife));
+            }
+        });
+        return hotKeys.size() > count ? hotKeys.subList(0, count) : hotKeys;
+    }
+
+    /**
+     * @param skuId
+     * @param conflictsPerSecond
+     * @return whether any record of the sku is currently conflicting at least at the given rate
+     */
+    public boolean isHot(long skuId, double conflictsPerSecond) {
+        long now = System.currentTimeMillis();
+        synchronized (sketch) {
+            for (InventoryContentionStatistics statistics : sketch.values()) {
+                if (statistics.key.getSkuId() == skuId && statistics.getConflictsPerSecond(now, halfLife) >= conflictsPerSecond) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    @ManagedOperation(description = "The most contended sku@location keys, highest recent conflict rate first")
+    @ManagedOperationParameters({@ManagedOperationParameter(name = "count", description = "The number of keys to list")})
+    public String[] listHotKeys(int count) {
+        long now = System.currentTimeMillis();
+        List<String> summary = new ArrayList<String>();
+        for (InventoryContentionStatistics statistics : getHotKeys(count)) {
+            summary.add(statistics.toString(now, halfLife));
+        }
+        return summary.toArray(new String[summary.size()]);
+    }
+
+    @ManagedAttribute(description = "The ten most contended sku@location keys")
+    public String[] getTopHotKeys() {
+        return listHotKeys(10);
+    }
+
+    @ManagedAttribute(description = "Whether inventory conflicts are tracked")
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @ManagedAttribute(description = "Whether inventory conflicts are tracked")
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    @ManagedOperation(description = "Forgets every tracked key")
+    public void reset() {
+        synchronized (sketch) {
+            sketch.clear();
+        }
+    }
+
+    public void setCapacity(int capacity) {
+        this.capacity = capacity;
+    }
+
+    public void setHalfLife(long halfLife) {
+        this.halfLife = halfLife;
+    }
+
+}
@@ -0,0 +1,110 @@
+/**
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.broadleafcommerce.inventory.dao;
+
+import org.broadleafcommerce.inventory.cache.InventoryKey;
+
+/**
+ * What {@link InventoryContentionDetector} knows about one contended inventory record. The conflict count is the
+ * space-saving estimate, which may overstate the true count by at most {@link #getError()}. The conflict rate decays
+ * with the detector's half-life, so it reflects recent contention rather than the total since the key was tracked.
+ */
+public class InventoryContentionStatistics {
+
+    protected final InventoryKey key;
+    protected long conflicts;
+    protected long error;
+    protected double decayedConflicts;
+    protected long lastConflict;
+    protected long retryLoops;
+    protected long retries;
+
+    public InventoryContentionStatistics(InventoryKey key, long conflicts, long error) {
+        this.key = key;
+        this.conflicts = conflicts;
+        this.error = error;
+    }
+
+    protected InventoryContentionStatistics(InventoryContentionStatistics other) {
+        this.key = other.key;
+        this.conflicts = other.conflicts;
+        this.error = other.error;
+        this.decayedConflicts = other.decayedConflicts;
+        this.lastConflict = other.lastConflict;
+        this.retryLoops = other.retryLoops;
+        this.retries = other.retries;
+    }
+
+    protected void recordConflict(long now, long halfLife) {
+        decayedConflicts = decay(now, halfLife) + 1;
+        lastConflict = now;
+    }
+
+    protected void recordRetries(int count) {
+        retryLoops++;
+        retries += count;
+    }
+
+    protected double decay(long now, long halfLife) {
+        if (lastConflict == 0) {
+            return 0;
+        }
+        return decayedConflicts * Math.pow(0.5, (double) (now - lastConflict) / halfLife);
+    }
+
+    /**
+     * @param now
+     * @param halfLife in milliseconds
+     * @return the recent rate of conflicts per second
+     */
+    public double getConflictsPerSecond(long now, long halfLife) {
+        //the decayed count of a steady rate r settles at r * halfLife / ln 2
+        return decay(now, halfLife) * Math.log(2) / (halfLife / 1000d);
+    }
+
+    public InventoryKey getKey() {
+        return key;
+    }
+
+    public long getConflicts() {
+        return conflicts;
+    }
+
+    /**
+     * @return the most by which {@link #getConflicts()} may overstate the conflicts of this key
+     */
+    public long getError() {
+        return error;
+    }
+
+    /**
+     * @return the average number of retries of the retry loops that conflicted on this key
+     */
+    public double getAverageRetries() {
+        return retryLoops == 0 ? 0 : (double) retries / retryLoops;
+    }
+
+    public long getRetryLoops() {
+        return retryLoops;
+    }
+
+    public String toString(long now, long halfLife) {
+        return key + " conflictsPerSecond=" + String.format("%.2f", getConflictsPerSecond(now, halfLife)) + ", conflicts="
+                + conflicts + " (+/-" + error + "), averageRetries=" + String.format("%.2f", getAverageRetries())
+                + ", retryLoops=" + retryLoops;
+    }
+
+}
@@ -17,10 +17,12 @@
 package org.broadleafcommerce.inventory.dao;
 
 import org.broadleafcommerce.core.catalog.domain.Sku;
+import org.broadleafcommerce.inventory.cache.InventorySnapshotRecord;
 import org.broadleafcommerce.inventory.domain.FulfillmentLocation;
 import org.broadleafcommerce.inventory.domain.Inventory;
 import org.broadleafcommerce.inventory.exception.ConcurrentInventoryModificationException;
 
+import java.util.Collection;
 import java.util.List;
 
 public interface InventoryDao {
@@ -34,6 +36,15 @@ public interface InventoryDao {
      */
     public Inventory readForUpdateById(Long id) throws ConcurrentInventoryModificationException;
 
+    /**
+     * Same as {@link #readForUpdateById(Long)}, using the given lock mode
+     * @param id
+     * @param lockMode {@link InventoryLockMode#OPTIMISTIC} or {@link InventoryLockMode#PESSIMISTIC}
+     * @return
+     * @throws ConcurrentInventoryModificationException if the record could not be locked
+     */
+    public Inventory readForUpdateById(Long id, InventoryLockMode lockMode) throws ConcurrentInventoryModificationException;
+
     /**
      * Retrieves the {@link Inventory} for the given {@link Sku} and {@link FulfillmentLocation}
      * @param sku {@link Sku}
@@ -51,6 +62,16 @@ public interface InventoryDao {
      */
     public Inventory readInventoryForUpdate(Sku sku, FulfillmentLocation fulfillmentLocation) throws ConcurrentInventoryModificationException;
 
+    /**
+     * Same as {@link #readInventoryForUpdate(Sku, FulfillmentLocation)}, using the given lock mode
+     * @param sku
+     * @param fulfillmentLocation
+     * @param lockMode {@link InventoryLockMode#OPTIMISTIC} or {@link InventoryLockMode#PESSIMISTIC}
+     * @return
+     * @throws ConcurrentInventoryModificationException if the record could not be locked
+     */
+    public Inventory readInventoryForUpdate(Sku sku, FulfillmentLocation fulfillmentLocation, InventoryLockMode lockMode) throws ConcurrentInventoryModificationException;
+
     /**
      * Retrieves the {@link Inventory} for the given {@link Sku}
      *
@@ -67,6 +88,15 @@ public interface InventoryDao {
      */
     public Inventory readInventoryForUpdateForDefaultFulfillmentLocation(Sku sku) throws ConcurrentInventoryModificationException;
 
+    /**
+     * Same as {@link #readInventoryForUpdateForDefaultFulfillmentLocation(Sku)}, using the given lock mode
+     * @param sku
+     * @param lockMode {@link InventoryLockMode#OPTIMISTIC} or {@link InventoryLockMode#PESSIMISTIC}
+     * @return
+     * @throws ConcurrentInventoryModificationException if the record could not be locked
+     */
+    public Inventory readInventoryForUpdateForDefaultFulfillmentLocation(Sku sku, InventoryLockMode lockMode) throws ConcurrentInventoryModificationException;
+
     /**
      * Persists the {@link Inventory}
      * @param inventory {@link Inventory}
@@ -74,12 +104,71 @@ public interface InventoryDao {
      */
     public Inventory save(Inventory inventory) throws ConcurrentInventoryModificationException;
 
+    /**
+     * Adds the changes to the quantities of the {@link Inventory} with the given id using a single relative update
+     * in the database. The update is guarded so that neither quantity can become negative, and it does not read or
+     * compare the version of the record, so it never conflicts with concurrent checkouts.
+     * @param inventoryId
+     * @param quantityAvailableChange the amount to add to the quantity available; may be negative
+     * @param quantityOnHandChange the amount to add to the quantity on hand; may be negative
+     * @return the {@link Inventory} with its post-update quantities, or null if the record does not exist or
+     * either quantity would have become negative
+     */
+    public Inventory adjustQuantities(Long inventoryId, int quantityAvailableChange, int quantityOnHandChange);
+
+    /**
+     * Same as {@link #adjustQuantities(Long, int, int)}, but identifies the {@link Inventory} by its sku and
+     * fulfillment location
+     * @param skuId
+     * @param fulfillmentLocationId
+     * @param quantityAvailableChange
+     * @param quantityOnHandChange
+     * @return the {@link Inventory} with its post-update quantities, or null if nothing was updated
+     */
+    public Inventory adjustQuantitiesForSkuAndLocation(Long skuId, Long fulfillmentLocationId, int quantityAvailableChange, int quantityOnHandChange);
+
+    /**
+     * Retrieves the {@link Inventory} for the given sku id and fulfillment location id
+     * @param skuId
+     * @param fulfillmentLocationId
+     * @return {@link Inventory}
+     */
+    public Inventory readInventory(Long skuId, Long fulfillmentLocationId);
+
     /**
      * Deletes the {@link Inventory}
       * @param inventory
      */
     public void delete(Inventory inventory);
 
+    /**
+     * Persists new inventory records in one flush. Records whose ids were assigned from a reserved range keep them.
+     * @param inventories
+     */
+    public void createAll(List<Inventory> inventories);
+
+    /**
+     * Retrieves, in a single query, the {@link Inventory} for every combination of the given sku ids and
+     * fulfillment location ids that has an inventory record
+     * @param skuIds
+     * @param fulfillmentLocationIds
+     * @return list of {@link Inventory}
+     */
+    public List<Inventory> readInventoryForSkusAndLocations(Collection<Long> skuIds, Collection<Long> fulfillmentLocationIds);
+
+    /**
+     * Same as {@link #readInventoryForSkusAndLocations(Collection, Collection)}, but locks the records for the rest
+     * of the transaction. With {@link InventoryLockMode#PESSIMISTIC_SKIP_LOCKED}, records locked by another
+     * transaction are left out, so concurrent batch consumers each get a disjoint set of records.
+     * @param skuIds
+     * @param fulfillmentLocationIds
+     * @param lockMode
+     * @return list of locked {@link Inventory}
+     * @throws ConcurrentInventoryModificationException if the records could not be locked
+     * @throws UnsupportedOperationException if skip locked was requested on a database that does not support it
+     */
+    public List<Inventory> readInventoryForUpdateForSkusAndLocations(Collection<Long> skuIds, Collection<Long> fulfillmentLocationIds, InventoryLockMode lockMode) throws ConcurrentInventoryModificationException;
+
     /**
      * Retrieves all instances of Inventory for this fulfillmentLocation
      *
@@ -88,6 +177,60 @@ public interface InventoryDao {
      */
     public List<Inventory> readInventoryForFulfillmentLocation(FulfillmentLocation fulfillmentLocation);
 
+    /**
+     * Retrieves a page of flat inventory records, ordered by sku id and then fulfillment location id, without
+     * hydrating entities. Pass the ids of the last record of the previous page to read the next one; the first page
+     * starts after sku id and fulfillment location id 0.
+     * @param afterSkuId
+     * @param afterFulfillmentLocationId
+     * @param maxResults
+     * @return list of {@link InventorySnapshotRecord}
+     */
+    public List<InventorySnapshotRecord> readInventorySnapshotRecords(Long afterSkuId, Long afterFulfillmentLocationId, int maxResults);
+
+    /**
+     * Reads the next page of inventory records, ordered by sku id and then fulfillment location id, for skus whose id
+     * is below the bound. Used to scan the inventory in independent sku id ranges.
+     * @param afterSkuId the sku id of the last record of the previous page
+     * @param afterFulfillmentLocationId the fulfillment location id of the last record of the previous page
+     * @param maxSkuId the sku id, exclusive, that ends the range
+     * @param maxResults
+     * @return the records, without loading the inventory entities
+     */
+    public List<InventorySnapshotRecord> readInventoryRecordsInSkuRange(Long afterSkuId, Long afterFulfillmentLocationId, Long maxSkuId, int maxResults);
+
+    /**
+     * Reads the next page of inventory records at a fulfillment location, ordered by sku id
+     * @param fulfillmentLocationId
+     * @param afterSkuId the sku id of the last record of the previous page
+     * @param maxResults
+     * @return the records, without loading the inventory entities
+     */
+    public List<InventorySnapshotRecord> readInventoryRecordsForFulfillmentLocation(Long fulfillmentLocationId, Long afterSkuId, int maxResults);
+
+    /**
+     * @return the lowest and highest sku id that have inventory, or null if there is no inventory
+     */
+    public long[] readInventorySkuIdBounds();
+
+    /**
+     * Lowers the quantity available of a record to its quantity on hand, provided the record is still at the given
+     * version and its quantity available is still the greater of the two
+     * @param skuId
+     * @param fulfillmentLocationId
+     * @param version
+     * @return whether the record was changed
+     */
+    public boolean clampQuantityAvailableToOnHand(Long skuId, Long fulfillmentLocationId, Long version);
+
+    /**
+     * Reads the quantities of a record as they are in the database, without flushing changes made to it in the
+     * current persistence context
+     * @param inventoryId
+     * @return the record, or null if it does not exist
+     */
+    public InventorySnapshotRecord readInventoryRecord(Long inventoryId);
+
     /**
      * Retrieves skus that do not have inventory records at a particular fulfillment location
      * @param fulfillmentLocation
@@ -95,4 +238,11 @@ public interface InventoryDao {
      */
     public List<Sku> readSkusNotAtFulfillmentLocation(FulfillmentLocation fulfillmentLocation);
 
+    /**
+     * Retrieves the skus with the given ids, in no particular order
+     * @param skuIds
+     * @return
+     */
+    public List<Sku> readSkus(Collection<Long> skuIds);
+
 }
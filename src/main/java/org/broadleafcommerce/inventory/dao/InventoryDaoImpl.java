@@ -17,18 +17,34 @@ package org.broadleafcommerce.inventory.dao;
 
 import org.apache.commons.collections.CollectionUtils;
 import org.broadleafcommerce.core.catalog.domain.Sku;
+import org.broadleafcommerce.inventory.cache.InventoryInvalidationBus;
+import org.broadleafcommerce.inventory.cache.InventoryKey;
+import org.broadleafcommerce.inventory.cache.InventorySnapshotRecord;
 import org.broadleafcommerce.inventory.domain.FulfillmentLocation;
+import org.broadleafcommerce.inventory.domain.FulfillmentLocationImpl;
 import org.broadleafcommerce.inventory.domain.Inventory;
 import org.broadleafcommerce.inventory.exception.ConcurrentInventoryModificationException;
+import org.broadleafcommerce.inventory.util.InventoryFlightEvent;
+import org.broadleafcommerce.inventory.util.InventoryFlightRecorder;
+import org.broadleafcommerce.inventory.util.trace.InventorySpan;
+import org.broadleafcommerce.inventory.util.trace.InventoryTracer;
 import org.springframework.stereotype.Repository;
 
+import javax.annotation.Resource;
 import javax.persistence.EntityManager;
+import javax.persistence.FlushModeType;
 import javax.persistence.LockModeType;
+import javax.persistence.LockTimeoutException;
 import javax.persistence.OptimisticLockException;
 import javax.persistence.PersistenceContext;
+import javax.persistence.PessimisticLockException;
 import javax.persistence.Query;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 
 @Repository("blInventoryDao")
 public class InventoryDaoImpl implements InventoryDao {
@@ -36,79 +52,193 @@ public class InventoryDaoImpl implements InventoryDao {
     @PersistenceContext(unitName="blPU")
     protected EntityManager em;
 
+    @Resource(name = "blInventoryQueryProfiler")
+    protected InventoryQueryProfiler queryProfiler;
+
+    @Resource(name = "blInventoryInvalidationBus")
+    protected InventoryInvalidationBus inventoryInvalidationBus;
+
+    @Resource(name = "blInventoryContentionDetector")
+    protected InventoryContentionDetector contentionDetector;
+
+    @Resource(name = "blInventoryFlightRecorder")
+    protected InventoryFlightRecorder flightRecorder;
+
+    @Resource(name = "blInventoryTracer")
+    protected InventoryTracer tracer;
+
+    protected static final String LOCK_TIMEOUT_HINT = "javax.persistence.lock.timeout";
+
+    /**
+     * Locks the rows that are not already locked and returns their ids. The lock timeout hint cannot express this,
+     * the provider passes it on as an ordinary wait, so skip locked is always issued as native SQL.
+     */
+    protected static final String SKIP_LOCKED_SQL = "SELECT INVENTORY_ID FROM BLC_INVENTORY " +
+            "WHERE SKU_ID IN (:skuIds) AND FULFILLMENT_LOCATION_ID IN (:fulfillmentLocationIds) FOR UPDATE SKIP LOCKED";
+
+    protected static final String DIALECT_PROPERTY = "hibernate.dialect";
+
+    /**
+     * How long, in milliseconds, a pessimistic lock is waited for before giving up
+     */
+    protected int lockTimeout = 3000;
+
+    /**
+     * Whether the database accepts {@link #SKIP_LOCKED_SQL}. When not set, it is assumed for PostgreSQL and Oracle
+     * dialects; set it to true for other databases that support <code>FOR UPDATE SKIP LOCKED</code>, such as MySQL 8.
+     */
+    protected Boolean skipLockedSupported;
+
     @Override
     public Inventory save(Inventory inventory) throws ConcurrentInventoryModificationException {
+        InventoryFlightEvent event = flightRecorder.begin(InventoryFlightRecorder.SAVE);
+        InventorySpan span = tracer.startSpan(InventoryTracer.SAVE);
+        String outcome = InventoryFlightEvent.FAILURE;
         try {
+            //merging cascades to the location, which must not write a cached copy back over the row
+            attachFulfillmentLocation(inventory);
             inventory = em.merge(inventory);
             
             //This should cause an OptimisticLockException immediately if someone has 
             //already modified this object, rather than waiting for the transaction to complete.
-            em.flush();
+            queryProfiler.flush("InventoryDao.save", em);
+
+            //Other nodes are told about this change once the surrounding transaction commits
+            inventoryInvalidationBus.keyChanged(inventory);
+            outcome = InventoryFlightEvent.SUCCESS;
             return inventory;
         } catch (OptimisticLockException ex) {
+            outcome = InventoryFlightEvent.CONFLICT;
+            recordConflict(inventory);
             throw new ConcurrentInventoryModificationException("Error saving inventory with id: " + inventory.getId());
+        } finally {
+            event.end(1, getFulfillmentLocationId(inventory), 0, outcome);
+            span.end(1, getFulfillmentLocationId(inventory), 0, outcome);
         }
     }
 
-    @SuppressWarnings("unchecked")
     @Override
     public Inventory readInventory(Sku sku, FulfillmentLocation fulfillmentLocation) {
-        Query query = em.createNamedQuery("BC_READ_SKU_INVENTORY_FOR_LOCATION");
-        query.setParameter("skuId", sku.getId());
-        query.setParameter("fulfillmentLocationId", fulfillmentLocation.getId());
+        return readInventory(sku.getId(), fulfillmentLocation.getId());
+    }
 
-        List<Inventory> inventories = query.getResultList();
-        if (CollectionUtils.isNotEmpty(inventories)) {
-            return inventories.get(0);
-        }
+    @SuppressWarnings("unchecked")
+    @Override
+    public Inventory readInventory(Long skuId, Long fulfillmentLocationId) {
+        InventoryFlightEvent event = flightRecorder.begin(InventoryFlightRecorder.READ);
+        InventorySpan span = tracer.startSpan(InventoryTracer.READ);
+        Inventory inventory = null;
+        try {
+            Query query = em.createNamedQuery("BC_READ_SKU_INVENTORY_FOR_LOCATION");
+            query.setParameter("skuId", skuId);
+            query.setParameter("fulfillmentLocationId", fulfillmentLocationId);
+
+            List<Inventory> inventories = queryProfiler.getResultList("BC_READ_SKU_INVENTORY_FOR_LOCATION", query);
+            if (CollectionUtils.isNotEmpty(inventories)) {
+                inventory = inventories.get(0);
+            }
 
-        return null;
+            return inventory;
+        } finally {
+            String outcome = inventory != null ? InventoryFlightEvent.FOUND : InventoryFlightEvent.NOT_FOUND;
+            event.end(1, fulfillmentLocationId, 0, outcome);
+            span.end(1, fulfillmentLocationId, 0, outcome);
+        }
     }
     
     @Override
     public Inventory readInventoryForUpdate(Sku sku, FulfillmentLocation fulfillmentLocation) throws ConcurrentInventoryModificationException {
-        Inventory inventory = readInventory(sku, fulfillmentLocation);
-        if (inventory != null) {
-            try {
-                em.refresh(inventory, LockModeType.OPTIMISTIC_FORCE_INCREMENT);
-                em.flush();
-            } catch (OptimisticLockException ex) {
-                throw new ConcurrentInventoryModificationException("Error locking inventory object with id: " + inventory.getId());
-            }
-        } 
-        return inventory;
+        return readInventoryForUpdate(sku, fulfillmentLocation, InventoryLockMode.OPTIMISTIC);
+    }
+
+    @Override
+    public Inventory readInventoryForUpdate(Sku sku, FulfillmentLocation fulfillmentLocation, InventoryLockMode lockMode) throws ConcurrentInventoryModificationException {
+        return lock(readInventory(sku, fulfillmentLocation), lockMode);
     }
 
     @SuppressWarnings("unchecked")
     @Override
     public Inventory readInventoryForDefaultFulfillmentLocation(Sku sku) {
-        Query query = em.createNamedQuery("BC_READ_SKU_INVENTORY_FOR_DEFAULT_LOCATION");
-        query.setParameter("skuId", sku.getId());
-        query.setMaxResults(1);
-        List<Inventory> inventories = query.getResultList();
-        if (CollectionUtils.isNotEmpty(inventories)) {
-            return inventories.get(0);
+        InventoryFlightEvent event = flightRecorder.begin(InventoryFlightRecorder.READ);
+        InventorySpan span = tracer.startSpan(InventoryTracer.READ);
+        Inventory inventory = null;
+        try {
+            Query query = em.createNamedQuery("BC_READ_SKU_INVENTORY_FOR_DEFAULT_LOCATION");
+            query.setParameter("skuId", sku.getId());
+            query.setMaxResults(1);
+            List<Inventory> inventories = queryProfiler.getResultList("BC_READ_SKU_INVENTORY_FOR_DEFAULT_LOCATION", query);
+            if (CollectionUtils.isNotEmpty(inventories)) {
+                inventory = inventories.get(0);
+            }
+            return inventory;
+        } finally {
+            String outcome = inventory != null ? InventoryFlightEvent.FOUND : InventoryFlightEvent.NOT_FOUND;
+            event.end(1, getFulfillmentLocationId(inventory), 0, outcome);
+            span.end(1, getFulfillmentLocationId(inventory), 0, outcome);
         }
-        return null;
     }
     
     @Override
     public Inventory readInventoryForUpdateForDefaultFulfillmentLocation(Sku sku) throws ConcurrentInventoryModificationException {
-        Inventory inventory = readInventoryForDefaultFulfillmentLocation(sku);
-        if (inventory != null) {
-            try {
-                em.refresh(inventory, LockModeType.OPTIMISTIC_FORCE_INCREMENT);
-                em.flush();
-            } catch (OptimisticLockException ex) {
-                throw new ConcurrentInventoryModificationException("Error locking inventory object with id: " + inventory.getId());
-            }
+        return readInventoryForUpdateForDefaultFulfillmentLocation(sku, InventoryLockMode.OPTIMISTIC);
+    }
+
+    @Override
+    public Inventory readInventoryForUpdateForDefaultFulfillmentLocation(Sku sku, InventoryLockMode lockMode) throws ConcurrentInventoryModificationException {
+        return lock(readInventoryForDefaultFulfillmentLocation(sku), lockMode);
+    }
+
+    @Override
+    public Inventory adjustQuantities(Long inventoryId, int quantityAvailableChange, int quantityOnHandChange) {
+        Query query = em.createNamedQuery("BC_ADJUST_INVENTORY_QUANTITIES");
+        query.setParameter("inventoryId", inventoryId);
+        query.setParameter("quantityAvailableChange", quantityAvailableChange);
+        query.setParameter("quantityOnHandChange", quantityOnHandChange);
+        if (queryProfiler.executeUpdate("BC_ADJUST_INVENTORY_QUANTITIES", query) == 0) {
+            return null;
+        }
+        return refreshAdjusted(readById(inventoryId));
+    }
+
+    @Override
+    public Inventory adjustQuantitiesForSkuAndLocation(Long skuId, Long fulfillmentLocationId, int quantityAvailableChange, int quantityOnHandChange) {
+        Query query = em.createNamedQuery("BC_ADJUST_SKU_INVENTORY_QUANTITIES_FOR_LOCATION");
+        query.setParameter("skuId", skuId);
+        query.setParameter("fulfillmentLocationId", fulfillmentLocationId);
+        query.setParameter("quantityAvailableChange", quantityAvailableChange);
+        query.setParameter("quantityOnHandChange", quantityOnHandChange);
+        if (queryProfiler.executeUpdate("BC_ADJUST_SKU_INVENTORY_QUANTITIES_FOR_LOCATION", query) == 0) {
+            return null;
         }
+        return refreshAdjusted(readInventory(skuId, fulfillmentLocationId));
+    }
+
+    /**
+     * Bulk updates bypass the persistence context, so an instance that was already loaded in this transaction has to
+     * be refreshed to see the post-update quantities and version.
+     */
+    protected Inventory refreshAdjusted(Inventory inventory) {
+        em.refresh(inventory);
+        inventoryInvalidationBus.keyChanged(inventory);
         return inventory;
     }
 
     @Override
     public void delete(Inventory inventory) {
         em.remove(inventory);
+        inventoryInvalidationBus.keyChanged(inventory);
+    }
+
+    @Override
+    public void createAll(List<Inventory> inventories) {
+        for (Inventory inventory : inventories) {
+            attachFulfillmentLocation(inventory);
+            em.persist(inventory);
+        }
+        queryProfiler.flush("InventoryDao.createAll", em);
+        for (Inventory inventory : inventories) {
+            inventoryInvalidationBus.keyChanged(inventory);
+        }
     }
 
     @Override
@@ -118,24 +248,258 @@ public class InventoryDaoImpl implements InventoryDao {
     
     @Override
     public Inventory readForUpdateById(Long id) throws ConcurrentInventoryModificationException {
-        Inventory inventory = readById(id);
-        if (inventory != null) {
-            try {
-                em.refresh(inventory, LockModeType.OPTIMISTIC_FORCE_INCREMENT);
-                em.flush();
-            } catch (OptimisticLockException ex) {
-                throw new ConcurrentInventoryModificationException("Error locking inventory object with id: " + inventory.getId());
+        return readForUpdateById(id, InventoryLockMode.OPTIMISTIC);
+    }
+
+    @Override
+    public Inventory readForUpdateById(Long id, InventoryLockMode lockMode) throws ConcurrentInventoryModificationException {
+        return lock(readById(id), lockMode);
+    }
+
+    /**
+     * Refreshes the inventory under the lock mode. The refresh re-reads the row, so the locked instance always has
+     * the current quantities even if it was loaded earlier in the transaction.
+     */
+    protected Inventory lock(Inventory inventory, InventoryLockMode lockMode) throws ConcurrentInventoryModificationException {
+        if (inventory == null) {
+            return null;
+        }
+        InventoryFlightEvent event = flightRecorder.begin(InventoryFlightRecorder.LOCKED_READ);
+        InventorySpan span = tracer.startSpan(InventoryTracer.LOCKED_READ);
+        String outcome = InventoryFlightEvent.CONFLICT;
+        try {
+            switch (lockMode) {
+                case OPTIMISTIC:
+                    em.refresh(inventory, LockModeType.OPTIMISTIC_FORCE_INCREMENT);
+                    queryProfiler.flush("InventoryDao.lock", em);
+                    break;
+                case PESSIMISTIC:
+                    em.refresh(inventory, LockModeType.PESSIMISTIC_WRITE, getLockHints(lockMode));
+                    break;
+                default:
+                    throw new IllegalArgumentException("Skip locked can only be used when locking batches of inventory");
             }
+            outcome = InventoryFlightEvent.SUCCESS;
+        } catch (OptimisticLockException ex) {
+            recordConflict(inventory);
+            throw new ConcurrentInventoryModificationException("Error locking inventory object with id: " + inventory.getId());
+        } catch (PessimisticLockException ex) {
+            recordConflict(inventory);
+            throw new ConcurrentInventoryModificationException("Error locking inventory object with id: " + inventory.getId(), ex);
+        } catch (LockTimeoutException ex) {
+            recordConflict(inventory);
+            throw new ConcurrentInventoryModificationException("Timed out locking inventory object with id: " + inventory.getId(), ex);
+        } finally {
+            event.end(1, getFulfillmentLocationId(inventory), 0, outcome);
+            span.end(1, getFulfillmentLocationId(inventory), 0, outcome);
         }
         return inventory;
     }
 
+    /**
+     * Replaces a fulfillment location that is not managed by the current persistence context, such as one handed out
+     * by the {@link org.broadleafcommerce.inventory.cache.FulfillmentLocationRegistry}, with a reference to the same
+     * row. The association cascades, so persisting or merging the inventory would otherwise persist or merge the
+     * detached location along with it.
+     * @param inventory
+     */
+    protected void attachFulfillmentLocation(Inventory inventory) {
+        FulfillmentLocation fulfillmentLocation = inventory.getFulfillmentLocation();
+        if (fulfillmentLocation != null && fulfillmentLocation.getId() != null && !em.contains(fulfillmentLocation)) {
+            inventory.setFulfillmentLocation(em.getReference(FulfillmentLocationImpl.class, fulfillmentLocation.getId()));
+        }
+    }
+
+    protected Long getFulfillmentLocationId(Inventory inventory) {
+        return inventory == null || inventory.getFulfillmentLocation() == null ? null : inventory.getFulfillmentLocation().getId();
+    }
+
+    protected void recordConflict(Inventory inventory) {
+        if (inventory.getSku() != null && inventory.getFulfillmentLocation() != null) {
+            contentionDetector.recordConflict(inventory.getSku().getId(), inventory.getFulfillmentLocation().getId());
+        }
+    }
+
+    /**
+     * A batch lock does not say which record conflicted, so each sku is recorded against the location when only one
+     * was locked
+     */
+    protected void recordConflicts(Collection<Long> skuIds, Collection<Long> fulfillmentLocationIds) {
+        long fulfillmentLocationId = fulfillmentLocationIds.size() == 1 ? fulfillmentLocationIds.iterator().next()
+                : InventoryContentionDetector.UNKNOWN_LOCATION;
+        for (Long skuId : skuIds) {
+            contentionDetector.recordConflict(skuId, fulfillmentLocationId);
+        }
+    }
+
+    protected Map<String, Object> getLockHints(InventoryLockMode lockMode) {
+        return Collections.<String, Object>singletonMap(LOCK_TIMEOUT_HINT, lockTimeout);
+    }
+
+    protected boolean isSkipLockedSupported() {
+        if (skipLockedSupported == null) {
+            Object dialect = em.getEntityManagerFactory().getProperties().get(DIALECT_PROPERTY);
+            String name = dialect == null ? "" : dialect.toString();
+            skipLockedSupported = name.contains("PostgreSQL") || name.contains("Oracle");
+        }
+        return skipLockedSupported;
+    }
+
+    /**
+     * Locks the rows with {@link #SKIP_LOCKED_SQL} and then reads the locked records
+     */
+    @SuppressWarnings("unchecked")
+    protected List<Inventory> readInventorySkippingLocked(Collection<Long> skuIds, Collection<Long> fulfillmentLocationIds) {
+        if (!isSkipLockedSupported()) {
+            throw new UnsupportedOperationException("The database dialect does not support skipping locked rows. " +
+                    "Use PESSIMISTIC instead, or set skipLockedSupported on blInventoryDao if the database accepts FOR UPDATE SKIP LOCKED");
+        }
+        Query lock = em.createNativeQuery(SKIP_LOCKED_SQL);
+        lock.setParameter("skuIds", skuIds);
+        lock.setParameter("fulfillmentLocationIds", fulfillmentLocationIds);
+        List<Long> inventoryIds = new ArrayList<Long>();
+        for (Object id : queryProfiler.getResultList("BC_LOCK_INVENTORY_SKIP_LOCKED", lock)) {
+            inventoryIds.add(((Number) id).longValue());
+        }
+        if (inventoryIds.isEmpty()) {
+            return new ArrayList<Inventory>();
+        }
+        Query query = em.createNamedQuery("BC_READ_INVENTORY_BY_IDS");
+        query.setParameter("inventoryIds", inventoryIds);
+        return queryProfiler.getResultList("BC_READ_INVENTORY_BY_IDS", query);
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public List<Inventory> readInventoryForSkusAndLocations(Collection<Long> skuIds, Collection<Long> fulfillmentLocationIds) {
+        if (CollectionUtils.isEmpty(skuIds) || CollectionUtils.isEmpty(fulfillmentLocationIds)) {
+            return new ArrayList<Inventory>();
+        }
+        Query query = em.createNamedQuery("BC_READ_SKUS_INVENTORY_FOR_LOCATIONS");
+        query.setParameter("skuIds", skuIds);
+        query.setParameter("fulfillmentLocationIds", fulfillmentLocationIds);
+        return queryProfiler.getResultList("BC_READ_SKUS_INVENTORY_FOR_LOCATIONS", query);
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public List<Inventory> readInventoryForUpdateForSkusAndLocations(Collection<Long> skuIds, Collection<Long> fulfillmentLocationIds, InventoryLockMode lockMode) throws ConcurrentInventoryModificationException {
+        if (CollectionUtils.isEmpty(skuIds) || CollectionUtils.isEmpty(fulfillmentLocationIds)) {
+            return new ArrayList<Inventory>();
+        }
+        InventoryFlightEvent event = flightRecorder.begin(InventoryFlightRecorder.LOCKED_READ);
+        InventorySpan span = tracer.startSpan(InventoryTracer.LOCKED_READ);
+        String outcome = InventoryFlightEvent.CONFLICT;
+        try {
+            if (lockMode == InventoryLockMode.PESSIMISTIC_SKIP_LOCKED) {
+                List<Inventory> inventories = readInventorySkippingLocked(skuIds, fulfillmentLocationIds);
+                outcome = InventoryFlightEvent.SUCCESS;
+                return inventories;
+            }
+            Query query = em.createNamedQuery("BC_READ_SKUS_INVENTORY_FOR_LOCATIONS");
+            query.setParameter("skuIds", skuIds);
+            query.setParameter("fulfillmentLocationIds", fulfillmentLocationIds);
+            if (lockMode == InventoryLockMode.OPTIMISTIC) {
+                query.setLockMode(LockModeType.OPTIMISTIC_FORCE_INCREMENT);
+            } else {
+                query.setLockMode(LockModeType.PESSIMISTIC_WRITE);
+                for (Map.Entry<String, Object> hint : getLockHints(lockMode).entrySet()) {
+                    query.setHint(hint.getKey(), hint.getValue());
+                }
+            }
+            List<Inventory> inventories = queryProfiler.getResultList("BC_READ_SKUS_INVENTORY_FOR_LOCATIONS for update", query);
+            if (lockMode == InventoryLockMode.OPTIMISTIC) {
+                queryProfiler.flush("InventoryDao.readInventoryForUpdateForSkusAndLocations", em);
+            }
+            outcome = InventoryFlightEvent.SUCCESS;
+            return inventories;
+        } catch (OptimisticLockException ex) {
+            recordConflicts(skuIds, fulfillmentLocationIds);
+            throw new ConcurrentInventoryModificationException("Error locking inventory for skus " + skuIds);
+        } catch (PessimisticLockException ex) {
+            recordConflicts(skuIds, fulfillmentLocationIds);
+            throw new ConcurrentInventoryModificationException("Error locking inventory for skus " + skuIds, ex);
+        } catch (LockTimeoutException ex) {
+            recordConflicts(skuIds, fulfillmentLocationIds);
+            throw new ConcurrentInventoryModificationException("Timed out locking inventory for skus " + skuIds, ex);
+        } finally {
+            Long fulfillmentLocationId = fulfillmentLocationIds.size() == 1 ? fulfillmentLocationIds.iterator().next() : null;
+            event.end(skuIds.size(), fulfillmentLocationId, 0, outcome);
+            span.end(skuIds.size(), fulfillmentLocationId, 0, outcome);
+        }
+    }
+
     @SuppressWarnings("unchecked")
     @Override
     public List<Inventory> readInventoryForFulfillmentLocation(FulfillmentLocation fulfillmentLocation) {
        Query query = em.createNamedQuery("BC_READ_INVENTORY_FOR_FULFILLMENT_LOCATION");
        query.setParameter("fulfillmentLocationId", fulfillmentLocation.getId());
-       return query.getResultList();
+       return queryProfiler.getResultList("BC_READ_INVENTORY_FOR_FULFILLMENT_LOCATION", query);
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public List<InventorySnapshotRecord> readInventorySnapshotRecords(Long afterSkuId, Long afterFulfillmentLocationId, int maxResults) {
+        Query query = em.createNamedQuery("BC_READ_INVENTORY_SNAPSHOT_RECORDS");
+        query.setParameter("skuId", afterSkuId);
+        query.setParameter("fulfillmentLocationId", afterFulfillmentLocationId);
+        query.setMaxResults(maxResults);
+        return queryProfiler.getResultList("BC_READ_INVENTORY_SNAPSHOT_RECORDS", query);
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public List<InventorySnapshotRecord> readInventoryRecordsInSkuRange(Long afterSkuId, Long afterFulfillmentLocationId, Long maxSkuId, int maxResults) {
+        Query query = em.createNamedQuery("BC_READ_INVENTORY_RECORDS_IN_SKU_RANGE");
+        query.setParameter("skuId", afterSkuId);
+        query.setParameter("fulfillmentLocationId", afterFulfillmentLocationId);
+        query.setParameter("maxSkuId", maxSkuId);
+        query.setMaxResults(maxResults);
+        return queryProfiler.getResultList("BC_READ_INVENTORY_RECORDS_IN_SKU_RANGE", query);
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public List<InventorySnapshotRecord> readInventoryRecordsForFulfillmentLocation(Long fulfillmentLocationId, Long afterSkuId, int maxResults) {
+        Query query = em.createNamedQuery("BC_READ_INVENTORY_RECORDS_FOR_LOCATION");
+        query.setParameter("fulfillmentLocationId", fulfillmentLocationId);
+        query.setParameter("skuId", afterSkuId);
+        query.setMaxResults(maxResults);
+        return queryProfiler.getResultList("BC_READ_INVENTORY_RECORDS_FOR_LOCATION", query);
+    }
+
+    @Override
+    public long[] readInventorySkuIdBounds() {
+        Query query = em.createNamedQuery("BC_READ_INVENTORY_SKU_ID_BOUNDS");
+        Object[] bounds = (Object[]) queryProfiler.getResultList("BC_READ_INVENTORY_SKU_ID_BOUNDS", query).get(0);
+        if (bounds[0] == null) {
+            return null;
+        }
+        return new long[] {((Number) bounds[0]).longValue(), ((Number) bounds[1]).longValue()};
+    }
+
+    @Override
+    public boolean clampQuantityAvailableToOnHand(Long skuId, Long fulfillmentLocationId, Long version) {
+        Query query = em.createNamedQuery("BC_CLAMP_INVENTORY_QUANTITY_AVAILABLE_TO_ON_HAND");
+        query.setParameter("skuId", skuId);
+        query.setParameter("fulfillmentLocationId", fulfillmentLocationId);
+        query.setParameter("version", version);
+        if (queryProfiler.executeUpdate("BC_CLAMP_INVENTORY_QUANTITY_AVAILABLE_TO_ON_HAND", query) == 0) {
+            return false;
+        }
+        inventoryInvalidationBus.keyChanged(new InventoryKey(skuId, fulfillmentLocationId));
+        return true;
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public InventorySnapshotRecord readInventoryRecord(Long inventoryId) {
+        Query query = em.createNamedQuery("BC_READ_INVENTORY_RECORD_BY_ID");
+        query.setParameter("inventoryId", inventoryId);
+        //the pending changes are what the caller wants to compare against
+        query.setFlushMode(FlushModeType.COMMIT);
+        List<InventorySnapshotRecord> records = queryProfiler.getResultList("BC_READ_INVENTORY_RECORD_BY_ID", query);
+        return records.isEmpty() ? null : records.get(0);
     }
 
     @SuppressWarnings("unchecked")
@@ -143,6 +507,26 @@ public class InventoryDaoImpl implements InventoryDao {
     public List<Sku> readSkusNotAtFulfillmentLocation(FulfillmentLocation fulfillmentLocation) {
         Query query = em.createNamedQuery("BC_READ_SKUS_NOT_AT_FULFILLMENT_LOCATION");
         query.setParameter("fulfillmentLocationId", fulfillmentLocation.getId());
-        return query.getResultList();
+        return queryProfiler.getResultList("BC_READ_SKUS_NOT_AT_FULFILLMENT_LOCATION", query);
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public List<Sku> readSkus(Collection<Long> skuIds) {
+        if (CollectionUtils.isEmpty(skuIds)) {
+            return new ArrayList<Sku>();
+        }
+        Query query = em.createNamedQuery("BC_READ_SKUS_BY_ID");
+        query.setParameter("skuIds", skuIds);
+        return queryProfiler.getResultList("BC_READ_SKUS_BY_ID", query);
+    }
+
+    public void setLockTimeout(int lockTimeout) {
+        this.lockTimeout = lockTimeout;
+    }
+
+    public void setSkipLockedSupported(Boolean skipLockedSupported) {
+        this.skipLockedSupported = skipLockedSupported;
     }
+
 }
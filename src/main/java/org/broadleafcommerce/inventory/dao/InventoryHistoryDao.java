@@ -0,0 +1,52 @@
+/**
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.broadleafcommerce.inventory.dao;
+
+import org.broadleafcommerce.inventory.domain.InventoryHistory;
+
+import java.util.List;
+
+public interface InventoryHistoryDao {
+
+    /**
+     * Inserts the history in JDBC batches, bypassing the persistence context. Every entry must already have an id.
+     * @param history
+     */
+    public void insertAll(List<InventoryHistory> history);
+
+    /**
+     * Reads the most recent history of a sku at a fulfillment location, newest first
+     * @param skuId
+     * @param fulfillmentLocationId
+     * @param maxResults
+     * @return the history
+     */
+    public List<InventoryHistory> readHistory(Long skuId, Long fulfillmentLocationId, int maxResults);
+
+    /**
+     * @return the partition key of the oldest history held, or null if there is none
+     */
+    public Integer readOldestPartitionKey();
+
+    /**
+     * Deletes up to the given number of entries from a partition
+     * @param partitionKey
+     * @param maxResults
+     * @return the number of entries deleted
+     */
+    public int deletePartition(int partitionKey, int maxResults);
+
+}
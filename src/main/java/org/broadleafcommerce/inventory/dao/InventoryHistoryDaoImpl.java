@@ -0,0 +1,139 @@
+/**
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.broadleafcommerce.inventory.dao;
+
+import org.broadleafcommerce.inventory.domain.InventoryHistory;
+import org.hibernate.Session;
+import org.hibernate.jdbc.Work;
+import org.springframework.stereotype.Repository;
+
+import javax.annotation.Resource;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.Query;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.List;
+
+@Repository("blInventoryHistoryDao")
+public class InventoryHistoryDaoImpl implements InventoryHistoryDao {
+
+    protected static final String INSERT_HISTORY = "INSERT INTO BLC_INVENTORY_HISTORY (INVENTORY_HISTORY_ID, INVENTORY_ID, SKU_ID, "
+            + "FULFILLMENT_LOCATION_ID, PREV_QTY_AVAILABLE, QTY_AVAILABLE, PREV_QTY_ON_HAND, QTY_ON_HAND, REASON, REFERENCE, "
+            + "CHANGED_BY, DATE_CHANGED, PARTITION_KEY) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    @PersistenceContext(unitName = "blPU")
+    protected EntityManager em;
+
+    @Resource(name = "blInventoryQueryProfiler")
+    protected InventoryQueryProfiler queryProfiler;
+
+    /**
+     * The number of rows sent to the database in each JDBC batch
+     */
+    protected int jdbcBatchSize = 500;
+
+    @Override
+    public void insertAll(final List<InventoryHistory> history) {
+        if (history.isEmpty()) {
+            return;
+        }
+        em.unwrap(Session.class).doWork(new Work() {
+            @Override
+            public void execute(Connection connection) throws SQLException {
+                PreparedStatement statement = connection.prepareStatement(INSERT_HISTORY);
+                try {
+                    int batched = 0;
+                    for (InventoryHistory entry : history) {
+                        statement.setLong(1, entry.getId());
+                        statement.setLong(2, entry.getInventoryId());
+                        statement.setLong(3, entry.getSkuId());
+                        statement.setLong(4, entry.getFulfillmentLocationId());
+                        setInteger(statement, 5, entry.getPreviousQuantityAvailable());
+                        setInteger(statement, 6, entry.getQuantityAvailable());
+                        setInteger(statement, 7, entry.getPreviousQuantityOnHand());
+                        setInteger(statement, 8, entry.getQuantityOnHand());
+                        statement.setString(9, entry.getReason().getType());
+                        statement.setString(10, entry.getReference());
+                        statement.setString(11, entry.getChangedBy());
+                        statement.setTimestamp(12, new Timestamp(entry.getDateChanged().getTime()));
+                        statement.setInt(13, entry.getPartitionKey());
+                        statement.addBatch();
+                        if (++batched == jdbcBatchSize) {
+                            statement.executeBatch();
+                            batched = 0;
+                        }
+                    }
+                    if (batched > 0) {
+                        statement.executeBatch();
+                    }
+                } finally {
+                    statement.close();
+                }
+            }
+        });
+    }
+
+    protected void setInteger(PreparedStatement statement, int index, Integer value) throws SQLException {
+        if (value == null) {
+            statement.setNull(index, Types.INTEGER);
+        } else {
+            statement.setInt(index, value);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public List<InventoryHistory> readHistory(Long skuId, Long fulfillmentLocationId, int maxResults) {
+        Query query = em.createNamedQuery("BC_READ_INVENTORY_HISTORY_FOR_SKU_AND_LOCATION");
+        query.setParameter("skuId", skuId);
+        query.setParameter("fulfillmentLocationId", fulfillmentLocationId);
+        query.setMaxResults(maxResults);
+        return queryProfiler.getResultList("BC_READ_INVENTORY_HISTORY_FOR_SKU_AND_LOCATION", query);
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public Integer readOldestPartitionKey() {
+        Query query = em.createNamedQuery("BC_READ_OLDEST_INVENTORY_HISTORY_PARTITION_KEY");
+        List<Integer> results = queryProfiler.getResultList("BC_READ_OLDEST_INVENTORY_HISTORY_PARTITION_KEY", query);
+        return results.isEmpty() ? null : results.get(0);
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public int deletePartition(int partitionKey, int maxResults) {
+        Query query = em.createNamedQuery("BC_READ_INVENTORY_HISTORY_IDS_IN_PARTITION");
+        query.setParameter("partitionKey", partitionKey);
+        query.setMaxResults(maxResults);
+        List<Long> ids = queryProfiler.getResultList("BC_READ_INVENTORY_HISTORY_IDS_IN_PARTITION", query);
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        Query delete = em.createNamedQuery("BC_DELETE_INVENTORY_HISTORY_BY_ID");
+        delete.setParameter("ids", ids);
+        return queryProfiler.executeUpdate("BC_DELETE_INVENTORY_HISTORY_BY_ID", delete);
+    }
+
+    public void setJdbcBatchSize(int jdbcBatchSize) {
+        this.jdbcBatchSize = jdbcBatchSize;
+    }
+
+}
@@ -0,0 +1,43 @@
+/**
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.broadleafcommerce.inventory.dao;
+
+/**
+ * How {@link InventoryDao} locks inventory that is read for update
+ */
+public enum InventoryLockMode {
+
+    /**
+     * Forces a version increment so that a concurrent change fails when it is flushed. Nothing is held in the
+     * database, but every read costs an extra update, and contended rows lead to retries.
+     */
+    OPTIMISTIC,
+
+    /**
+     * Takes a row lock that is held until the transaction ends. Concurrent changes to the row wait for it, up to
+     * the lock timeout of the DAO.
+     */
+    PESSIMISTIC,
+
+    /**
+     * Takes row locks like {@link #PESSIMISTIC}, but rows already locked by another transaction are left out of the
+     * results rather than waited for. Only meaningful for batches, where a consumer can work on whatever rows it
+     * was able to lock. Issued as native <code>FOR UPDATE SKIP LOCKED</code> SQL, and rejected with an
+     * {@link UnsupportedOperationException} on databases that are not known to support it.
+     */
+    PESSIMISTIC_SKIP_LOCKED
+
+}
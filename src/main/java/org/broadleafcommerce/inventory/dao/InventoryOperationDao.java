@@ -0,0 +1,61 @@
+/**
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.broadleafcommerce.inventory.dao;
+
+import org.broadleafcommerce.inventory.domain.InventoryOperation;
+import org.broadleafcommerce.inventory.exception.ConcurrentInventoryModificationException;
+import org.broadleafcommerce.inventory.service.type.InventoryOperationType;
+
+import java.util.Date;
+import java.util.List;
+
+public interface InventoryOperationDao {
+
+    /**
+     * Retrieves the {@link InventoryOperation} recorded for the reference
+     * @param reference
+     * @return the {@link InventoryOperation}, or null if nothing was recorded
+     */
+    public InventoryOperation readByReference(String reference);
+
+    /**
+     * Persists the {@link InventoryOperation} and flushes it, so that a concurrent request recording the same
+     * reference fails here rather than when the transaction commits
+     * @param operation
+     * @return the persisted {@link InventoryOperation}
+     * @throws ConcurrentInventoryModificationException if another request recorded the reference at the same time
+     */
+    public InventoryOperation save(InventoryOperation operation) throws ConcurrentInventoryModificationException;
+
+    /**
+     * Deletes the operations last updated before the date
+     * @param date
+     * @return the number of operations deleted
+     */
+    public int deleteOperationsUpdatedBefore(Date date);
+
+    /**
+     * Reads the next page of operations of a type last updated within a window, ordered by reference
+     * @param operationType
+     * @param after the start of the window, inclusive
+     * @param before the end of the window, exclusive
+     * @param afterReference the reference of the last operation of the previous page, or an empty string
+     * @param maxResults
+     * @return the operations
+     */
+    public List<InventoryOperation> readOperations(InventoryOperationType operationType, Date after, Date before, String afterReference, int maxResults);
+
+}
@@ -0,0 +1,83 @@
+/**
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.broadleafcommerce.inventory.dao;
+
+import org.broadleafcommerce.inventory.domain.InventoryOperation;
+import org.broadleafcommerce.inventory.domain.InventoryOperationImpl;
+import org.broadleafcommerce.inventory.exception.ConcurrentInventoryModificationException;
+import org.broadleafcommerce.inventory.service.type.InventoryOperationType;
+import org.springframework.stereotype.Repository;
+
+import javax.annotation.Resource;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.PersistenceException;
+import javax.persistence.Query;
+
+import java.util.Date;
+import java.util.List;
+
+@Repository("blInventoryOperationDao")
+public class InventoryOperationDaoImpl implements InventoryOperationDao {
+
+    @PersistenceContext(unitName="blPU")
+    protected EntityManager em;
+
+    @Resource(name = "blInventoryQueryProfiler")
+    protected InventoryQueryProfiler queryProfiler;
+
+    @Override
+    public InventoryOperation readByReference(String reference) {
+        return em.find(InventoryOperationImpl.class, reference);
+    }
+
+    @Override
+    public InventoryOperation save(InventoryOperation operation) throws ConcurrentInventoryModificationException {
+        try {
+            if (operation.getVersion() == null) {
+                em.persist(operation);
+            } else {
+                operation = em.merge(operation);
+            }
+
+            //A duplicate key or a stale version should fail now, while the caller can still retry
+            queryProfiler.flush("InventoryOperationDao.save", em);
+            return operation;
+        } catch (PersistenceException ex) {
+            throw new ConcurrentInventoryModificationException("Error recording inventory operation with reference: " + operation.getReference(), ex);
+        }
+    }
+
+    @Override
+    public int deleteOperationsUpdatedBefore(Date date) {
+        Query query = em.createNamedQuery("BC_DELETE_INVENTORY_OPERATIONS_UPDATED_BEFORE");
+        query.setParameter("date", date);
+        return queryProfiler.executeUpdate("BC_DELETE_INVENTORY_OPERATIONS_UPDATED_BEFORE", query);
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public List<InventoryOperation> readOperations(InventoryOperationType operationType, Date after, Date before, String afterReference, int maxResults) {
+        Query query = em.createNamedQuery("BC_READ_INVENTORY_OPERATIONS_BY_TYPE");
+        query.setParameter("operationType", operationType.getType());
+        query.setParameter("after", after);
+        query.setParameter("before", before);
+        query.setParameter("reference", afterReference);
+        query.setMaxResults(maxResults);
+        return queryProfiler.getResultList("BC_READ_INVENTORY_OPERATIONS_BY_TYPE", query);
+    }
+
+}
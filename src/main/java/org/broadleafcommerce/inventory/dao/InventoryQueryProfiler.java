@@ -0,0 +1,252 @@
+/**
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.broadleafcommerce.inventory.dao;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.hibernate.Session;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.stereotype.Component;
+
+import javax.persistence.EntityManager;
+import javax.persistence.Parameter;
+import javax.persistence.PersistenceContext;
+import javax.persistence.Query;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Times the named queries and explicit flushes issued by the inventory DAOs. For each query it records the number
+ * of executions, total and maximum time, rows returned and entities hydrated into the persistence context, and for
+ * each flush point the number of flushes and their time. Executions slower than {@link #slowQueryThreshold} are
+ * logged with their bind parameters and kept in a bounded slow query log.
+ *
+ * Profiling is off by default and can be switched on and off at runtime, including over JMX when the application
+ * exports annotated beans, for example with &lt;context:mbean-export/&gt;. When it is off, queries run directly
+ * with nothing recorded.
+ */
+@Component("blInventoryQueryProfiler")
+@ManagedResource(objectName = "org.broadleafcommerce:name=InventoryQueryProfiler", description = "Inventory query profiler")
+public class InventoryQueryProfiler {
+
+    private static final Log LOG = LogFactory.getLog(InventoryQueryProfiler.class);
+
+    @PersistenceContext(unitName = "blPU")
+    protected EntityManager em;
+
+    protected volatile boolean enabled = false;
+
+    /**
+     * Executions taking at least this many milliseconds are logged as slow
+     */
+    protected volatile long slowQueryThreshold = 100;
+
+    /**
+     * The number of slow executions kept for inspection
+     */
+    protected int slowQueryLogSize = 100;
+
+    protected final ConcurrentMap<String, InventoryQueryStatistics> statistics = new ConcurrentHashMap<String, InventoryQueryStatistics>();
+
+    protected final LinkedList<String> slowQueries = new LinkedList<String>();
+
+    /**
+     * Runs the query, recording it under the name when profiling is enabled
+     * @param name usually the name of the named query
+     * @param query
+     * @return the results of the query
+     */
+    @SuppressWarnings("rawtypes")
+    public List getResultList(String name, Query query) {
+        if (!enabled) {
+            return query.getResultList();
+        }
+        int entitiesBefore = getManagedEntityCount();
+        long start = System.nanoTime();
+        List results = query.getResultList();
+        long nanos = System.nanoTime() - start;
+        int entitiesHydrated = Math.max(0, getManagedEntityCount() - entitiesBefore);
+
+        getStatistics(name).recordQuery(nanos, results.size(), entitiesHydrated);
+        checkSlow(name, nanos, query, results.size());
+        return results;
+    }
+
+    /**
+     * Runs the update or delete query, recording it under the name when profiling is enabled
+     * @param name usually the name of the named query
+     * @param query
+     * @return the number of rows changed
+     */
+    public int executeUpdate(String name, Query query) {
+        if (!enabled) {
+            return query.executeUpdate();
+        }
+        long start = System.nanoTime();
+        int updated = query.executeUpdate();
+        long nanos = System.nanoTime() - start;
+
+        getStatistics(name).recordQuery(nanos, updated, 0);
+        checkSlow(name, nanos, query, updated);
+        return updated;
+    }
+
+    /**
+     * Flushes the entity manager, recording it under the name when profiling is enabled
+     * @param name the operation that flushes, for example InventoryDao.save
+     * @param entityManager
+     */
+    public void flush(String name, EntityManager entityManager) {
+        if (!enabled) {
+            entityManager.flush();
+            return;
+        }
+        long start = System.nanoTime();
+        entityManager.flush();
+        long nanos = System.nanoTime() - start;
+
+        getStatistics(name).recordFlush(nanos);
+        checkSlow(name, nanos, null, 0);
+    }
+
+    protected InventoryQueryStatistics getStatistics(String name) {
+        InventoryQueryStatistics queryStatistics = statistics.get(name);
+        if (queryStatistics == null) {
+            InventoryQueryStatistics created = new InventoryQueryStatistics(name);
+            queryStatistics = statistics.putIfAbsent(name, created);
+            if (queryStatistics == null) {
+                queryStatistics = created;
+            }
+        }
+        return queryStatistics;
+    }
+
+    /**
+     * @return the number of entities in the current persistence context, or 0 if it cannot be determined
+     */
+    protected int getManagedEntityCount() {
+        try {
+            return em.unwrap(Session.class).getStatistics().getEntityCount();
+        } catch (RuntimeException e) {
+            return 0;
+        }
+    }
+
+    protected void checkSlow(String name, long nanos, Query query, int rows) {
+        long millis = nanos / 1000000L;
+        if (millis < slowQueryThreshold) {
+            return;
+        }
+        StringBuilder sb = new StringBuilder();
+        sb.append(new Date()).append(' ').append(name).append(" took ").append(millis).append("ms");
+        if (query != null) {
+            sb.append(", rows=").append(rows).append(", parameters=").append(describeParameters(query));
+        }
+        String entry = sb.toString();
+        LOG.warn("Slow inventory query: " + entry);
+        synchronized (slowQueries) {
+            slowQueries.addFirst(entry);
+            while (slowQueries.size() > slowQueryLogSize) {
+                slowQueries.removeLast();
+            }
+        }
+    }
+
+    protected String describeParameters(Query query) {
+        StringBuilder sb = new StringBuilder("{");
+        try {
+            for (Parameter<?> parameter : query.getParameters()) {
+                if (sb.length() > 1) {
+                    sb.append(", ");
+                }
+                String parameterName = parameter.getName() != null ? parameter.getName() : String.valueOf(parameter.getPosition());
+                sb.append(parameterName).append('=');
+                try {
+                    sb.append(query.getParameterValue(parameter));
+                } catch (IllegalStateException e) {
+                    sb.append("<unbound>");
+                }
+            }
+        } catch (RuntimeException e) {
+            sb.append("<unavailable>");
+        }
+        return sb.append('}').toString();
+    }
+
+    @ManagedAttribute(description = "Whether inventory queries are profiled")
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @ManagedAttribute(description = "Whether inventory queries are profiled")
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    @ManagedAttribute(description = "Executions taking at least this many milliseconds are logged as slow")
+    public long getSlowQueryThreshold() {
+        return slowQueryThreshold;
+    }
+
+    @ManagedAttribute(description = "Executions taking at least this many milliseconds are logged as slow")
+    public void setSlowQueryThreshold(long slowQueryThreshold) {
+        this.slowQueryThreshold = slowQueryThreshold;
+    }
+
+    public void setSlowQueryLogSize(int slowQueryLogSize) {
+        this.slowQueryLogSize = slowQueryLogSize;
+    }
+
+    /**
+     * @return the statistics recorded so far, keyed by query or flush point name
+     */
+    public Map<String, InventoryQueryStatistics> getQueryStatistics() {
+        return statistics;
+    }
+
+    @ManagedAttribute(description = "Timing, rows, hydrated entities and flushes per query")
+    public String[] getQueryStatisticsSummary() {
+        List<String> summary = new ArrayList<String>();
+        for (InventoryQueryStatistics queryStatistics : statistics.values()) {
+            summary.add(queryStatistics.toString());
+        }
+        return summary.toArray(new String[summary.size()]);
+    }
+
+    @ManagedAttribute(description = "The most recent slow executions, newest first")
+    public String[] getSlowQueries() {
+        synchronized (slowQueries) {
+            return slowQueries.toArray(new String[slowQueries.size()]);
+        }
+    }
+
+    @ManagedOperation(description = "Clears the recorded statistics and slow query log")
+    public void reset() {
+        statistics.clear();
+        synchronized (slowQueries) {
+            slowQueries.clear();
+        }
+    }
+
+}
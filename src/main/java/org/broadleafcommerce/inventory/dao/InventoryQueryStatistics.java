@@ -0,0 +1,97 @@
+/**
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.broadleafcommerce.inventory.dao;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Running totals for one named query or flush point, recorded by {@link InventoryQueryProfiler}
+ */
+public class InventoryQueryStatistics {
+
+    protected final String name;
+    protected final AtomicLong executions = new AtomicLong();
+    protected final AtomicLong totalNanos = new AtomicLong();
+    protected final AtomicLong maxNanos = new AtomicLong();
+    protected final AtomicLong rows = new AtomicLong();
+    protected final AtomicLong entitiesHydrated = new AtomicLong();
+    protected final AtomicLong flushes = new AtomicLong();
+
+    public InventoryQueryStatistics(String name) {
+        this.name = name;
+    }
+
+    public void recordQuery(long nanos, long rowCount, long entityCount) {
+        record(nanos);
+        rows.addAndGet(rowCount);
+        entitiesHydrated.addAndGet(entityCount);
+    }
+
+    public void recordFlush(long nanos) {
+        record(nanos);
+        flushes.incrementAndGet();
+    }
+
+    protected void record(long nanos) {
+        executions.incrementAndGet();
+        totalNanos.addAndGet(nanos);
+        long max = maxNanos.get();
+        while (nanos > max && !maxNanos.compareAndSet(max, nanos)) {
+            max = maxNanos.get();
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getExecutions() {
+        return executions.get();
+    }
+
+    public long getTotalNanos() {
+        return totalNanos.get();
+    }
+
+    public long getMaxNanos() {
+        return maxNanos.get();
+    }
+
+    public long getRows() {
+        return rows.get();
+    }
+
+    public long getEntitiesHydrated() {
+        return entitiesHydrated.get();
+    }
+
+    public long getFlushes() {
+        return flushes.get();
+    }
+
+    @Override
+    public String toString() {
+        long count = executions.get();
+        double averageMillis = count == 0 ? 0 : totalNanos.get() / 1000000d / count;
+        return name + ": executions=" + count
+                + ", avgMs=" + String.format("%.3f", averageMillis)
+                + ", maxMs=" + String.format("%.3f", maxNanos.get() / 1000000d)
+                + ", rows=" + rows.get()
+                + ", entitiesHydrated=" + entitiesHydrated.get()
+                + ", flushes=" + flushes.get();
+    }
+
+}
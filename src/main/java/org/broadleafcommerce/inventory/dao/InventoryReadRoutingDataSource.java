@@ -0,0 +1,97 @@
+/**
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.broadleafcommerce.inventory.dao;
+
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+import javax.sql.DataSource;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Sends the connections of read-only transactions to a read replica while {@link InventoryReplicaLagMonitor}
+ * reports it current enough, and every other connection to the primary. Availability checks and listings are
+ * read-only, so browse and cart traffic is taken off the primary, while decrements, locked reads and saves stay there.
+ *
+ * The routing decision needs the transaction to have been marked read-only, which happens after the connection is
+ * requested. This data source must therefore be wrapped in a {@link LazyConnectionDataSourceProxy} so that the
+ * physical connection is only taken when the first statement runs. For example, in place of the web data source:
+ *
+ * <pre>
+ * &lt;bean id="webDS" class="org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy"&gt;
+ *     &lt;property name="targetDataSource"&gt;
+ *         &lt;bean class="org.broadleafcommerce.inventory.dao.InventoryReadRoutingDataSource"&gt;
+ *             &lt;property name="primaryDataSource" ref="webPrimaryDS"/&gt;
+ *             &lt;property name="replicaDataSource" ref="webReplicaDS"/&gt;
+ *             &lt;property name="replicaLagMonitor" ref="blInventoryReplicaLagMonitor"/&gt;
+ *         &lt;/bean&gt;
+ *     &lt;/property&gt;
+ * &lt;/bean&gt;
+ * </pre>
+ *
+ * and set the lag query on blInventoryReplicaLagMonitor.
+ */
+public class InventoryReadRoutingDataSource extends AbstractRoutingDataSource {
+
+    protected static final String PRIMARY = "primary";
+    protected static final String REPLICA = "replica";
+
+    protected DataSource primaryDataSource;
+    protected DataSource replicaDataSource;
+    protected InventoryReplicaLagMonitor replicaLagMonitor;
+
+    @Override
+    public void afterPropertiesSet() {
+        if (primaryDataSource == null) {
+            throw new IllegalArgumentException("A primary data source is required");
+        }
+        Map<Object, Object> targetDataSources = new HashMap<Object, Object>();
+        targetDataSources.put(PRIMARY, primaryDataSource);
+        if (replicaDataSource != null) {
+            targetDataSources.put(REPLICA, replicaDataSource);
+        }
+        setTargetDataSources(targetDataSources);
+        setDefaultTargetDataSource(primaryDataSource);
+        super.afterPropertiesSet();
+
+        if (replicaDataSource != null && replicaLagMonitor != null) {
+            replicaLagMonitor.start(replicaDataSource);
+        }
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (replicaDataSource != null && replicaLagMonitor != null && replicaLagMonitor.isRoutingToReplica()) {
+            return REPLICA;
+        }
+        return PRIMARY;
+    }
+
+    public void setPrimaryDataSource(DataSource primaryDataSource) {
+        this.primaryDataSource = primaryDataSource;
+    }
+
+    public void setReplicaDataSource(DataSource replicaDataSource) {
+        this.replicaDataSource = replicaDataSource;
+    }
+
+    public void setReplicaLagMonitor(InventoryReplicaLagMonitor replicaLagMonitor) {
+        this.replicaLagMonitor = replicaLagMonitor;
+    }
+
+}
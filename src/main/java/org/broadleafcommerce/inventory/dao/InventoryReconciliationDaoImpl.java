@@ -0,0 +1,55 @@
+/**
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.broadleafcommerce.inventory.dao;
+
+import org.springframework.stereotype.Repository;
+
+import javax.annotation.Resource;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.Query;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+@Repository("blInventoryReconciliationDao")
+public class InventoryReconciliationDaoImpl implements InventoryReconciliationDao {
+
+    @PersistenceContext(unitName="blPU")
+    protected EntityManager em;
+
+    @Resource(name = "blInventoryQueryProfiler")
+    protected InventoryQueryProfiler queryProfiler;
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public Map<Long, String> readOrderStatuses(Collection<Long> orderIds) {
+        Map<Long, String> statuses = new HashMap<Long, String>();
+        if (orderIds.isEmpty()) {
+            return statuses;
+        }
+        Query query = em.createNamedQuery("BC_READ_RECONCILIATION_ORDER_STATUSES");
+        query.setParameter("orderIds", orderIds);
+        List<Object[]> results = queryProfiler.getResultList("BC_READ_RECONCILIATION_ORDER_STATUSES", query);
+        for (Object[] result : results) {
+            statuses.put((Long) result[0], (String) result[1]);
+        }
+        return statuses;
+    }
+
+}
@@ -0,0 +1,204 @@
+/**
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.broadleafcommerce.inventory.dao;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.annotation.PreDestroy;
+import javax.sql.DataSource;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decides whether inventory reads may go to the read replica configured on {@link InventoryReadRoutingDataSource}.
+ * Only read-only transactions are routed, and only while the replica's measured lag is within {@link #maxLag}.
+ * Decrements, locked reads and saves always run in read-write transactions and so stay on the primary.
+ *
+ * The lag is measured every {@link #checkInterval} by running {@link #lagQuery} against the replica. The query must
+ * return a single number of seconds behind the primary, for example
+ * <code>SELECT EXTRACT(EPOCH FROM now() - pg_last_xact_replay_timestamp())</code> on PostgreSQL. Reads stay on the
+ * primary when no lag query is set, when the query fails or returns null, or when the last measurement is more
+ * than three intervals old.
+ */
+@Component("blInventoryReplicaLagMonitor")
+@ManagedResource(objectName = "org.broadleafcommerce:name=InventoryReplicaLagMonitor", description = "Inventory read replica lag monitor")
+public class InventoryReplicaLagMonitor {
+
+    private static final Log LOG = LogFactory.getLog(InventoryReplicaLagMonitor.class);
+
+    protected static final long UNKNOWN = -1;
+
+    protected volatile boolean enabled = true;
+
+    /**
+     * The maximum lag, in milliseconds, at which reads are still sent to the replica
+     */
+    protected volatile long maxLag = 5000;
+
+    /**
+     * How often, in milliseconds, the lag is measured
+     */
+    protected long checkInterval = 1000;
+
+    protected String lagQuery;
+
+    protected DataSource replicaDataSource;
+
+    protected volatile long lag = UNKNOWN;
+
+    protected volatile long lastChecked;
+
+    protected ScheduledExecutorService executor;
+
+    /**
+     * Starts measuring the lag of the replica. Called by {@link InventoryReadRoutingDataSource} once it is configured.
+     * @param replicaDataSource
+     */
+    public synchronized void start(DataSource replicaDataSource) {
+        this.replicaDataSource = replicaDataSource;
+        if (executor != null || !enabled) {
+            return;
+        }
+        if (lagQuery == null) {
+            LOG.warn("No lag query is set on blInventoryReplicaLagMonitor, so inventory reads will stay on the primary");
+            return;
+        }
+        executor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "blInventoryReplicaLagMonitor");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        executor.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                check();
+            }
+        }, 0, checkInterval, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public synchronized void destroy() {
+        if (executor != null) {
+            executor.shutdownNow();
+            executor = null;
+        }
+    }
+
+    public void check() {
+        try {
+            lag = measureLag();
+        } catch (SQLException e) {
+            lag = UNKNOWN;
+            LOG.warn("Unable to measure the lag of the inventory read replica, reads will stay on the primary", e);
+        }
+        lastChecked = System.currentTimeMillis();
+    }
+
+    /**
+     * @return the lag of the replica in milliseconds, or {@link #UNKNOWN}
+     * @throws SQLException
+     */
+    protected long measureLag() throws SQLException {
+        Connection connection = replicaDataSource.getConnection();
+        try {
+            Statement statement = connection.createStatement();
+            try {
+                ResultSet resultSet = statement.executeQuery(lagQuery);
+                if (!resultSet.next()) {
+                    return UNKNOWN;
+                }
+                double seconds = resultSet.getDouble(1);
+                if (resultSet.wasNull()) {
+                    return UNKNOWN;
+                }
+                return Math.max(0, Math.round(seconds * 1000));
+            } finally {
+                statement.close();
+            }
+        } finally {
+            connection.close();
+        }
+    }
+
+    /**
+     * @return whether reads may currently be sent to the replica
+     */
+    @ManagedAttribute(description = "Whether reads are currently sent to the replica")
+    public boolean isReplicaAvailable() {
+        long measuredLag = lag;
+        return enabled && replicaDataSource != null && measuredLag != UNKNOWN && measuredLag <= maxLag
+                && System.currentTimeMillis() - lastChecked <= 3 * checkInterval;
+    }
+
+    /**
+     * @return whether the current transaction's connection is taken from the replica. Values read in such a
+     * transaction may be up to {@link #maxLag} old, so they should not be used to populate node-local caches.
+     */
+    public boolean isRoutingToReplica() {
+        return TransactionSynchronizationManager.isActualTransactionActive()
+                && TransactionSynchronizationManager.isCurrentTransactionReadOnly()
+                && isReplicaAvailable();
+    }
+
+    @ManagedAttribute(description = "The last measured lag of the replica in milliseconds, or -1 if unknown")
+    public long getLag() {
+        return lag;
+    }
+
+    @ManagedAttribute(description = "Whether reads may be sent to the replica")
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @ManagedAttribute(description = "Whether reads may be sent to the replica")
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    @ManagedAttribute(description = "The maximum lag, in milliseconds, at which reads are still sent to the replica")
+    public long getMaxLag() {
+        return maxLag;
+    }
+
+    @ManagedAttribute(description = "The maximum lag, in milliseconds, at which reads are still sent to the replica")
+    public void setMaxLag(long maxLag) {
+        this.maxLag = maxLag;
+    }
+
+    public void setCheckInterval(long checkInterval) {
+        this.checkInterval = checkInterval;
+    }
+
+    public void setLagQuery(String lagQuery) {
+        this.lagQuery = lagQuery;
+    }
+
+}
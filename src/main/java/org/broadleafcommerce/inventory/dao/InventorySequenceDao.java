@@ -0,0 +1,35 @@
+/**
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.broadleafcommerce.inventory.dao;
+
+/**
+ * Reserves blocks directly from the SEQUENCE_GENERATOR table that the hi/lo generators of the inventory entities
+ * allocate from. Each unit of the stored value is one block of ids, so ranges reserved here never overlap the ids
+ * the generators hand out.
+ */
+public interface InventorySequenceDao {
+
+    /**
+     * Advances the stored value of the segment by the number of blocks. This should run in a transaction of its own
+     * so that the reservation holds no lock past the statement that made it.
+     * @param segment the ID_NAME of the row, for example "InventoryImpl"
+     * @param blocks the number of blocks to reserve
+     * @return the first reserved block; the reserved blocks are this value up to, but not including, this value
+     * plus the number of blocks
+     */
+    public long reserveBlocks(String segment, int blocks);
+
+}
@@ -0,0 +1,63 @@
+/**
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.broadleafcommerce.inventory.dao;
+
+import org.springframework.stereotype.Repository;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.Query;
+
+import java.util.List;
+
+@Repository("blInventorySequenceDao")
+public class InventorySequenceDaoImpl implements InventorySequenceDao {
+
+    protected static final String SELECT_SQL = "SELECT ID_VAL FROM SEQUENCE_GENERATOR WHERE ID_NAME = ?";
+    protected static final String UPDATE_SQL = "UPDATE SEQUENCE_GENERATOR SET ID_VAL = ? WHERE ID_NAME = ? AND ID_VAL = ?";
+    protected static final String INSERT_SQL = "INSERT INTO SEQUENCE_GENERATOR (ID_NAME, ID_VAL) VALUES (?, ?)";
+
+    @PersistenceContext(unitName="blPU")
+    protected EntityManager em;
+
+    @Override
+    public long reserveBlocks(String segment, int blocks) {
+        //the same compare-and-set the hi/lo generator uses, so neither side has to lock the row for long
+        while (true) {
+            Query select = em.createNativeQuery(SELECT_SQL);
+            select.setParameter(1, segment);
+            List<?> results = select.getResultList();
+
+            if (results.isEmpty()) {
+                Query insert = em.createNativeQuery(INSERT_SQL);
+                insert.setParameter(1, segment);
+                insert.setParameter(2, blocks);
+                insert.executeUpdate();
+                return 0L;
+            }
+
+            long current = ((Number) results.get(0)).longValue();
+            Query update = em.createNativeQuery(UPDATE_SQL);
+            update.setParameter(1, current + blocks);
+            update.setParameter(2, segment);
+            update.setParameter(3, current);
+            if (update.executeUpdate() == 1) {
+                return current;
+            }
+        }
+    }
+
+}
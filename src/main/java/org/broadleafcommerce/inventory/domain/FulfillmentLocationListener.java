@@ -0,0 +1,43 @@
+/**
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.broadleafcommerce.inventory.domain;
+
+import org.broadleafcommerce.inventory.cache.FulfillmentLocationRegistryImpl;
+import org.broadleafcommerce.inventory.util.InventoryTransactionUtils;
+
+import javax.persistence.PostPersist;
+import javax.persistence.PostRemove;
+import javax.persistence.PostUpdate;
+
+/**
+ * Invalidates the fulfillment location registry once a change to a fulfillment location commits, whichever path
+ * the change was made through
+ */
+public class FulfillmentLocationListener {
+
+    @PostPersist
+    @PostUpdate
+    @PostRemove
+    public void fulfillmentLocationChanged(Object entity) {
+        InventoryTransactionUtils.runAfterCommit(new Runnable() {
+            @Override
+            public void run() {
+                FulfillmentLocationRegistryImpl.invalidate();
+            }
+        });
+    }
+
+}
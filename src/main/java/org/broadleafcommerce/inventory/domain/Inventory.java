@@ -95,6 +95,19 @@ public interface Inventory extends Serializable {
      */
     public void setExpectedAvailabilityDate(Date expectedAvailabilityDate);
 
+    /**
+     * Retrieves the quantity available below which this inventory should be reordered. When a change moves the
+     * quantity available below this threshold, a low stock signal is raised.
+     * @return the reorder threshold, or null if this inventory does not define one
+     */
+    public Integer getReorderThreshold();
+
+    /**
+     * Sets the quantity available below which this inventory should be reordered
+     * @param reorderThreshold
+     */
+    public void setReorderThreshold(Integer reorderThreshold);
+
     /**
      * Retrieves the version set by Hibernate. Version has a getter only.
      * @return
@@ -0,0 +1,92 @@
+/**
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.broadleafcommerce.inventory.domain;
+
+import org.broadleafcommerce.inventory.service.type.InventoryChangeReason;
+
+import java.io.Serializable;
+import java.util.Date;
+
+/**
+ * A single change to the quantities of an inventory record. History is written asynchronously, after the change
+ * has committed, and refers to the record, sku and fulfillment location by id so that it outlives them.
+ */
+public interface InventoryHistory extends Serializable {
+
+    public Long getId();
+
+    public void setId(Long id);
+
+    public Long getInventoryId();
+
+    public void setInventoryId(Long inventoryId);
+
+    public Long getSkuId();
+
+    public void setSkuId(Long skuId);
+
+    public Long getFulfillmentLocationId();
+
+    public void setFulfillmentLocationId(Long fulfillmentLocationId);
+
+    public Integer getPreviousQuantityAvailable();
+
+    public void setPreviousQuantityAvailable(Integer previousQuantityAvailable);
+
+    public Integer getQuantityAvailable();
+
+    public void setQuantityAvailable(Integer quantityAvailable);
+
+    public Integer getPreviousQuantityOnHand();
+
+    public void setPreviousQuantityOnHand(Integer previousQuantityOnHand);
+
+    public Integer getQuantityOnHand();
+
+    public void setQuantityOnHand(Integer quantityOnHand);
+
+    public InventoryChangeReason getReason();
+
+    public void setReason(InventoryChangeReason reason);
+
+    /**
+     * @return the operation reference the change was made under, for example the id of the order being checked out,
+     * or null
+     */
+    public String getReference();
+
+    public void setReference(String reference);
+
+    /**
+     * @return the name of the authenticated user who made the change, or null when it was not made by a user
+     */
+    public String getChangedBy();
+
+    public void setChangedBy(String changedBy);
+
+    public Date getDateChanged();
+
+    public void setDateChanged(Date dateChanged);
+
+    /**
+     * @return the day the change was made, as yyyymmdd in UTC. Retention deletes whole days by this key, and the
+     * table can be range partitioned on it.
+     */
+    public Integer getPartitionKey();
+
+    public void setPartitionKey(Integer partitionKey);
+
+}
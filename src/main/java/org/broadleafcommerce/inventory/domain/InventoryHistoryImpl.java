@@ -0,0 +1,224 @@
+/**
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.broadleafcommerce.inventory.domain;
+
+import org.broadleafcommerce.inventory.service.type.InventoryChangeReason;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Index;
+import org.hibernate.annotations.Parameter;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.Id;
+import javax.persistence.Inheritance;
+import javax.persistence.InheritanceType;
+import javax.persistence.Table;
+
+import java.util.Date;
+
+@Entity
+@Table(name = "BLC_INVENTORY_HISTORY")
+@Inheritance(strategy = InheritanceType.JOINED)
+public class InventoryHistoryImpl implements InventoryHistory {
+
+    private static final long serialVersionUID = 1L;
+
+    @Id
+    @GeneratedValue(generator = "InventoryHistoryId")
+    @GenericGenerator(
+        name = "InventoryHistoryId",
+        strategy = "org.broadleafcommerce.inventory.util.IdOverrideTableGenerator",
+        parameters = {
+            @Parameter(name = "table", value = "SEQUENCE_GENERATOR"),
+            @Parameter(name = "primary_key_column", value = "ID_NAME"),
+            @Parameter(name = "value_column", value = "ID_VAL"),
+            @Parameter(name = "primary_key_value", value = "InventoryHistoryImpl"),
+            @Parameter(name = "max_lo", value = "49")
+        }
+    )
+    @Column(name = "INVENTORY_HISTORY_ID")
+    protected Long id;
+
+    @Column(name = "INVENTORY_ID", nullable = false)
+    protected Long inventoryId;
+
+    @Column(name = "SKU_ID", nullable = false)
+    @Index(name = "INVENTORY_HISTORY_SKU_INDEX", columnNames = {"SKU_ID", "FULFILLMENT_LOCATION_ID"})
+    protected Long skuId;
+
+    @Column(name = "FULFILLMENT_LOCATION_ID", nullable = false)
+    protected Long fulfillmentLocationId;
+
+    @Column(name = "PREV_QTY_AVAILABLE")
+    protected Integer previousQuantityAvailable;
+
+    @Column(name = "QTY_AVAILABLE")
+    protected Integer quantityAvailable;
+
+    @Column(name = "PREV_QTY_ON_HAND")
+    protected Integer previousQuantityOnHand;
+
+    @Column(name = "QTY_ON_HAND")
+    protected Integer quantityOnHand;
+
+    @Column(name = "REASON", nullable = false)
+    protected String reason;
+
+    @Column(name = "REFERENCE")
+    protected String reference;
+
+    @Column(name = "CHANGED_BY")
+    protected String changedBy;
+
+    @Column(name = "DATE_CHANGED", nullable = false)
+    protected Date dateChanged;
+
+    @Column(name = "PARTITION_KEY", nullable = false)
+    @Index(name = "INVENTORY_HISTORY_PARTITION_INDEX", columnNames = {"PARTITION_KEY"})
+    protected Integer partitionKey;
+
+    @Override
+    public Long getId() {
+        return id;
+    }
+
+    @Override
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    @Override
+    public Long getInventoryId() {
+        return inventoryId;
+    }
+
+    @Override
+    public void setInventoryId(Long inventoryId) {
+        this.inventoryId = inventoryId;
+    }
+
+    @Override
+    public Long getSkuId() {
+        return skuId;
+    }
+
+    @Override
+    public void setSkuId(Long skuId) {
+        this.skuId = skuId;
+    }
+
+    @Override
+    public Long getFulfillmentLocationId() {
+        return fulfillmentLocationId;
+    }
+
+    @Override
+    public void setFulfillmentLocationId(Long fulfillmentLocationId) {
+        this.fulfillmentLocationId = fulfillmentLocationId;
+    }
+
+    @Override
+    public Integer getPreviousQuantityAvailable() {
+        return previousQuantityAvailable;
+    }
+
+    @Override
+    public void setPreviousQuantityAvailable(Integer previousQuantityAvailable) {
+        this.previousQuantityAvailable = previousQuantityAvailable;
+    }
+
+    @Override
+    public Integer getQuantityAvailable() {
+        return quantityAvailable;
+    }
+
+    @Override
+    public void setQuantityAvailable(Integer quantityAvailable) {
+        this.quantityAvailable = quantityAvailable;
+    }
+
+    @Override
+    public Integer getPreviousQuantityOnHand() {
+        return previousQuantityOnHand;
+    }
+
+    @Override
+    public void setPreviousQuantityOnHand(Integer previousQuantityOnHand) {
+        this.previousQuantityOnHand = previousQuantityOnHand;
+    }
+
+    @Override
+    public Integer getQuantityOnHand() {
+        return quantityOnHand;
+    }
+
+    @Override
+    public void setQuantityOnHand(Integer quantityOnHand) {
+        this.quantityOnHand = quantityOnHand;
+    }
+
+    @Override
+    public InventoryChangeReason getReason() {
+        return InventoryChangeReason.getInstance(reason);
+    }
+
+    @Override
+    public void setReason(InventoryChangeReason reason) {
+        this.reason = reason == null ? null : reason.getType();
+    }
+
+    @Override
+    public String getReference() {
+        return reference;
+    }
+
+    @Override
+    public void setReference(String reference) {
+        this.reference = reference;
+    }
+
+    @Override
+    public String getChangedBy() {
+        return changedBy;
+    }
+
+    @Override
+    public void setChangedBy(String changedBy) {
+        this.changedBy = changedBy;
+    }
+
+    @Override
+    public Date getDateChanged() {
+        return dateChanged;
+    }
+
+    @Override
+    public void setDateChanged(Date dateChanged) {
+        this.dateChanged = dateChanged;
+    }
+
+    @Override
+    public Integer getPartitionKey() {
+        return partitionKey;
+    }
+
+    @Override
+    public void setPartitionKey(Integer partitionKey) {
+        this.partitionKey = partitionKey;
+    }
+
+}
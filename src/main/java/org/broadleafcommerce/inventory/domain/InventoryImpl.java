@@ -27,19 +27,19 @@ import org.broadleafcommerce.common.presentation.override.AdminPresentationOverr
 import org.broadleafcommerce.common.presentation.override.AdminPresentationOverrides;
 import org.broadleafcommerce.core.catalog.domain.Sku;
 import org.broadleafcommerce.core.catalog.domain.SkuImpl;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
 
 import javax.persistence.CascadeType;
 import javax.persistence.Column;
 import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
-import javax.persistence.GenerationType;
 import javax.persistence.Id;
 import javax.persistence.Inheritance;
 import javax.persistence.InheritanceType;
 import javax.persistence.JoinColumn;
 import javax.persistence.ManyToOne;
 import javax.persistence.Table;
-import javax.persistence.TableGenerator;
 import javax.persistence.UniqueConstraint;
 import javax.persistence.Version;
 
@@ -65,8 +65,18 @@ public class InventoryImpl implements Inventory {
     private static final long serialVersionUID = 1L;
 
     @Id
-    @GeneratedValue(generator = "InventoryId", strategy = GenerationType.TABLE)
-    @TableGenerator(name = "InventoryId", table = "SEQUENCE_GENERATOR", pkColumnName = "ID_NAME", valueColumnName = "ID_VAL", pkColumnValue = "InventoryImpl", allocationSize = 50)
+    @GeneratedValue(generator = "InventoryId")
+    @GenericGenerator(
+        name = "InventoryId",
+        strategy = "org.broadleafcommerce.inventory.util.IdOverrideTableGenerator",
+        parameters = {
+            @Parameter(name = "table", value = "SEQUENCE_GENERATOR"),
+            @Parameter(name = "primary_key_column", value = "ID_NAME"),
+            @Parameter(name = "value_column", value = "ID_VAL"),
+            @Parameter(name = "primary_key_value", value = "InventoryImpl"),
+            @Parameter(name = "max_lo", value = "49")
+        }
+    )
     @Column(name = "INVENTORY_ID")
     protected Long id;
 
@@ -110,6 +120,18 @@ public class InventoryImpl implements Inventory {
     @Column(name = "EXPECTED_AVAILABILITY_DATE")
     protected Date expectedAvailabilityDate;
 
+    @Column(name = "REORDER_THRESHOLD")
+    @AdminPresentation(friendlyName = "InventoryImpl_reorderThreshold", group = "Quantities", groupOrder = 2, order = 5,
+            validationConfigurations = {
+                    @ValidationConfiguration(
+                            validationImplementation="com.smartgwt.client.widgets.form.validator.IntegerRangeValidator",
+                            configurationItems={
+                                    @ConfigurationItem(itemName="min", itemValue="0")
+                            }
+                    )
+            })
+    protected Integer reorderThreshold;
+
     @Version
     @Column(name = "VERSION_NUM", nullable = false)
     protected Long version;
@@ -174,6 +196,16 @@ public class InventoryImpl implements Inventory {
         this.expectedAvailabilityDate = expectedAvailabilityDate;
     }
 
+    @Override
+    public Integer getReorderThreshold() {
+        return reorderThreshold;
+    }
+
+    @Override
+    public void setReorderThreshold(Integer reorderThreshold) {
+        this.reorderThreshold = reorderThreshold;
+    }
+
     @Override
     public Long getVersion() {
         return version;
@@ -0,0 +1,58 @@
+/**
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.broadleafcommerce.inventory.domain;
+
+import org.broadleafcommerce.inventory.service.type.InventoryOperationType;
+
+import java.io.Serializable;
+import java.util.Date;
+
+/**
+ * Records the last inventory change applied for an operation reference, such as an order id, so that a repeated
+ * decrement or increment for the same reference is recognized and skipped. The record is written in the same
+ * transaction as the change it describes.
+ */
+public interface InventoryOperation extends Serializable {
+
+    /**
+     * @return the caller supplied reference that identifies the operation, for example the id of the order being
+     * checked out
+     */
+    public String getReference();
+
+    public void setReference(String reference);
+
+    /**
+     * @return the last change applied for the reference
+     */
+    public InventoryOperationType getOperationType();
+
+    public void setOperationType(InventoryOperationType operationType);
+
+    /**
+     * @return when the last change was applied, used to purge old records
+     */
+    public Date getDateUpdated();
+
+    public void setDateUpdated(Date dateUpdated);
+
+    /**
+     * Retrieves the version set by Hibernate. Version has a getter only.
+     * @return
+     */
+    public Long getVersion();
+
+}
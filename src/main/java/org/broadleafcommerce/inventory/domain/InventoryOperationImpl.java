@@ -0,0 +1,88 @@
+/**
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.broadleafcommerce.inventory.domain;
+
+import org.broadleafcommerce.inventory.service.type.InventoryOperationType;
+import org.hibernate.annotations.Index;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Inheritance;
+import javax.persistence.InheritanceType;
+import javax.persistence.Table;
+import javax.persistence.Version;
+
+import java.util.Date;
+
+@Entity
+@Table(name = "BLC_INVENTORY_OPERATION")
+@Inheritance(strategy = InheritanceType.JOINED)
+public class InventoryOperationImpl implements InventoryOperation {
+
+    private static final long serialVersionUID = 1L;
+
+    @Id
+    @Column(name = "REFERENCE", nullable = false)
+    protected String reference;
+
+    @Column(name = "OPERATION_TYPE", nullable = false)
+    protected String operationType;
+
+    @Column(name = "DATE_UPDATED", nullable = false)
+    @Index(name = "INVENTORY_OPERATION_DATE_INDEX", columnNames = {"DATE_UPDATED"})
+    protected Date dateUpdated;
+
+    @Version
+    @Column(name = "VERSION_NUM", nullable = false)
+    protected Long version;
+
+    @Override
+    public String getReference() {
+        return reference;
+    }
+
+    @Override
+    public void setReference(String reference) {
+        this.reference = reference;
+    }
+
+    @Override
+    public InventoryOperationType getOperationType() {
+        return InventoryOperationType.getInstance(operationType);
+    }
+
+    @Override
+    public void setOperationType(InventoryOperationType operationType) {
+        this.operationType = operationType == null ? null : operationType.getType();
+    }
+
+    @Override
+    public Date getDateUpdated() {
+        return dateUpdated;
+    }
+
+    @Override
+    public void setDateUpdated(Date dateUpdated) {
+        this.dateUpdated = dateUpdated;
+    }
+
+    @Override
+    public Long getVersion() {
+        return version;
+    }
+
+}
@@ -0,0 +1,42 @@
+/**
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.broadleafcommerce.inventory.domain;
+
+import org.broadleafcommerce.core.catalog.domain.Category;
+import org.broadleafcommerce.core.catalog.domain.Product;
+import org.broadleafcommerce.core.catalog.domain.Sku;
+import org.broadleafcommerce.inventory.cache.InventoryInvalidationBus;
+import org.broadleafcommerce.inventory.cache.InventoryInvalidationBusImpl;
+
+/**
+ * Reports changes to skus, products and categories to the {@link InventoryInvalidationBus}, so that whether a sku is
+ * active and tracks inventory is read again on every node. Registered as a default entity listener, because the
+ * catalog entities belong to the core module. A product or category change may alter the inventory type of any of
+ * their skus and is reported as a change to every sku.
+ */
+public class SkuInventoryStateListener {
+
+    public void entityChanged(Object entity) {
+        if (!(entity instanceof Sku || entity instanceof Product || entity instanceof Category)) {
+            return;
+        }
+        InventoryInvalidationBus bus = InventoryInvalidationBusImpl.getCurrent();
+        if (bus != null) {
+            bus.skuChanged(entity instanceof Sku ? ((Sku) entity).getId() : null);
+        }
+    }
+
+}
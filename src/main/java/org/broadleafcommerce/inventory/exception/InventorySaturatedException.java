@@ -0,0 +1,43 @@
+/**
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.broadleafcommerce.inventory.exception;
+
+/**
+ * Thrown instead of attempting an inventory change when the skus involved are seeing so many concurrent
+ * modifications that retrying would only add to the contention. Callers should report that the item is in high
+ * demand and ask the customer to try again shortly.
+ */
+public class InventorySaturatedException extends ConcurrentInventoryModificationException {
+
+    private static final long serialVersionUID = 1L;
+
+    public InventorySaturatedException() {
+        super();
+    }
+
+    public InventorySaturatedException(String message, Throwable cause) {
+        super(message, cause);
+    }
+
+    public InventorySaturatedException(String message) {
+        super(message);
+    }
+
+    public InventorySaturatedException(Throwable cause) {
+        super(cause);
+    }
+
+}
@@ -0,0 +1,127 @@
+/**
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.broadleafcommerce.inventory.service;
+
+import org.broadleafcommerce.core.catalog.domain.Sku;
+import org.broadleafcommerce.inventory.domain.FulfillmentLocation;
+import org.broadleafcommerce.inventory.domain.Inventory;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.Future;
+
+/**
+ * Non-blocking facade over {@link InventoryService} for callers that must not park their own threads on JDBC, such
+ * as an asynchronous storefront gateway. Every method returns immediately; the work is executed on a configurable
+ * executor behind a concurrency limit sized for the connection pool.
+ *
+ * Checked exceptions thrown by the underlying {@link InventoryService}, such as
+ * {@link org.broadleafcommerce.inventory.exception.InventoryUnavailableException} and
+ * {@link org.broadleafcommerce.inventory.exception.ConcurrentInventoryModificationException}, are reported as the
+ * cause of the {@link java.util.concurrent.ExecutionException} thrown by {@link Future#get()}. If a concurrency permit
+ * cannot be obtained in time, the cause is a {@link java.util.concurrent.RejectedExecutionException}.
+ *
+ * {@link Future#get()} blocks, so every method also has an overload taking an {@link InventoryCallback}, which is
+ * told the outcome as soon as the call completes. Callers that must not park a thread per request should use those
+ * and only keep the returned future to cancel the call.
+ */
+public interface AsyncInventoryService {
+
+    /**
+     * @see InventoryService#isQuantityAvailable(Sku, Integer)
+     */
+    public Future<Boolean> isQuantityAvailable(Sku sku, Integer quantity);
+
+    /**
+     * Same as {@link #isQuantityAvailable(Sku, Integer)}, reporting the outcome to the callback
+     */
+    public Future<Boolean> isQuantityAvailable(Sku sku, Integer quantity, InventoryCallback<? super Boolean> callback);
+
+    /**
+     * @see InventoryService#isQuantityAvailable(Sku, Integer, FulfillmentLocation)
+     */
+    public Future<Boolean> isQuantityAvailable(Sku sku, Integer quantity, FulfillmentLocation fulfillmentLocation);
+
+    /**
+     * Same as {@link #isQuantityAvailable(Sku, Integer, FulfillmentLocation)}, reporting the outcome to the callback
+     */
+    public Future<Boolean> isQuantityAvailable(Sku sku, Integer quantity, FulfillmentLocation fulfillmentLocation, InventoryCallback<? super Boolean> callback);
+
+    /**
+     * Checks the quantity of the sku at each of the fulfillment locations. The locations are split into batches
+     * which are queried in parallel, so checking many stores takes roughly as long as a single query.
+     * @see InventoryService#readAvailabilityForLocations(Sku, Integer, Collection)
+     */
+    public Future<Map<FulfillmentLocation, Boolean>> readAvailabilityForLocations(Sku sku, Integer quantity, Collection<FulfillmentLocation> fulfillmentLocations);
+
+    /**
+     * Same as {@link #readAvailabilityForLocations(Sku, Integer, Collection)}, reporting the outcome to the callback
+     */
+    public Future<Map<FulfillmentLocation, Boolean>> readAvailabilityForLocations(Sku sku, Integer quantity, Collection<FulfillmentLocation> fulfillmentLocations, InventoryCallback<? super Map<FulfillmentLocation, Boolean>> callback);
+
+    /**
+     * Checks the quantity of each sku at each of the fulfillment locations. The locations are split into batches
+     * which are queried in parallel, so checking many stores takes roughly as long as a single query.
+     * @see InventoryService#readAvailabilityForLocations(Map, Collection)
+     */
+    public Future<Map<FulfillmentLocation, Map<Sku, Boolean>>> readAvailabilityForLocations(Map<Sku, Integer> skuQuantities, Collection<FulfillmentLocation> fulfillmentLocations);
+
+    /**
+     * Same as {@link #readAvailabilityForLocations(Map, Collection)}, reporting the outcome to the callback
+     */
+    public Future<Map<FulfillmentLocation, Map<Sku, Boolean>>> readAvailabilityForLocations(Map<Sku, Integer> skuQuantities, Collection<FulfillmentLocation> fulfillmentLocations, InventoryCallback<? super Map<FulfillmentLocation, Map<Sku, Boolean>>> callback);
+
+    /**
+     * @see InventoryService#readInventory(Sku)
+     */
+    public Future<Inventory> readInventory(Sku sku);
+
+    /**
+     * Same as {@link #readInventory(Sku)}, reporting the outcome to the callback
+     */
+    public Future<Inventory> readInventory(Sku sku, InventoryCallback<? super Inventory> callback);
+
+    /**
+     * @see InventoryService#readInventory(Sku, FulfillmentLocation)
+     */
+    public Future<Inventory> readInventory(Sku sku, FulfillmentLocation fulfillmentLocation);
+
+    /**
+     * Same as {@link #readInventory(Sku, FulfillmentLocation)}, reporting the outcome to the callback
+     */
+    public Future<Inventory> readInventory(Sku sku, FulfillmentLocation fulfillmentLocation, InventoryCallback<? super Inventory> callback);
+
+    /**
+     * @see InventoryService#decrementInventory(Map)
+     */
+    public Future<Void> decrementInventory(Map<Sku, Integer> skuInventory);
+
+    /**
+     * Same as {@link #decrementInventory(Map)}, reporting the outcome to the callback
+     */
+    public Future<Void> decrementInventory(Map<Sku, Integer> skuInventory, InventoryCallback<? super Void> callback);
+
+    /**
+     * @see InventoryService#decrementInventory(Map, FulfillmentLocation)
+     */
+    public Future<Void> decrementInventory(Map<Sku, Integer> skuInventory, FulfillmentLocation fulfillmentLocation);
+
+    /**
+     * Same as {@link #decrementInventory(Map, FulfillmentLocation)}, reporting the outcome to the callback
+     */
+    public Future<Void> decrementInventory(Map<Sku, Integer> skuInventory, FulfillmentLocation fulfillmentLocation, InventoryCallback<? super Void> callback);
+
+}
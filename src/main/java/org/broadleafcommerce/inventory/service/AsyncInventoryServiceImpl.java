@@ -0,0 +1,482 @@
+/**
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.broadleafcommerce.inventory.service;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.broadleafcommerce.core.catalog.domain.Sku;
+import org.broadleafcommerce.inventory.domain.FulfillmentLocation;
+import org.broadleafcommerce.inventory.domain.Inventory;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+@Service("blAsyncInventoryService")
+public class AsyncInventoryServiceImpl implements AsyncInventoryService {
+
+    private static final Log LOG = LogFactory.getLog(AsyncInventoryServiceImpl.class);
+
+    @Resource(name = "blInventoryService")
+    protected InventoryService inventoryService;
+
+    /**
+     * The executor that runs the inventory calls. If none is configured, a virtual thread per task executor is used
+     * when the JVM provides one, otherwise a fixed pool of {@link #maxConcurrency} daemon threads.
+     */
+    protected ExecutorService executor;
+
+    protected boolean executorCreated = false;
+
+    /**
+     * The maximum number of inventory calls that may hold a database connection at the same time. This should be
+     * comfortably below the size of the connection pool backing blPU.
+     */
+    protected int maxConcurrency = 20;
+
+    /**
+     * How long, in milliseconds, a task waits for a concurrency permit before it is rejected
+     */
+    protected long permitTimeout = 5000;
+
+    protected Semaphore permits;
+
+    /**
+     * The number of fulfillment locations checked by each parallel query when fanning out availability checks
+     */
+    protected int locationBatchSize = 5;
+
+    @PostConstruct
+    public void init() {
+        permits = new Semaphore(maxConcurrency, true);
+        if (executor == null) {
+            executor = createDefaultExecutor();
+            executorCreated = true;
+        }
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if (executorCreated) {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Virtual threads are looked up reflectively so that this module still runs on JVMs that do not have them.
+     */
+    protected ExecutorService createDefaultExecutor() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (NoSuchMethodException e) {
+            LOG.debug("Virtual threads are not available, falling back to a fixed thread pool");
+        } catch (Exception e) {
+            LOG.warn("Unable to create a virtual thread executor, falling back to a fixed thread pool", e);
+        }
+        return Executors.newFixedThreadPool(maxConcurrency, new ThreadFactory() {
+            protected final AtomicInteger count = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "blAsyncInventory-" + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    /**
+     * Submits the callable to the executor. The task only touches the database once it holds one of the
+     * {@link #maxConcurrency} permits, so any number of requests can be in flight without exhausting the pool.
+     */
+    protected <T> Future<T> submit(Callable<T> callable) {
+        return submit(callable, null);
+    }
+
+    /**
+     * Same as {@link #submit(Callable)}, also reporting the outcome, including a permit timeout, to the callback
+     * @param callable
+     * @param callback may be null
+     */
+    protected <T> Future<T> submit(final Callable<T> callable, final InventoryCallback<? super T> callback) {
+        return executor.submit(new Callable<T>() {
+            @Override
+            public T call() throws Exception {
+                T result;
+                try {
+                    if (!permits.tryAcquire(permitTimeout, TimeUnit.MILLISECONDS)) {
+                        throw new RejectedExecutionException("Timed out after " + permitTimeout + "ms waiting for one of " +
+                                maxConcurrency + " inventory concurrency permits");
+                    }
+                    try {
+                        result = callable.call();
+                    } finally {
+                        permits.release();
+                    }
+                } catch (Exception e) {
+                    notifyFailure(callback, e);
+                    throw e;
+                }
+                notifySuccess(callback, result);
+                return result;
+            }
+        });
+    }
+
+    /**
+     * A callback that throws must not turn a completed call into a failed one, so its exceptions are only logged
+     */
+    protected static <T> void notifySuccess(InventoryCallback<? super T> callback, T result) {
+        if (callback == null) {
+            return;
+        }
+        try {
+            callback.onSuccess(result);
+        } catch (RuntimeException e) {
+            LOG.error("Inventory callback failed handling a result", e);
+        }
+    }
+
+    protected static void notifyFailure(InventoryCallback<?> callback, Throwable cause) {
+        if (callback == null) {
+            return;
+        }
+        try {
+            callback.onFailure(cause);
+        } catch (RuntimeException e) {
+            LOG.error("Inventory callback failed handling a failure", e);
+        }
+    }
+
+    @Override
+    public Future<Boolean> isQuantityAvailable(Sku sku, Integer quantity) {
+        return isQuantityAvailable(sku, quantity, (InventoryCallback<Boolean>) null);
+    }
+
+    @Override
+    public Future<Boolean> isQuantityAvailable(final Sku sku, final Integer quantity, InventoryCallback<? super Boolean> callback) {
+        return submit(new Callable<Boolean>() {
+            @Override
+            public Boolean call() throws Exception {
+                return inventoryService.isQuantityAvailable(sku, quantity);
+            }
+        }, callback);
+    }
+
+    @Override
+    public Future<Boolean> isQuantityAvailable(Sku sku, Integer quantity, FulfillmentLocation fulfillmentLocation) {
+        return isQuantityAvailable(sku, quantity, fulfillmentLocation, null);
+    }
+
+    @Override
+    public Future<Boolean> isQuantityAvailable(final Sku sku, final Integer quantity, final FulfillmentLocation fulfillmentLocation, InventoryCallback<? super Boolean> callback) {
+        return submit(new Callable<Boolean>() {
+            @Override
+            public Boolean call() throws Exception {
+                return inventoryService.isQuantityAvailable(sku, quantity, fulfillmentLocation);
+            }
+        }, callback);
+    }
+
+    @Override
+    public Future<Map<FulfillmentLocation, Boolean>> readAvailabilityForLocations(Sku sku, Integer quantity, Collection<FulfillmentLocation> fulfillmentLocations) {
+        return readAvailabilityForLocations(sku, quantity, fulfillmentLocations, null);
+    }
+
+    @Override
+    public Future<Map<FulfillmentLocation, Boolean>> readAvailabilityForLocations(final Sku sku, final Integer quantity, Collection<FulfillmentLocation> fulfillmentLocations,
+            InventoryCallback<? super Map<FulfillmentLocation, Boolean>> callback) {
+        List<Callable<Map<FulfillmentLocation, Boolean>>> batches = new ArrayList<Callable<Map<FulfillmentLocation, Boolean>>>();
+        for (final List<FulfillmentLocation> batch : partition(fulfillmentLocations)) {
+            batches.add(new Callable<Map<FulfillmentLocation, Boolean>>() {
+                @Override
+                public Map<FulfillmentLocation, Boolean> call() throws Exception {
+                    return inventoryService.readAvailabilityForLocations(sku, quantity, batch);
+                }
+            });
+        }
+        return submitMerged(batches, callback);
+    }
+
+    @Override
+    public Future<Map<FulfillmentLocation, Map<Sku, Boolean>>> readAvailabilityForLocations(Map<Sku, Integer> skuQuantities, Collection<FulfillmentLocation> fulfillmentLocations) {
+        return readAvailabilityForLocations(skuQuantities, fulfillmentLocations, null);
+    }
+
+    @Override
+    public Future<Map<FulfillmentLocation, Map<Sku, Boolean>>> readAvailabilityForLocations(final Map<Sku, Integer> skuQuantities, Collection<FulfillmentLocation> fulfillmentLocations,
+            InventoryCallback<? super Map<FulfillmentLocation, Map<Sku, Boolean>>> callback) {
+        List<Callable<Map<FulfillmentLocation, Map<Sku, Boolean>>>> batches = new ArrayList<Callable<Map<FulfillmentLocation, Map<Sku, Boolean>>>>();
+        for (final List<FulfillmentLocation> batch : partition(fulfillmentLocations)) {
+            batches.add(new Callable<Map<FulfillmentLocation, Map<Sku, Boolean>>>() {
+                @Override
+                public Map<FulfillmentLocation, Map<Sku, Boolean>> call() throws Exception {
+                    return inventoryService.readAvailabilityForLocations(skuQuantities, batch);
+                }
+            });
+        }
+        return submitMerged(batches, callback);
+    }
+
+    /**
+     * Submits each batch and combines their maps, in batch order, into one. With a callback, the last batch to
+     * complete reports the combined map, or the first failure is reported and the other batches are cancelled.
+     * @param batches
+     * @param callback may be null
+     */
+    protected <K, V> Future<Map<K, V>> submitMerged(List<Callable<Map<K, V>>> batches, InventoryCallback<? super Map<K, V>> callback) {
+        List<Future<Map<K, V>>> futures = new ArrayList<Future<Map<K, V>>>(batches.size());
+        MergingCallback<K, V> mergingCallback = callback == null ? null : new MergingCallback<K, V>(batches.size(), callback, futures);
+        //held while submitting, so that a batch failing early cancels the batches submitted after it as well
+        synchronized (futures) {
+            for (int i = 0; i < batches.size(); i++) {
+                futures.add(submit(batches.get(i), mergingCallback == null ? null : mergingCallback.forBatch(i)));
+            }
+        }
+        if (batches.isEmpty()) {
+            notifySuccess(callback, new LinkedHashMap<K, V>());
+        }
+        return new MergingFuture<K, V>(futures);
+    }
+
+    protected List<List<FulfillmentLocation>> partition(Collection<FulfillmentLocation> fulfillmentLocations) {
+        List<List<FulfillmentLocation>> batches = new ArrayList<List<FulfillmentLocation>>();
+        List<FulfillmentLocation> batch = new ArrayList<FulfillmentLocation>(locationBatchSize);
+        for (FulfillmentLocation fulfillmentLocation : fulfillmentLocations) {
+            batch.add(fulfillmentLocation);
+            if (batch.size() == locationBatchSize) {
+                batches.add(batch);
+                batch = new ArrayList<FulfillmentLocation>(locationBatchSize);
+            }
+        }
+        if (!batch.isEmpty()) {
+            batches.add(batch);
+        }
+        return batches;
+    }
+
+    @Override
+    public Future<Inventory> readInventory(Sku sku) {
+        return readInventory(sku, (InventoryCallback<Inventory>) null);
+    }
+
+    @Override
+    public Future<Inventory> readInventory(final Sku sku, InventoryCallback<? super Inventory> callback) {
+        return submit(new Callable<Inventory>() {
+            @Override
+            public Inventory call() throws Exception {
+                return inventoryService.readInventory(sku);
+            }
+        }, callback);
+    }
+
+    @Override
+    public Future<Inventory> readInventory(Sku sku, FulfillmentLocation fulfillmentLocation) {
+        return readInventory(sku, fulfillmentLocation, null);
+    }
+
+    @Override
+    public Future<Inventory> readInventory(final Sku sku, final FulfillmentLocation fulfillmentLocation, InventoryCallback<? super Inventory> callback) {
+        return submit(new Callable<Inventory>() {
+            @Override
+            public Inventory call() throws Exception {
+                return inventoryService.readInventory(sku, fulfillmentLocation);
+            }
+        }, callback);
+    }
+
+    @Override
+    public Future<Void> decrementInventory(Map<Sku, Integer> skuInventory) {
+        return decrementInventory(skuInventory, (InventoryCallback<Void>) null);
+    }
+
+    @Override
+    public Future<Void> decrementInventory(final Map<Sku, Integer> skuInventory, InventoryCallback<? super Void> callback) {
+        return submit(new Callable<Void>() {
+            @Override
+            public Void call() throws Exception {
+                inventoryService.decrementInventory(skuInventory);
+                return null;
+            }
+        }, callback);
+    }
+
+    @Override
+    public Future<Void> decrementInventory(Map<Sku, Integer> skuInventory, FulfillmentLocation fulfillmentLocation) {
+        return decrementInventory(skuInventory, fulfillmentLocation, null);
+    }
+
+    @Override
+    public Future<Void> decrementInventory(final Map<Sku, Integer> skuInventory, final FulfillmentLocation fulfillmentLocation, InventoryCallback<? super Void> callback) {
+        return submit(new Callable<Void>() {
+            @Override
+            public Void call() throws Exception {
+                inventoryService.decrementInventory(skuInventory, fulfillmentLocation);
+                return null;
+            }
+        }, callback);
+    }
+
+    public void setExecutor(ExecutorService executor) {
+        this.executor = executor;
+    }
+
+    public void setMaxConcurrency(int maxConcurrency) {
+        this.maxConcurrency = maxConcurrency;
+    }
+
+    public void setPermitTimeout(long permitTimeout) {
+        this.permitTimeout = permitTimeout;
+    }
+
+    public void setLocationBatchSize(int locationBatchSize) {
+        this.locationBatchSize = locationBatchSize;
+    }
+
+    /**
+     * Combines the maps produced by several batches into one. Waiting happens on the caller's thread, so no
+     * executor thread or concurrency permit is held while the batches run.
+     */
+    protected static class MergingFuture<K, V> implements Future<Map<K, V>> {
+
+        protected final List<Future<Map<K, V>>> batches;
+
+        public MergingFuture(List<Future<Map<K, V>>> batches) {
+            this.batches = batches;
+        }
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            boolean cancelled = false;
+            for (Future<Map<K, V>> batch : batches) {
+                cancelled |= batch.cancel(mayInterruptIfRunning);
+            }
+            return cancelled;
+        }
+
+        @Override
+        public boolean isCancelled() {
+            for (Future<Map<K, V>> batch : batches) {
+                if (batch.isCancelled()) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public boolean isDone() {
+            for (Future<Map<K, V>> batch : batches) {
+                if (!batch.isDone()) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public Map<K, V> get() throws InterruptedException, ExecutionException {
+            Map<K, V> merged = new LinkedHashMap<K, V>();
+            for (Future<Map<K, V>> batch : batches) {
+                merged.putAll(batch.get());
+            }
+            return merged;
+        }
+
+        @Override
+        public Map<K, V> get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+            long deadline = System.nanoTime() + unit.toNanos(timeout);
+            Map<K, V> merged = new LinkedHashMap<K, V>();
+            for (Future<Map<K, V>> batch : batches) {
+                merged.putAll(batch.get(deadline - System.nanoTime(), TimeUnit.NANOSECONDS));
+            }
+            return merged;
+        }
+
+    }
+
+
+    /**
+     * Collects the maps of several batches and reports them to the caller's callback once all have completed
+     */
+    protected static class MergingCallback<K, V> {
+
+        protected final InventoryCallback<? super Map<K, V>> callback;
+        protected final List<Future<Map<K, V>>> futures;
+        protected final AtomicReferenceArray<Map<K, V>> results;
+        protected final AtomicInteger remaining;
+        protected final AtomicBoolean failed = new AtomicBoolean(false);
+
+        public MergingCallback(int batches, InventoryCallback<? super Map<K, V>> callback, List<Future<Map<K, V>>> futures) {
+            this.callback = callback;
+            this.futures = futures;
+            this.results = new AtomicReferenceArray<Map<K, V>>(batches);
+            this.remaining = new AtomicInteger(batches);
+        }
+
+        public InventoryCallback<Map<K, V>> forBatch(final int index) {
+            return new InventoryCallback<Map<K, V>>() {
+                @Override
+                public void onSuccess(Map<K, V> result) {
+                    results.set(index, result);
+                    if (remaining.decrementAndGet() == 0 && !failed.get()) {
+                        Map<K, V> merged = new LinkedHashMap<K, V>();
+                        for (int i = 0; i < results.length(); i++) {
+                            merged.putAll(results.get(i));
+                        }
+                        notifySuccess(callback, merged);
+                    }
+                }
+
+                @Override
+                public void onFailure(Throwable cause) {
+                    if (failed.compareAndSet(false, true)) {
+                        notifyFailure(callback, cause);
+                        synchronized (futures) {
+                            for (Future<Map<K, V>> future : futures) {
+                                future.cancel(false);
+                            }
+                        }
+                    }
+                }
+            };
+        }
+
+    }
+
+}
@@ -28,6 +28,24 @@ public interface FulfillmentLocationService {
      */
     public List<FulfillmentLocation> readAll();
 
+    /**
+     * Retrieves the fulfillment location flagged as the default
+     * @return {@link FulfillmentLocation}, or null if there is none
+     */
+    public FulfillmentLocation readDefault();
+
+    /**
+     * Retrieves the fulfillment locations that offer pickup
+     * @return {@link List} of {@link FulfillmentLocation}
+     */
+    public List<FulfillmentLocation> readPickupLocations();
+
+    /**
+     * Retrieves the fulfillment locations that ship
+     * @return {@link List} of {@link FulfillmentLocation}
+     */
+    public List<FulfillmentLocation> readShippingLocations();
+
     /**
      * Retrieves a {@link FulfillmentLocation} from the given id
      * @param fulfillmentLocationId
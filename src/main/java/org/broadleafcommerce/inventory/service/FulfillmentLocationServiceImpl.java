@@ -15,8 +15,11 @@
  */
 package org.broadleafcommerce.inventory.service;
 
+import org.broadleafcommerce.inventory.cache.FulfillmentLocationRegistry;
+import org.broadleafcommerce.inventory.cache.FulfillmentLocationRegistryImpl;
 import org.broadleafcommerce.inventory.dao.FulfillmentLocationDao;
 import org.broadleafcommerce.inventory.domain.FulfillmentLocation;
+import org.broadleafcommerce.inventory.util.InventoryTransactionUtils;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -31,16 +34,37 @@ public class FulfillmentLocationServiceImpl implements FulfillmentLocationServic
     @Resource(name = "blFulfillmentLocationDao")
     protected FulfillmentLocationDao fulfillmentLocationDao;
 
+    @Resource(name = "blFulfillmentLocationRegistry")
+    protected FulfillmentLocationRegistry fulfillmentLocationRegistry;
+
     @Override
     @Transactional("blTransactionManager")
     public List<FulfillmentLocation> readAll() {
-        return fulfillmentLocationDao.readAll();
+        return fulfillmentLocationRegistry.readAll();
     }
 
     @Override
     @Transactional("blTransactionManager")
     public FulfillmentLocation readById(Long fulfillmentLocationId) {
-        return fulfillmentLocationDao.readById(fulfillmentLocationId);
+        return fulfillmentLocationRegistry.readById(fulfillmentLocationId);
+    }
+
+    @Override
+    @Transactional("blTransactionManager")
+    public FulfillmentLocation readDefault() {
+        return fulfillmentLocationRegistry.readDefault();
+    }
+
+    @Override
+    @Transactional("blTransactionManager")
+    public List<FulfillmentLocation> readPickupLocations() {
+        return fulfillmentLocationRegistry.readPickupLocations();
+    }
+
+    @Override
+    @Transactional("blTransactionManager")
+    public List<FulfillmentLocation> readShippingLocations() {
+        return fulfillmentLocationRegistry.readShippingLocations();
     }
 
     @Override
@@ -59,5 +83,13 @@ public class FulfillmentLocationServiceImpl implements FulfillmentLocationServic
     @Transactional("blTransactionManager")
     public void updateOtherDefaultLocationToFalse(FulfillmentLocation fulfillmentLocation) {
         fulfillmentLocationDao.updateOtherDefaultLocationToFalse(fulfillmentLocation);
+
+        //bulk updates bypass the entity listener
+        InventoryTransactionUtils.runAfterCommit(new Runnable() {
+            @Override
+            public void run() {
+                FulfillmentLocationRegistryImpl.invalidate();
+            }
+        });
     }
 }
@@ -0,0 +1,39 @@
+/**
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.broadleafcommerce.inventory.service;
+
+/**
+ * Receives the outcome of a call made through {@link AsyncInventoryService}, on the thread that ran it, so that the
+ * caller can continue without waiting on a {@link java.util.concurrent.Future}. Callbacks should return quickly and
+ * hand any further work to the caller's own executor, because the thread belongs to the inventory executor.
+ *
+ * @param <T> the result of the call
+ */
+public interface InventoryCallback<T> {
+
+    /**
+     * @param result the value the call returned, or null for calls that return nothing
+     */
+    public void onSuccess(T result);
+
+    /**
+     * @param cause the exception the call threw, such as an
+     * {@link org.broadleafcommerce.inventory.exception.InventoryUnavailableException}, or a
+     * {@link java.util.concurrent.RejectedExecutionException} if a concurrency permit could not be obtained in time
+     */
+    public void onFailure(Throwable cause);
+
+}
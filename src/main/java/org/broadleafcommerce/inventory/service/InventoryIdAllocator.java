@@ -0,0 +1,33 @@
+/**
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.broadleafcommerce.inventory.service;
+
+/**
+ * Reserves large ranges of ids for bulk creation of inventory entities. Ordinary saves keep allocating ids one block
+ * at a time through the entity's generator; a bulk loader reserves every id it needs in one step and assigns them
+ * itself, which {@link org.broadleafcommerce.inventory.util.IdOverrideTableGenerator} then keeps.
+ */
+public interface InventoryIdAllocator {
+
+    /**
+     * Reserves at least the requested number of ids in a transaction of its own
+     * @param entityClass the entity implementation the ids are for, for example InventoryImpl
+     * @param count the number of ids needed
+     * @return a range holding at least that many ids
+     */
+    public InventoryIdRange reserve(Class<?> entityClass, int count);
+
+}
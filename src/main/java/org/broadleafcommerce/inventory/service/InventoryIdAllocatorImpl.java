@@ -0,0 +1,71 @@
+/**
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.broadleafcommerce.inventory.service;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.broadleafcommerce.inventory.dao.InventorySequenceDao;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.annotation.Resource;
+
+import java.util.HashMap;
+import java.util.Map;
+
+@Service("blInventoryIdAllocator")
+public class InventoryIdAllocatorImpl implements InventoryIdAllocator {
+
+    private static final Log LOG = LogFactory.getLog(InventoryIdAllocatorImpl.class);
+
+    /**
+     * The allocation size of the entities' generators, which is the number of ids each unit of the stored sequence
+     * value stands for
+     */
+    protected static final int DEFAULT_BLOCK_SIZE = 50;
+
+    @Resource(name = "blInventorySequenceDao")
+    protected InventorySequenceDao inventorySequenceDao;
+
+    /**
+     * Block sizes for entities whose generator does not use the default allocation size, keyed by segment
+     */
+    protected Map<String, Integer> blockSizes = new HashMap<String, Integer>();
+
+    @Override
+    @Transactional(value = "blTransactionManager", propagation = Propagation.REQUIRES_NEW)
+    public InventoryIdRange reserve(Class<?> entityClass, int count) {
+        String segment = entityClass.getSimpleName();
+        int blockSize = blockSizes.containsKey(segment) ? blockSizes.get(segment) : DEFAULT_BLOCK_SIZE;
+        int blocks = Math.max(1, (count + blockSize - 1) / blockSize);
+
+        long firstBlock = inventorySequenceDao.reserveBlocks(segment, blocks);
+        //the hi/lo generator never hands out zero, so neither does a range
+        long start = Math.max(1L, firstBlock * blockSize);
+        long end = (firstBlock + blocks) * blockSize;
+
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("Reserved ids " + start + " to " + (end - 1) + " for " + segment);
+        }
+        return new InventoryIdRange(start, end);
+    }
+
+    public void setBlockSizes(Map<String, Integer> blockSizes) {
+        this.blockSizes = blockSizes;
+    }
+
+}
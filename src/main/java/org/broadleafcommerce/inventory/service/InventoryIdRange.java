@@ -0,0 +1,63 @@
+/**
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.broadleafcommerce.inventory.service;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A contiguous range of reserved ids. Any number of loader threads may draw from the same range; each id is handed
+ * out exactly once without taking a lock.
+ */
+public class InventoryIdRange {
+
+    /**
+     * Returned by {@link #next()} once every id in the range has been handed out
+     */
+    public static final long EXHAUSTED = -1L;
+
+    protected final AtomicLong next;
+    protected final long end;
+
+    /**
+     * @param start the first id in the range
+     * @param end the id after the last one in the range
+     */
+    public InventoryIdRange(long start, long end) {
+        this.next = new AtomicLong(start);
+        this.end = end;
+    }
+
+    /**
+     * @return the next unused id, or {@link #EXHAUSTED}
+     */
+    public long next() {
+        long id = next.getAndIncrement();
+        return id < end ? id : EXHAUSTED;
+    }
+
+    /**
+     * @return the number of ids not yet handed out
+     */
+    public long remaining() {
+        return Math.max(0L, end - next.get());
+    }
+
+    @Override
+    public String toString() {
+        return "InventoryIdRange [next=" + next.get() + ", end=" + end + "]";
+    }
+
+}
@@ -0,0 +1,110 @@
+/**
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.broadleafcommerce.inventory.service;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+
+import java.util.Date;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Periodically deletes the records kept to make inventory operations idempotent once they are older than
+ * {@link #timeToLive}. The time to live only has to outlast the longest window in which a caller might retry an
+ * operation.
+ */
+@Component("blInventoryOperationPurger")
+public class InventoryOperationPurger {
+
+    private static final Log LOG = LogFactory.getLog(InventoryOperationPurger.class);
+
+    @Resource(name = "blInventoryService")
+    protected InventoryService inventoryService;
+
+    protected boolean enabled = true;
+
+    /**
+     * How long, in milliseconds, an operation record is kept
+     */
+    protected long timeToLive = 7 * 24 * 60 * 60 * 1000L;
+
+    /**
+     * How often, in milliseconds, old operation records are purged
+     */
+    protected long purgeInterval = 60 * 60 * 1000L;
+
+    protected ScheduledExecutorService executor;
+
+    @PostConstruct
+    public void init() {
+        if (!enabled) {
+            return;
+        }
+        executor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "blInventoryOperationPurger");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        executor.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                purge();
+            }
+        }, purgeInterval, purgeInterval, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    public void purge() {
+        try {
+            int purged = inventoryService.purgeInventoryOperations(new Date(System.currentTimeMillis() - timeToLive));
+            if (purged > 0 && LOG.isDebugEnabled()) {
+                LOG.debug("Purged " + purged + " inventory operation records");
+            }
+        } catch (RuntimeException e) {
+            LOG.error("Unable to purge inventory operation records", e);
+        }
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public void setTimeToLive(long timeToLive) {
+        this.timeToLive = timeToLive;
+    }
+
+    public void setPurgeInterval(long purgeInterval) {
+        this.purgeInterval = purgeInterval;
+    }
+
+}
@@ -21,7 +21,11 @@ import org.broadleafcommerce.inventory.domain.FulfillmentLocation;
 import org.broadleafcommerce.inventory.domain.Inventory;
 import org.broadleafcommerce.inventory.exception.ConcurrentInventoryModificationException;
 import org.broadleafcommerce.inventory.exception.InventoryUnavailableException;
+import org.broadleafcommerce.inventory.service.call.InventoryAdjustmentRequest;
+import org.broadleafcommerce.inventory.service.call.InventoryAdjustmentResult;
 
+import java.util.Collection;
+import java.util.Date;
 import java.util.List;
 import java.util.Map;
 
@@ -56,6 +60,47 @@ public interface InventoryService {
      */
     public boolean isQuantityAvailable(Sku sku, Integer quantity, FulfillmentLocation fulfillmentLocation);
 
+    /**
+     * Retrieves whether or not the quantity of each sku is available at the default fulfillment location, for
+     * example for the total of each sku across a cart. All of the skus are checked with a single query.
+     * @param skuQuantities the amount to check for each sku; each amount must be a positive integer
+     * @return a map of each sku to whether or not its quantity is available
+     */
+    public Map<Sku, Boolean> isQuantityAvailable(Map<Sku, Integer> skuQuantities);
+
+    /**
+     * Retrieves whether or not the quantity is available for a sku at each of the given fulfillment locations. All
+     * of the locations are checked with a single query.
+     * @param sku the sku
+     * @param quantity the amount for which to check; must be a positive integer
+     * @param fulfillmentLocations the fulfillment locations to check
+     * @return a map of each fulfillment location to whether or not the quantity is available there
+     */
+    public Map<FulfillmentLocation, Boolean> readAvailabilityForLocations(Sku sku, Integer quantity, Collection<FulfillmentLocation> fulfillmentLocations);
+
+    /**
+     * Retrieves whether or not the quantity of each sku is available at each of the given fulfillment locations,
+     * for example for every item in a cart across the stores near a customer. All of the skus and locations are
+     * checked with a single query.
+     * @param skuQuantities the amount to check for each sku; each amount must be a positive integer
+     * @param fulfillmentLocations the fulfillment locations to check
+     * @return a map of each fulfillment location to whether or not the quantity of each sku is available there
+     */
+    public Map<FulfillmentLocation, Map<Sku, Boolean>> readAvailabilityForLocations(Map<Sku, Integer> skuQuantities, Collection<FulfillmentLocation> fulfillmentLocations);
+
+    /**
+     * Determines which of the skus have any quantity available at the fulfillment location, for pages that list many
+     * skus at once. Quantities and whether each sku is active and tracks inventory come from the
+     * {@link org.broadleafcommerce.inventory.cache.InventoryQuantityIndex} where possible; only the skus it cannot
+     * answer for are read, with batched queries. As with {@link #isQuantityAvailable(Sku, Integer, FulfillmentLocation)},
+     * inactive skus are reported as out of stock and skus that do not track inventory as in stock.
+     * @param skuIds
+     * @param fulfillmentLocation
+     * @return whether each sku is in stock, at the same position as its id
+     * @throws IllegalArgumentException if the fulfillment location is null
+     */
+    public boolean[] isInStock(long[] skuIds, FulfillmentLocation fulfillmentLocation);
+
     /**
      * Subtracts the quantity from available inventory in the default fulfillment location for each sku in the map. Specified quantity must be a positive integer.
      * @param skuInventory a map which contains the quantity of inventory to subtract from available inventory for each sku
@@ -87,6 +132,38 @@ public interface InventoryService {
      */
     public void incrementInventory(Map<Sku, Integer> skuInventory) throws ConcurrentInventoryModificationException;
 
+    /**
+     * Same as {@link #decrementInventory(Map, FulfillmentLocation)}, but applied at most once for the reference. The
+     * reference is recorded in the same transaction as the decrement, so a caller that is unsure whether an earlier
+     * attempt committed, for example after a timeout, can safely call again. A reference may be decremented again
+     * once it has been incremented, as when an order is checked out again after its inventory was compensated.
+     * @param skuInventory
+     * @param fulfillmentLocation the fulfillment location, or null for the default fulfillment location
+     * @param reference identifies the operation, for example the id of the order being checked out
+     * @return true if the inventory was decremented, false if it had already been decremented for the reference
+     * @throws ConcurrentInventoryModificationException
+     * @throws InventoryUnavailableException
+     */
+    public boolean decrementInventory(Map<Sku, Integer> skuInventory, FulfillmentLocation fulfillmentLocation, String reference) throws ConcurrentInventoryModificationException, InventoryUnavailableException;
+
+    /**
+     * Same as {@link #incrementInventory(Map, FulfillmentLocation)}, but applied at most once for the reference
+     * @param skuInventory
+     * @param fulfillmentLocation the fulfillment location, or null for the default fulfillment location
+     * @param reference identifies the operation, for example the id of the order whose inventory is compensated
+     * @return true if the inventory was incremented, false if it had already been incremented for the reference
+     * @throws ConcurrentInventoryModificationException
+     */
+    public boolean incrementInventory(Map<Sku, Integer> skuInventory, FulfillmentLocation fulfillmentLocation, String reference) throws ConcurrentInventoryModificationException;
+
+    /**
+     * Deletes the records of operations last applied before the date. A reference whose record was deleted is no
+     * longer protected against being applied again.
+     * @param date
+     * @return the number of records deleted
+     */
+    public int purgeInventoryOperations(Date date);
+
     /**
      * Retrieves the {@link Inventory} for the given {@link Sku} and {@link FulfillmentLocation}
      * @param sku {@link Sku}
@@ -116,6 +193,17 @@ public interface InventoryService {
      */
     public Inventory save(Inventory inventory) throws ConcurrentInventoryModificationException;
 
+    /**
+     * Applies a list of relative quantity changes in a single transaction, for example after a stock count at a
+     * fulfillment location. Each change is applied as a guarded relative update, so none of them conflict with
+     * concurrent checkouts. Changes that do not identify a record, that refer to a missing inventory record or that
+     * would make a quantity negative are not applied and are reported as validation failures; the remaining changes
+     * are still applied.
+     * @param adjustments the changes to apply
+     * @return one result per adjustment, in the same order
+     */
+    public List<InventoryAdjustmentResult> adjustInventory(List<InventoryAdjustmentRequest> adjustments);
+
     /**
      * Retrieves skus that do not have inventory records at a particular fulfillment location
      * @param fulfillmentLocation
@@ -123,4 +211,16 @@ public interface InventoryService {
      */
     public List<Sku> readSkusNotAtFulfillmentLocation(FulfillmentLocation fulfillmentLocation);
 
+    /**
+     * Creates an inventory record for each sku at a fulfillment location, for example when a new location is rolled
+     * out. Ids are taken from the given range, which loader threads working on different skus may share; whatever the
+     * range cannot supply is reserved in one step from the {@link InventoryIdAllocator}.
+     * @param skus skus that do not yet have inventory at the location
+     * @param fulfillmentLocation
+     * @param quantity the quantity available and on hand of each new record
+     * @param ids a shared range of reserved ids, or null to reserve a range for this call alone
+     * @return the new records
+     */
+    public List<Inventory> createInventory(List<Sku> skus, FulfillmentLocation fulfillmentLocation, int quantity, InventoryIdRange ids);
+
 }
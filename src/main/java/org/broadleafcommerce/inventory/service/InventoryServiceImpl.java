@@ -18,18 +18,43 @@ package org.broadleafcommerce.inventory.service;
 import org.broadleafcommerce.common.persistence.EntityConfiguration;
 import org.broadleafcommerce.core.catalog.domain.Sku;
 import org.broadleafcommerce.core.inventory.service.type.InventoryType;
+import org.broadleafcommerce.inventory.cache.FulfillmentLocationRegistry;
+import org.broadleafcommerce.inventory.cache.InventoryAvailabilityView;
+import org.broadleafcommerce.inventory.cache.InventoryQuantityIndex;
+import org.broadleafcommerce.inventory.cache.InventorySnapshotRecord;
+import org.broadleafcommerce.inventory.cache.SoldOutSkuRegistry;
 import org.broadleafcommerce.inventory.dao.InventoryDao;
+import org.broadleafcommerce.inventory.dao.InventoryLockMode;
+import org.broadleafcommerce.inventory.dao.InventoryOperationDao;
+import org.broadleafcommerce.inventory.dao.InventoryReplicaLagMonitor;
 import org.broadleafcommerce.inventory.domain.FulfillmentLocation;
 import org.broadleafcommerce.inventory.domain.Inventory;
+import org.broadleafcommerce.inventory.domain.InventoryImpl;
+import org.broadleafcommerce.inventory.domain.InventoryOperation;
 import org.broadleafcommerce.inventory.exception.ConcurrentInventoryModificationException;
 import org.broadleafcommerce.inventory.exception.InventoryUnavailableException;
+import org.broadleafcommerce.inventory.service.call.InventoryAdjustmentRequest;
+import org.broadleafcommerce.inventory.service.call.InventoryAdjustmentResult;
+import org.broadleafcommerce.inventory.service.history.InventoryHistoryService;
+import org.broadleafcommerce.inventory.service.threshold.LowStockDetector;
+import org.broadleafcommerce.inventory.service.type.InventoryChangeReason;
+import org.broadleafcommerce.inventory.service.type.InventoryOperationType;
+import org.broadleafcommerce.inventory.util.InventoryFlightEvent;
+import org.broadleafcommerce.inventory.util.InventoryFlightRecorder;
+import org.broadleafcommerce.inventory.util.InventoryTransactionUtils;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
 import javax.annotation.Resource;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -40,30 +65,84 @@ public class InventoryServiceImpl implements InventoryService {
     @Resource(name="blInventoryDao")
     protected InventoryDao inventoryDao;
 
+    @Resource(name = "blInventoryOperationDao")
+    protected InventoryOperationDao inventoryOperationDao;
+
     @Resource(name = "blEntityConfiguration")
     protected EntityConfiguration entityConfiguration;
 
+    @Resource(name = "blLowStockDetector")
+    protected LowStockDetector lowStockDetector;
+
+    @Resource(name = "blInventoryAvailabilityView")
+    protected InventoryAvailabilityView inventoryAvailabilityView;
+
+    @Resource(name = "blSoldOutSkuRegistry")
+    protected SoldOutSkuRegistry soldOutSkuRegistry;
+
+    @Resource(name = "blInventoryQuantityIndex")
+    protected InventoryQuantityIndex inventoryQuantityIndex;
+
+    @Resource(name = "blInventoryIdAllocator")
+    protected InventoryIdAllocator inventoryIdAllocator;
+
+    @Resource(name = "blFulfillmentLocationRegistry")
+    protected FulfillmentLocationRegistry fulfillmentLocationRegistry;
+
+    @Resource(name = "blInventoryFlightRecorder")
+    protected InventoryFlightRecorder flightRecorder;
+
+    @Resource(name = "blInventoryReplicaLagMonitor")
+    protected InventoryReplicaLagMonitor replicaLagMonitor;
+
+    @Resource(name = "blInventoryHistoryService")
+    protected InventoryHistoryService inventoryHistoryService;
+
+    /**
+     * How inventory is locked while it is decremented. With {@link InventoryLockMode#OPTIMISTIC}, the record is read
+     * without a lock and a concurrent change surfaces as a {@link ConcurrentInventoryModificationException} on save;
+     * with {@link InventoryLockMode#PESSIMISTIC}, the row is locked when it is read and concurrent checkouts queue
+     * behind it instead of retrying.
+     */
+    protected InventoryLockMode decrementLockMode = InventoryLockMode.OPTIMISTIC;
+
+    /**
+     * How inventory is locked while it is incremented
+     */
+    protected InventoryLockMode incrementLockMode = InventoryLockMode.OPTIMISTIC;
+
+    /**
+     * The maximum number of sku ids passed to a single query when checking stock for skus the index does not hold
+     */
+    protected int inStockQueryBatchSize = 500;
+
     @Override
     public boolean isQuantityAvailable(Sku sku, Integer quantity) {
         return isQuantityAvailable(sku, quantity, null);
     }
 
     @Override
-    @Transactional("blTransactionManager")
+    @Transactional(value="blTransactionManager", readOnly=true)
     public boolean isQuantityAvailable(Sku sku, Integer quantity, FulfillmentLocation fulfillmentLocation) {
+        InventoryFlightEvent event = flightRecorder.begin(InventoryFlightRecorder.AVAILABILITY_CHECK);
+        String outcome = InventoryFlightEvent.FAILURE;
+        try {
+            boolean available = checkQuantityAvailable(sku, quantity, fulfillmentLocation);
+            outcome = available ? InventoryFlightEvent.AVAILABLE : InventoryFlightEvent.UNAVAILABLE;
+            return available;
+        } finally {
+            event.end(1, fulfillmentLocation == null ? null : fulfillmentLocation.getId(), 0, outcome);
+        }
+    }
+
+    protected boolean checkQuantityAvailable(Sku sku, Integer quantity, FulfillmentLocation fulfillmentLocation) {
 
         //if the sku does not exist or is not active, there is no quantity available
         if (!sku.isActive()) {
             return false;
         }
 
-        if (sku.getInventoryType() == null
-                && (sku.getProduct().getDefaultCategory() == null
-                || sku.getProduct().getDefaultCategory().getInventoryType() == null)) {
-            return true;
-        } else if (InventoryType.NONE.equals(sku.getInventoryType())
-                || (sku.getProduct().getDefaultCategory() != null
-                && InventoryType.NONE.equals(sku.getProduct().getDefaultCategory().getInventoryType()))){
+        if (!isInventoryTracked(sku)) {
             return true;
         }
 
@@ -74,16 +153,330 @@ public class InventoryServiceImpl implements InventoryService {
 
         Inventory inventory = null;
 
+        //values read from a lagging replica must not outlive the transaction in the node-local caches
+        boolean cacheable = !replicaLagMonitor.isRoutingToReplica();
+
         if (fulfillmentLocation == null) {
             inventory = inventoryDao.readInventoryForDefaultFulfillmentLocation(sku);
+            if (cacheable && inventory != null && inventory.getQuantityAvailable() <= 0) {
+                soldOutSkuRegistry.markSoldOut(sku.getId());
+            }
         } else {
+            if (inventoryAvailabilityView.isEnabled()) {
+                int quantityAvailable = inventoryAvailabilityView.getQuantityAvailable(sku.getId(), fulfillmentLocation.getId());
+                if (quantityAvailable != InventoryAvailabilityView.UNKNOWN) {
+                    return quantityAvailable >= quantity;
+                }
+            }
+            //taken before the read, so that the value is rejected if the record is invalidated while it is read
+            long generation = inventoryAvailabilityView.getGeneration();
             inventory = inventoryDao.readInventory(sku, fulfillmentLocation);
+            if (cacheable && inventory != null && inventoryAvailabilityView.isEnabled()) {
+                inventoryAvailabilityView.putQuantityAvailable(sku.getId(), fulfillmentLocation.getId(),
+                        inventory.getQuantityAvailable(), inventory.getVersion() == null ? 0 : inventory.getVersion(), generation);
+            }
         }
 
         return inventory != null && inventory.getQuantityAvailable() >= quantity;
 
     }
 
+    @Override
+    @Transactional(value="blTransactionManager", readOnly=true)
+    public Map<Sku, Boolean> isQuantityAvailable(Map<Sku, Integer> skuQuantities) {
+        InventoryFlightEvent event = flightRecorder.begin(InventoryFlightRecorder.AVAILABILITY_CHECK);
+        String outcome = InventoryFlightEvent.FAILURE;
+        try {
+            Map<Sku, Boolean> availability = checkQuantityAvailable(skuQuantities);
+            outcome = availability.containsValue(Boolean.FALSE) ? InventoryFlightEvent.UNAVAILABLE : InventoryFlightEvent.AVAILABLE;
+            return availability;
+        } finally {
+            event.end(skuQuantities.size(), null, 0, outcome);
+        }
+    }
+
+    protected Map<Sku, Boolean> checkQuantityAvailable(Map<Sku, Integer> skuQuantities) {
+        FulfillmentLocation defaultLocation = fulfillmentLocationRegistry.readDefault();
+        if (defaultLocation != null && Boolean.TRUE.equals(defaultLocation.getShippingLocation())) {
+            return readAvailabilityForLocations(skuQuantities, Collections.singletonList(defaultLocation)).get(defaultLocation);
+        }
+
+        //without a default shipping location no inventory is found, as with isQuantityAvailable(Sku, Integer)
+        Map<Sku, Boolean> availability = new LinkedHashMap<Sku, Boolean>();
+        for (Sku sku : skuQuantities.keySet()) {
+            availability.put(sku, sku.isActive() && !isInventoryTracked(sku));
+        }
+        return availability;
+    }
+
+    @Override
+    @Transactional(value="blTransactionManager", readOnly=true)
+    public Map<FulfillmentLocation, Boolean> readAvailabilityForLocations(Sku sku, Integer quantity, Collection<FulfillmentLocation> fulfillmentLocations) {
+        Map<Sku, Integer> skuQuantities = new HashMap<Sku, Integer>();
+        skuQuantities.put(sku, quantity);
+
+        Map<FulfillmentLocation, Boolean> availability = new LinkedHashMap<FulfillmentLocation, Boolean>();
+        for (Map.Entry<FulfillmentLocation, Map<Sku, Boolean>> entry : readAvailabilityForLocations(skuQuantities, fulfillmentLocations).entrySet()) {
+            availability.put(entry.getKey(), entry.getValue().get(sku));
+        }
+        return availability;
+    }
+
+    @Override
+    @Transactional(value="blTransactionManager", readOnly=true)
+    public Map<FulfillmentLocation, Map<Sku, Boolean>> readAvailabilityForLocations(Map<Sku, Integer> skuQuantities, Collection<FulfillmentLocation> fulfillmentLocations) {
+        Map<FulfillmentLocation, Map<Sku, Boolean>> availability = new LinkedHashMap<FulfillmentLocation, Map<Sku, Boolean>>();
+        Map<Long, FulfillmentLocation> locationsById = new HashMap<Long, FulfillmentLocation>();
+        for (FulfillmentLocation fulfillmentLocation : fulfillmentLocations) {
+            availability.put(fulfillmentLocation, new LinkedHashMap<Sku, Boolean>());
+            locationsById.put(fulfillmentLocation.getId(), fulfillmentLocation);
+        }
+
+        //skus that are inactive or do not track inventory have the same answer at every location
+        Map<Long, Sku> trackedSkus = new HashMap<Long, Sku>();
+        for (Map.Entry<Sku, Integer> entry : skuQuantities.entrySet()) {
+            Sku sku = entry.getKey();
+            Boolean available;
+            if (!sku.isActive()) {
+                available = Boolean.FALSE;
+            } else if (!isInventoryTracked(sku)) {
+                available = Boolean.TRUE;
+            } else {
+                if (entry.getValue() == null || entry.getValue() < 0) {
+                    throw new IllegalArgumentException("Quantity must be a positive integer");
+                }
+                //stays false unless an inventory record with enough quantity is found
+                available = Boolean.FALSE;
+                trackedSkus.put(sku.getId(), sku);
+            }
+            for (Map<Sku, Boolean> locationAvailability : availability.values()) {
+                locationAvailability.put(sku, available);
+            }
+        }
+
+        List<Inventory> inventories = inventoryDao.readInventoryForSkusAndLocations(trackedSkus.keySet(), locationsById.keySet());
+        for (Inventory inventory : inventories) {
+            Sku sku = trackedSkus.get(inventory.getSku().getId());
+            FulfillmentLocation fulfillmentLocation = locationsById.get(inventory.getFulfillmentLocation().getId());
+            availability.get(fulfillmentLocation).put(sku, inventory.getQuantityAvailable() >= skuQuantities.get(sku));
+        }
+
+        return availability;
+    }
+
+    @Override
+    @Transactional(value="blTransactionManager", readOnly=true)
+    public boolean[] isInStock(long[] skuIds, FulfillmentLocation fulfillmentLocation) {
+        if (fulfillmentLocation == null) {
+            throw new IllegalArgumentException("Fulfillment location cannot be null");
+        }
+        long fulfillmentLocationId = fulfillmentLocation.getId();
+        int[] quantities = new int[skuIds.length];
+        int[] skuStates = new int[skuIds.length];
+        long generation = inventoryQuantityIndex.getGeneration();
+        int unknownSkuStates = inventoryQuantityIndex.getSkuStates(skuIds, skuStates);
+        inventoryQuantityIndex.getQuantitiesAvailable(skuIds, fulfillmentLocationId, quantities);
+
+        //only skus the index cannot answer for are read, and a quantity only matters for skus that track inventory
+        int misses = 0;
+        for (int i = 0; i < skuIds.length; i++) {
+            if (isInStockMiss(skuStates[i], quantities[i])) {
+                misses++;
+            }
+        }
+        if (misses > 0) {
+            long[] missSkuIds = new long[misses];
+            long[] unknownStateSkuIds = new long[unknownSkuStates];
+            int miss = 0;
+            int unknownState = 0;
+            for (int i = 0; i < skuIds.length; i++) {
+                if (isInStockMiss(skuStates[i], quantities[i])) {
+                    missSkuIds[miss++] = skuIds[i];
+                }
+                if (skuStates[i] == InventoryQuantityIndex.UNKNOWN) {
+                    unknownStateSkuIds[unknownState++] = skuIds[i];
+                }
+            }
+            readInStockMisses(skuIds, fulfillmentLocationId, quantities, skuStates, missSkuIds, unknownStateSkuIds, generation);
+        }
+
+        boolean[] inStock = new boolean[skuIds.length];
+        for (int i = 0; i < skuIds.length; i++) {
+            if (skuStates[i] == InventoryQuantityIndex.SKU_INACTIVE) {
+                inStock[i] = false;
+            } else if (skuStates[i] == InventoryQuantityIndex.SKU_UNTRACKED) {
+                inStock[i] = true;
+            } else {
+                inStock[i] = quantities[i] > 0;
+            }
+        }
+        return inStock;
+    }
+
+    protected boolean isInStockMiss(int skuState, int quantity) {
+        return skuState == InventoryQuantityIndex.UNKNOWN
+                || (skuState == InventoryQuantityIndex.SKU_TRACKED && quantity == InventoryQuantityIndex.UNKNOWN);
+    }
+
+    /**
+     * Reads the quantities and sku states the index did not hold, in batches of {@link #inStockQueryBatchSize}, fills
+     * them in at every position of the sku ids, and puts them into the index
+     * @param skuIds
+     * @param fulfillmentLocationId
+     * @param quantities
+     * @param skuStates
+     * @param missSkuIds the skus whose quantity is needed
+     * @param unknownStateSkuIds the skus whose state is needed
+     * @param generation the index generation taken before the index was read
+     */
+    protected void readInStockMisses(long[] skuIds, long fulfillmentLocationId, int[] quantities, int[] skuStates,
+            long[] missSkuIds, long[] unknownStateSkuIds, long generation) {
+        boolean cacheable = !replicaLagMonitor.isRoutingToReplica();
+        int missCount = sortDistinct(missSkuIds);
+        int unknownStateCount = sortDistinct(unknownStateSkuIds);
+
+        //a missing record is held as zero, saving it later invalidates the slot
+        int[] missQuantities = new int[missCount];
+        List<Long> fulfillmentLocationIds = Collections.singletonList(fulfillmentLocationId);
+        for (int i = 0; i < missCount; i += inStockQueryBatchSize) {
+            List<Long> batch = toList(missSkuIds, i, Math.min(i + inStockQueryBatchSize, missCount));
+            for (Inventory inventory : inventoryDao.readInventoryForSkusAndLocations(batch, fulfillmentLocationIds)) {
+                missQuantities[Arrays.binarySearch(missSkuIds, 0, missCount, inventory.getSku().getId())] = inventory.getQuantityAvailable();
+            }
+        }
+
+        //a sku that no longer exists keeps an unknown state and is answered by its quantity, which is zero
+        int[] unknownStates = new int[unknownStateCount];
+        Arrays.fill(unknownStates, InventoryQuantityIndex.UNKNOWN);
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < unknownStateCount; i += inStockQueryBatchSize) {
+            List<Long> batch = toList(unknownStateSkuIds, i, Math.min(i + inStockQueryBatchSize, unknownStateCount));
+            for (Sku sku : inventoryDao.readSkus(batch)) {
+                int state = getSkuState(sku);
+                unknownStates[Arrays.binarySearch(unknownStateSkuIds, 0, unknownStateCount, sku.getId())] = state;
+                if (cacheable) {
+                    inventoryQuantityIndex.putSkuState(sku.getId(), state, getSkuStateExpiry(sku, now), generation);
+                }
+            }
+        }
+
+        if (cacheable) {
+            for (int i = 0; i < missCount; i++) {
+                inventoryQuantityIndex.putQuantityAvailable(missSkuIds[i], fulfillmentLocationId, missQuantities[i], generation);
+            }
+        }
+        for (int i = 0; i < skuIds.length; i++) {
+            if (skuStates[i] == InventoryQuantityIndex.UNKNOWN) {
+                skuStates[i] = unknownStates[Arrays.binarySearch(unknownStateSkuIds, 0, unknownStateCount, skuIds[i])];
+            }
+            if (quantities[i] == InventoryQuantityIndex.UNKNOWN) {
+                int position = Arrays.binarySearch(missSkuIds, 0, missCount, skuIds[i]);
+                quantities[i] = position < 0 ? 0 : missQuantities[position];
+            }
+        }
+    }
+
+    /**
+     * Sorts the ids and moves each distinct id to the front
+     * @return the number of distinct ids
+     */
+    protected static int sortDistinct(long[] ids) {
+        Arrays.sort(ids);
+        int count = 0;
+        for (int i = 0; i < ids.length; i++) {
+            if (count == 0 || ids[i] != ids[count - 1]) {
+                ids[count++] = ids[i];
+            }
+        }
+        return count;
+    }
+
+    protected static List<Long> toList(long[] ids, int from, int to) {
+        List<Long> list = new ArrayList<Long>(to - from);
+        for (int i = from; i < to; i++) {
+            list.add(ids[i]);
+        }
+        return list;
+    }
+
+    /**
+     * Applies the same rules as {@link #checkQuantityAvailable(Sku, Integer, FulfillmentLocation)}: inactive skus are
+     * never in stock and skus that do not track inventory always are
+     * @param sku
+     * @return the {@link InventoryQuantityIndex} sku state
+     */
+    protected int getSkuState(Sku sku) {
+        if (!sku.isActive()) {
+            return InventoryQuantityIndex.SKU_INACTIVE;
+        }
+        return isInventoryTracked(sku) ? InventoryQuantityIndex.SKU_TRACKED : InventoryQuantityIndex.SKU_UNTRACKED;
+    }
+
+    /**
+     * @param sku
+     * @param now
+     * @return the next time the sku's active period starts or ends, at which its state has to be read again, or zero
+     */
+    protected long getSkuStateExpiry(Sku sku, long now) {
+        long expiresAt = 0;
+        Date activeStartDate = sku.getActiveStartDate();
+        if (activeStartDate != null && activeStartDate.getTime() > now) {
+            expiresAt = activeStartDate.getTime();
+        }
+        Date activeEndDate = sku.getActiveEndDate();
+        if (activeEndDate != null && activeEndDate.getTime() > now && (expiresAt == 0 || activeEndDate.getTime() < expiresAt)) {
+            expiresAt = activeEndDate.getTime();
+        }
+        return expiresAt;
+    }
+
+    /**
+     * Marks the sku only once the change's own invalidation has been delivered, which would otherwise clear the mark
+     * straight away on this node
+     * @param skuId
+     */
+    protected void markSoldOutAfterCommit(final Long skuId) {
+        InventoryTransactionUtils.runAfterInvalidation(new Runnable() {
+            @Override
+            public void run() {
+                soldOutSkuRegistry.markSoldOut(skuId);
+            }
+        });
+    }
+
+    /**
+     * Clears the sold out mark only once the change commits, so that a concurrent check reading the old quantity
+     * cannot mark the sku again after it was cleared
+     * @param skuId
+     */
+    protected void clearSoldOutAfterCommit(final Long skuId) {
+        InventoryTransactionUtils.runAfterCommit(new Runnable() {
+            @Override
+            public void run() {
+                soldOutSkuRegistry.clear(skuId);
+            }
+        });
+    }
+
+    /**
+     * Determines whether inventory is tracked for the sku, based on the inventory type of the sku or, if that is not
+     * set, of its default category. Skus whose inventory is not tracked are always available.
+     * @param sku
+     * @return true if the sku or its default category has an inventory type other than {@link InventoryType#NONE}
+     */
+    protected boolean isInventoryTracked(Sku sku) {
+        if (sku.getInventoryType() == null
+                && (sku.getProduct().getDefaultCategory() == null
+                || sku.getProduct().getDefaultCategory().getInventoryType() == null)) {
+            return false;
+        } else if (InventoryType.NONE.equals(sku.getInventoryType())
+                || (sku.getProduct().getDefaultCategory() != null
+                && InventoryType.NONE.equals(sku.getProduct().getDefaultCategory().getInventoryType()))){
+            return false;
+        }
+        return true;
+    }
+
     @Override
     @Transactional(propagation= Propagation.REQUIRES_NEW,value="blTransactionManager", rollbackFor={InventoryUnavailableException.class,ConcurrentInventoryModificationException.class})
     public void decrementInventory(Map<Sku, Integer> skuInventory) throws ConcurrentInventoryModificationException, InventoryUnavailableException {
@@ -93,6 +486,27 @@ public class InventoryServiceImpl implements InventoryService {
     @Override
     @Transactional(propagation= Propagation.REQUIRES_NEW,value="blTransactionManager", rollbackFor={InventoryUnavailableException.class,ConcurrentInventoryModificationException.class})
     public void decrementInventory(Map<Sku, Integer> skuInventory, FulfillmentLocation fulfillmentLocation) throws ConcurrentInventoryModificationException, InventoryUnavailableException {
+        decrementInventory(skuInventory, fulfillmentLocation, null, InventoryChangeReason.CHECKOUT);
+    }
+
+    protected void decrementInventory(Map<Sku, Integer> skuInventory, FulfillmentLocation fulfillmentLocation, String reference, InventoryChangeReason reason) throws ConcurrentInventoryModificationException, InventoryUnavailableException {
+        InventoryFlightEvent event = flightRecorder.begin(InventoryFlightRecorder.DECREMENT);
+        String outcome = InventoryFlightEvent.FAILURE;
+        try {
+            doDecrementInventory(skuInventory, fulfillmentLocation, reference, reason);
+            outcome = InventoryFlightEvent.SUCCESS;
+        } catch (InventoryUnavailableException e) {
+            outcome = InventoryFlightEvent.UNAVAILABLE;
+            throw e;
+        } catch (ConcurrentInventoryModificationException e) {
+            outcome = InventoryFlightEvent.CONFLICT;
+            throw e;
+        } finally {
+            event.end(skuInventory.size(), fulfillmentLocation == null ? null : fulfillmentLocation.getId(), 0, outcome);
+        }
+    }
+
+    protected void doDecrementInventory(Map<Sku, Integer> skuInventory, FulfillmentLocation fulfillmentLocation, String reference, InventoryChangeReason reason) throws ConcurrentInventoryModificationException, InventoryUnavailableException {
 
         Set<Sku> skus = skuInventory.keySet();
         Map<Long, Integer> unavailableInventoryHolder = new HashMap<Long, Integer>();
@@ -121,10 +535,18 @@ public class InventoryServiceImpl implements InventoryService {
 
             //check available inventory
             Inventory inventory = null;
-            if (fulfillmentLocation != null) {
-                inventory = inventoryDao.readInventory(sku, fulfillmentLocation);
+            if (decrementLockMode == InventoryLockMode.OPTIMISTIC) {
+                if (fulfillmentLocation != null) {
+                    inventory = inventoryDao.readInventory(sku, fulfillmentLocation);
+                } else {
+                    inventory = inventoryDao.readInventoryForDefaultFulfillmentLocation(sku);
+                }
             } else {
-                inventory = inventoryDao.readInventoryForDefaultFulfillmentLocation(sku);
+                if (fulfillmentLocation != null) {
+                    inventory = inventoryDao.readInventoryForUpdate(sku, fulfillmentLocation, decrementLockMode);
+                } else {
+                    inventory = inventoryDao.readInventoryForUpdateForDefaultFulfillmentLocation(sku, decrementLockMode);
+                }
             }
 
             if (inventory != null) {
@@ -136,7 +558,12 @@ public class InventoryServiceImpl implements InventoryService {
                     unavailableInventoryHolder.put(sku.getId(), quantityAvailable);
                 } else {
                     inventory.setQuantityAvailable(qtyToUpdate);
-                    inventoryDao.save(inventory); //this call could throw ConcurrentInventoryModificationException
+                    inventory = inventoryDao.save(inventory); //this call could throw ConcurrentInventoryModificationException
+                    lowStockDetector.evaluate(inventory, quantityAvailable);
+                    inventoryHistoryService.recordChange(inventory, quantityAvailable, inventory.getQuantityOnHand(), reason, reference);
+                    if (fulfillmentLocation == null && qtyToUpdate == 0) {
+                        markSoldOutAfterCommit(sku.getId());
+                    }
                 }
 
             } else {
@@ -156,6 +583,35 @@ public class InventoryServiceImpl implements InventoryService {
     @Override
     @Transactional(propagation= Propagation.REQUIRES_NEW,value="blTransactionManager", rollbackFor={InventoryUnavailableException.class,ConcurrentInventoryModificationException.class})
     public void incrementInventory(Map<Sku, Integer> skuInventory, FulfillmentLocation fulfillmentLocation) throws ConcurrentInventoryModificationException {
+        incrementInventory(skuInventory, fulfillmentLocation, null, InventoryChangeReason.COMPENSATION);
+    }
+
+    /**
+     * @param skuInventory
+     * @param fulfillmentLocation the location to increment at, or null for the default fulfillment location
+     * @param reference
+     * @param reason
+     * @throws ConcurrentInventoryModificationException
+     */
+    protected void incrementInventory(Map<Sku, Integer> skuInventory, FulfillmentLocation fulfillmentLocation, String reference, InventoryChangeReason reason) throws ConcurrentInventoryModificationException {
+        InventoryFlightEvent event = flightRecorder.begin(InventoryFlightRecorder.INCREMENT);
+        String outcome = InventoryFlightEvent.FAILURE;
+        try {
+            if (fulfillmentLocation == null) {
+                doIncrementInventory(skuInventory, reference, reason);
+            } else {
+                doIncrementInventory(skuInventory, fulfillmentLocation, reference, reason);
+            }
+            outcome = InventoryFlightEvent.SUCCESS;
+        } catch (ConcurrentInventoryModificationException e) {
+            outcome = InventoryFlightEvent.CONFLICT;
+            throw e;
+        } finally {
+            event.end(skuInventory.size(), fulfillmentLocation == null ? null : fulfillmentLocation.getId(), 0, outcome);
+        }
+    }
+
+    protected void doIncrementInventory(Map<Sku, Integer> skuInventory, FulfillmentLocation fulfillmentLocation, String reference, InventoryChangeReason reason) throws ConcurrentInventoryModificationException {
         //TODO
         Set<Sku> skus = skuInventory.keySet();
         for (Sku sku : skus) {
@@ -179,11 +635,19 @@ public class InventoryServiceImpl implements InventoryService {
                 continue;
             }
 
-            Inventory inventory = readInventory(sku, fulfillmentLocation);
+            Inventory inventory;
+            if (incrementLockMode == InventoryLockMode.OPTIMISTIC) {
+                inventory = readInventory(sku, fulfillmentLocation);
+            } else {
+                inventory = inventoryDao.readInventoryForUpdate(sku, fulfillmentLocation, incrementLockMode);
+            }
+            clearSoldOutAfterCommit(sku.getId());
 
             if (inventory != null) {
-                inventory.setQuantityAvailable(inventory.getQuantityAvailable() + quantity);
-                inventoryDao.save(inventory);
+                Integer previousQuantityAvailable = inventory.getQuantityAvailable();
+                inventory.setQuantityAvailable(previousQuantityAvailable + quantity);
+                inventory = inventoryDao.save(inventory);
+                inventoryHistoryService.recordChange(inventory, previousQuantityAvailable, inventory.getQuantityOnHand(), reason, reference);
             } else {
                 /*
                  * create a new inventory record if one does not exist
@@ -193,7 +657,8 @@ public class InventoryServiceImpl implements InventoryService {
                 inventory.setQuantityOnHand(quantity);
                 inventory.setSku(sku);
                 inventory.setFulfillmentLocation(fulfillmentLocation);
-                inventoryDao.save(inventory);
+                inventory = inventoryDao.save(inventory);
+                inventoryHistoryService.recordChange(inventory, 0, 0, reason, reference);
             }
 
         }
@@ -202,6 +667,10 @@ public class InventoryServiceImpl implements InventoryService {
     @Override
     @Transactional(propagation= Propagation.REQUIRES_NEW,value="blTransactionManager", rollbackFor={InventoryUnavailableException.class,ConcurrentInventoryModificationException.class})
     public void incrementInventory(Map<Sku, Integer> skuInventory) throws ConcurrentInventoryModificationException {
+        incrementInventory(skuInventory, null, null, InventoryChangeReason.COMPENSATION);
+    }
+
+    protected void doIncrementInventory(Map<Sku, Integer> skuInventory, String reference, InventoryChangeReason reason) throws ConcurrentInventoryModificationException {
         
         Set<Sku> skus = skuInventory.keySet();
         for (Sku sku : skus) {
@@ -229,11 +698,14 @@ public class InventoryServiceImpl implements InventoryService {
                 continue;
             }
 
-            Inventory inventory = inventoryDao.readInventoryForUpdateForDefaultFulfillmentLocation(sku);
+            Inventory inventory = inventoryDao.readInventoryForUpdateForDefaultFulfillmentLocation(sku, incrementLockMode);
+            clearSoldOutAfterCommit(sku.getId());
 
             if (inventory != null) {
-                inventory.setQuantityAvailable(inventory.getQuantityAvailable() + quantity);
-                inventoryDao.save(inventory);
+                Integer previousQuantityAvailable = inventory.getQuantityAvailable();
+                inventory.setQuantityAvailable(previousQuantityAvailable + quantity);
+                inventory = inventoryDao.save(inventory);
+                inventoryHistoryService.recordChange(inventory, previousQuantityAvailable, inventory.getQuantityOnHand(), reason, reference);
             } else {
                 throw new IllegalStateException("There was a call to InventoryServiceImpl.incrementInventory for a default fulfillment location, but no default " +
                         "inventory for the sku: " + sku.getId() + " could be found!");
@@ -242,20 +714,72 @@ public class InventoryServiceImpl implements InventoryService {
         }
     }
 
+    @Override
+    @Transactional(propagation= Propagation.REQUIRES_NEW,value="blTransactionManager", rollbackFor={InventoryUnavailableException.class,ConcurrentInventoryModificationException.class})
+    public boolean decrementInventory(Map<Sku, Integer> skuInventory, FulfillmentLocation fulfillmentLocation, String reference) throws ConcurrentInventoryModificationException, InventoryUnavailableException {
+        if (!recordOperation(reference, InventoryOperationType.DECREMENT)) {
+            return false;
+        }
+        decrementInventory(skuInventory, fulfillmentLocation, reference, InventoryChangeReason.CHECKOUT);
+        return true;
+    }
+
+    @Override
+    @Transactional(propagation= Propagation.REQUIRES_NEW,value="blTransactionManager", rollbackFor={InventoryUnavailableException.class,ConcurrentInventoryModificationException.class})
+    public boolean incrementInventory(Map<Sku, Integer> skuInventory, FulfillmentLocation fulfillmentLocation, String reference) throws ConcurrentInventoryModificationException {
+        if (!recordOperation(reference, InventoryOperationType.INCREMENT)) {
+            return false;
+        }
+        incrementInventory(skuInventory, fulfillmentLocation, reference, InventoryChangeReason.COMPENSATION);
+        return true;
+    }
+
+    /**
+     * Records that the operation is being applied for the reference, in the current transaction
+     * @param reference
+     * @param operationType
+     * @return false if the same operation was the last one applied for the reference, in which case nothing is
+     * recorded and the operation should be skipped
+     * @throws ConcurrentInventoryModificationException if another request is recording the same reference
+     */
+    protected boolean recordOperation(String reference, InventoryOperationType operationType) throws ConcurrentInventoryModificationException {
+        if (reference == null) {
+            throw new IllegalArgumentException("An operation reference is required");
+        }
+        InventoryOperation operation = inventoryOperationDao.readByReference(reference);
+        if (operation != null && operationType.equals(operation.getOperationType())) {
+            return false;
+        }
+        if (operation == null) {
+            operation = (InventoryOperation) entityConfiguration.createEntityInstance(InventoryOperation.class.getName());
+            operation.setReference(reference);
+        }
+        operation.setOperationType(operationType);
+        operation.setDateUpdated(new Date());
+        inventoryOperationDao.save(operation);
+        return true;
+    }
+
     @Override
     @Transactional(value="blTransactionManager")
+    public int purgeInventoryOperations(Date date) {
+        return inventoryOperationDao.deleteOperationsUpdatedBefore(date);
+    }
+
+    @Override
+    @Transactional(value="blTransactionManager", readOnly=true)
     public Inventory readInventory(Sku sku, FulfillmentLocation fulfillmentLocation) {
         return inventoryDao.readInventory(sku, fulfillmentLocation);
     }
 
     @Override
-    @Transactional(value="blTransactionManager")
+    @Transactional(value="blTransactionManager", readOnly=true)
     public Inventory readInventory(Sku sku) {
         return inventoryDao.readInventoryForDefaultFulfillmentLocation(sku);
     }
 
     @Override
-    @Transactional(value="blTransactionManager")
+    @Transactional(value="blTransactionManager", readOnly=true)
     public List<Inventory> readInventoryForFulfillmentLocation(FulfillmentLocation fulfillmentLocation) {
         return inventoryDao.readInventoryForFulfillmentLocation(fulfillmentLocation);
     }
@@ -263,12 +787,117 @@ public class InventoryServiceImpl implements InventoryService {
     @Override
     @Transactional(value="blTransactionManager")
     public Inventory save(Inventory inventory) throws ConcurrentInventoryModificationException {
-        return inventoryDao.save(inventory);
+        if (inventory.getSku() != null) {
+            clearSoldOutAfterCommit(inventory.getSku().getId());
+        }
+        InventorySnapshotRecord previous = inventory.getId() == null ? null : inventoryDao.readInventoryRecord(inventory.getId());
+        inventory = inventoryDao.save(inventory);
+        int previousQuantityAvailable = previous == null ? 0 : previous.getQuantityAvailable();
+        int previousQuantityOnHand = previous == null ? 0 : previous.getQuantityOnHand();
+        if (previousQuantityAvailable != inventory.getQuantityAvailable() || previousQuantityOnHand != inventory.getQuantityOnHand()) {
+            inventoryHistoryService.recordChange(inventory, previousQuantityAvailable, previousQuantityOnHand,
+                    InventoryChangeReason.ADMIN, null);
+        }
+        return inventory;
     }
 
     @Override
     @Transactional(value="blTransactionManager")
+    public List<InventoryAdjustmentResult> adjustInventory(List<InventoryAdjustmentRequest> adjustments) {
+        List<InventoryAdjustmentResult> results = new ArrayList<InventoryAdjustmentResult>(adjustments.size());
+        for (InventoryAdjustmentRequest adjustment : adjustments) {
+            results.add(adjustInventory(adjustment));
+        }
+        return results;
+    }
+
+    protected InventoryAdjustmentResult adjustInventory(InventoryAdjustmentRequest adjustment) {
+        InventoryAdjustmentResult result = new InventoryAdjustmentResult(adjustment);
+        Inventory inventory;
+        if (adjustment.getInventoryId() != null) {
+            inventory = inventoryDao.adjustQuantities(adjustment.getInventoryId(),
+                    adjustment.getQuantityAvailableChange(), adjustment.getQuantityOnHandChange());
+        } else if (adjustment.getSkuId() != null && adjustment.getFulfillmentLocationId() != null) {
+            inventory = inventoryDao.adjustQuantitiesForSkuAndLocation(adjustment.getSkuId(), adjustment.getFulfillmentLocationId(),
+                    adjustment.getQuantityAvailableChange(), adjustment.getQuantityOnHandChange());
+        } else {
+            //reported like any other invalid row rather than failing the rest of the batch
+            result.setValidationError(InventoryAdjustmentResult.QUANTITY_AVAILABLE_CHANGE_FIELD, InventoryAdjustmentResult.INVENTORY_NOT_SPECIFIED);
+            return result;
+        }
+
+        if (inventory != null) {
+            lowStockDetector.evaluate(inventory, inventory.getQuantityAvailable() - adjustment.getQuantityAvailableChange());
+            inventoryHistoryService.recordChange(inventory, inventory.getQuantityAvailable() - adjustment.getQuantityAvailableChange(),
+                    inventory.getQuantityOnHand() - adjustment.getQuantityOnHandChange(), adjustment.getReason(), null);
+            clearSoldOutAfterCommit(inventory.getSku().getId());
+            result.setInventory(inventory);
+            return result;
+        }
+
+        //nothing was updated; work out why so the failure can be reported against the right field
+        Inventory current;
+        if (adjustment.getInventoryId() != null) {
+            current = inventoryDao.readById(adjustment.getInventoryId());
+        } else {
+            current = inventoryDao.readInventory(adjustment.getSkuId(), adjustment.getFulfillmentLocationId());
+        }
+        if (current == null) {
+            result.setValidationError(InventoryAdjustmentResult.QUANTITY_AVAILABLE_CHANGE_FIELD, InventoryAdjustmentResult.INVENTORY_NOT_FOUND);
+        } else if (current.getQuantityAvailable() + adjustment.getQuantityAvailableChange() < 0) {
+            result.setValidationError(InventoryAdjustmentResult.QUANTITY_AVAILABLE_CHANGE_FIELD, InventoryAdjustmentResult.QUANTITY_AVAILABLE_IS_NEGATIVE);
+        } else {
+            result.setValidationError(InventoryAdjustmentResult.QUANTITY_ON_HAND_CHANGE_FIELD, InventoryAdjustmentResult.QUANTITY_ON_HAND_IS_NEGATIVE);
+        }
+        result.setInventory(current);
+        return result;
+    }
+
+    @Override
+    @Transactional(value="blTransactionManager", readOnly=true)
     public List<Sku> readSkusNotAtFulfillmentLocation(FulfillmentLocation fulfillmentLocation) {
         return inventoryDao.readSkusNotAtFulfillmentLocation(fulfillmentLocation);
     }
+
+    @Override
+    @Transactional(value="blTransactionManager")
+    public List<Inventory> createInventory(List<Sku> skus, FulfillmentLocation fulfillmentLocation, int quantity, InventoryIdRange ids) {
+        List<Inventory> inventories = new ArrayList<Inventory>(skus.size());
+        InventoryIdRange ownIds = null;
+        for (int i = 0; i < skus.size(); i++) {
+            long id = ids == null ? InventoryIdRange.EXHAUSTED : ids.next();
+            if (id == InventoryIdRange.EXHAUSTED && ownIds != null) {
+                id = ownIds.next();
+            }
+            if (id == InventoryIdRange.EXHAUSTED) {
+                //the generator is declared on InventoryImpl, so extensions share its segment
+                ownIds = inventoryIdAllocator.reserve(InventoryImpl.class, skus.size() - i);
+                id = ownIds.next();
+            }
+
+            Inventory inventory = (Inventory) entityConfiguration.createEntityInstance(Inventory.class.getName());
+            inventory.setId(id);
+            inventory.setQuantityAvailable(quantity);
+            inventory.setQuantityOnHand(quantity);
+            inventory.setSku(skus.get(i));
+            inventory.setFulfillmentLocation(fulfillmentLocation);
+            inventories.add(inventory);
+        }
+        inventoryDao.createAll(inventories);
+        for (Inventory inventory : inventories) {
+            //a new record has no previous quantity, so one created below its threshold is signalled straight away
+            lowStockDetector.evaluate(inventory, Integer.MAX_VALUE);
+            inventoryHistoryService.recordChange(inventory, 0, 0, InventoryChangeReason.IMPORT, null);
+        }
+        return inventories;
+    }
+
+    public void setDecrementLockMode(InventoryLockMode decrementLockMode) {
+        this.decrementLockMode = decrementLockMode;
+    }
+
+    public void setIncrementLockMode(InventoryLockMode incrementLockMode) {
+        this.incrementLockMode = incrementLockMode;
+    }
+
 }
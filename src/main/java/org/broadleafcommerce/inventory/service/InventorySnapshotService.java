@@ -0,0 +1,72 @@
+/**
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.broadleafcommerce.inventory.service;
+
+import org.broadleafcommerce.inventory.cache.MappedInventorySnapshot;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Exports the quantities of all inventory to a compact snapshot file and uses such a file to warm start the node's
+ * {@link org.broadleafcommerce.inventory.cache.InventoryAvailabilityView}, so that a freshly deployed node does not
+ * have to query the database for each sku it is asked about.
+ *
+ * If the <code>warmStartFile</code> property is set and the file exists when the application context starts, the
+ * view is populated from it immediately and then caught up with the database in the background.
+ *
+ * A warm start saves the node from hydrating an entity per sku it is asked about, but not from reading the inventory
+ * table: inventory records carry no change marker that is ordered across rows, only a version per row, so the
+ * catch-up still reads every record once, as paged projections of five columns, to find those that changed. The
+ * view answers from the snapshot while that read runs, and invalidations received meanwhile are applied as usual.
+ * The view holds at most its configured capacity, so a snapshot larger than that is only partly loaded.
+ */
+public interface InventorySnapshotService {
+
+    /**
+     * Writes a snapshot of all inventory records to the file, replacing it if it exists
+     * @param file
+     * @return the number of records written
+     * @throws IOException
+     */
+    public int exportSnapshot(File file) throws IOException;
+
+    /**
+     * Memory maps a snapshot file written by {@link #exportSnapshot(File)}
+     * @param file
+     * @return the mapped snapshot
+     * @throws IOException
+     */
+    public MappedInventorySnapshot loadSnapshot(File file) throws IOException;
+
+    /**
+     * Populates the availability view with every record in the snapshot
+     * @param snapshot
+     * @return the number of records loaded
+     */
+    public int populateView(MappedInventorySnapshot snapshot);
+
+    /**
+     * Brings the availability view up to date with changes made since the snapshot was exported. Every record is
+     * streamed from the database as a flat projection, and only those whose version differs from the snapshot are
+     * applied to the view. Records in the snapshot that have since been deleted are removed from the view. This
+     * costs one paged read of the whole inventory table, whatever the number of changes.
+     * @param snapshot
+     * @return the number of records that had changed or been deleted since the snapshot
+     */
+    public int catchUp(MappedInventorySnapshot snapshot);
+
+}
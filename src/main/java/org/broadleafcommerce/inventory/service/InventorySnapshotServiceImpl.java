@@ -0,0 +1,210 @@
+/**
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.broadleafcommerce.inventory.service;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.broadleafcommerce.inventory.cache.InventoryAvailabilityView;
+import org.broadleafcommerce.inventory.cache.InventorySnapshotRecord;
+import org.broadleafcommerce.inventory.cache.MappedInventorySnapshot;
+import org.broadleafcommerce.inventory.dao.InventoryDao;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.Resource;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+@Service("blInventorySnapshotService")
+public class InventorySnapshotServiceImpl implements InventorySnapshotService, ApplicationListener<ContextRefreshedEvent> {
+
+    private static final Log LOG = LogFactory.getLog(InventorySnapshotServiceImpl.class);
+
+    @Resource(name = "blInventoryDao")
+    protected InventoryDao inventoryDao;
+
+    @Resource(name = "blInventoryAvailabilityView")
+    protected InventoryAvailabilityView inventoryAvailabilityView;
+
+    /**
+     * The number of records read from the database per query
+     */
+    protected int pageSize = 1000;
+
+    /**
+     * The snapshot file used to warm start the availability view when the application context starts, if any
+     */
+    protected String warmStartFile;
+
+    protected final AtomicBoolean warmStarted = new AtomicBoolean(false);
+
+    @Override
+    public int exportSnapshot(File file) throws IOException {
+        File temp = new File(file.getPath() + ".tmp");
+        int count = 0;
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp), 64 * 1024));
+        try {
+            out.writeInt(MappedInventorySnapshot.MAGIC);
+            out.writeInt(MappedInventorySnapshot.FORMAT_VERSION);
+            //the record count is filled in once it is known
+            out.writeInt(0);
+            out.writeLong(System.currentTimeMillis());
+
+            long lastSkuId = 0;
+            long lastFulfillmentLocationId = 0;
+            List<InventorySnapshotRecord> page;
+            do {
+                page = inventoryDao.readInventorySnapshotRecords(lastSkuId, lastFulfillmentLocationId, pageSize);
+                for (InventorySnapshotRecord record : page) {
+                    out.writeLong(record.getSkuId());
+                    out.writeLong(record.getFulfillmentLocationId());
+                    out.writeInt(record.getQuantityAvailable());
+                    out.writeInt(record.getQuantityOnHand());
+                    out.writeLong(record.getVersion());
+                    lastSkuId = record.getSkuId();
+                    lastFulfillmentLocationId = record.getFulfillmentLocationId();
+                    count++;
+                }
+            } while (page.size() == pageSize);
+        } finally {
+            out.close();
+        }
+
+        RandomAccessFile raf = new RandomAccessFile(temp, "rw");
+        try {
+            raf.seek(MappedInventorySnapshot.RECORD_COUNT_OFFSET);
+            raf.writeInt(count);
+        } finally {
+            raf.close();
+        }
+
+        //readers only ever see a complete file
+        if (file.exists() && !file.delete()) {
+            throw new IOException("Unable to replace the inventory snapshot at " + file.getPath());
+        }
+        if (!temp.renameTo(file)) {
+            throw new IOException("Unable to move the inventory snapshot to " + file.getPath());
+        }
+        return count;
+    }
+
+    @Override
+    public MappedInventorySnapshot loadSnapshot(File file) throws IOException {
+        return MappedInventorySnapshot.map(file);
+    }
+
+    @Override
+    public int populateView(MappedInventorySnapshot snapshot) {
+        long generation = inventoryAvailabilityView.getGeneration();
+        for (int i = 0; i < snapshot.size(); i++) {
+            inventoryAvailabilityView.putQuantityAvailable(snapshot.getSkuId(i), snapshot.getFulfillmentLocationId(i),
+                    snapshot.getQuantityAvailable(i), snapshot.getVersion(i), generation);
+        }
+        return snapshot.size();
+    }
+
+    @Override
+    public int catchUp(MappedInventorySnapshot snapshot) {
+        int changed = 0;
+        long lastSkuId = 0;
+        long lastFulfillmentLocationId = 0;
+        //records of the snapshot still in the database; the rest were deleted since it was exported
+        BitSet found = new BitSet(snapshot.size());
+        List<InventorySnapshotRecord> page;
+        do {
+            long generation = inventoryAvailabilityView.getGeneration();
+            page = inventoryDao.readInventorySnapshotRecords(lastSkuId, lastFulfillmentLocationId, pageSize);
+            for (InventorySnapshotRecord record : page) {
+                int index = snapshot.indexOf(record.getSkuId(), record.getFulfillmentLocationId());
+                if (index >= 0) {
+                    found.set(index);
+                }
+                if (index < 0 || snapshot.getVersion(index) != record.getVersion()) {
+                    inventoryAvailabilityView.putQuantityAvailable(record.getSkuId(), record.getFulfillmentLocationId(),
+                            record.getQuantityAvailable(), record.getVersion(), generation);
+                    changed++;
+                }
+                lastSkuId = record.getSkuId();
+                lastFulfillmentLocationId = record.getFulfillmentLocationId();
+            }
+        } while (page.size() == pageSize);
+
+        for (int i = found.nextClearBit(0); i < snapshot.size(); i = found.nextClearBit(i + 1)) {
+            inventoryAvailabilityView.remove(snapshot.getSkuId(i), snapshot.getFulfillmentLocationId(i));
+            changed++;
+        }
+        return changed;
+    }
+
+    @Override
+    public void onApplicationEvent(ContextRefreshedEvent event) {
+        if (warmStartFile == null || !warmStarted.compareAndSet(false, true)) {
+            return;
+        }
+        if (!inventoryAvailabilityView.isEnabled()) {
+            LOG.warn("An inventory snapshot is configured for warm start, but the inventory availability view is disabled");
+            return;
+        }
+        File file = new File(warmStartFile);
+        if (!file.exists()) {
+            LOG.info("No inventory snapshot found at " + file.getPath() + ", the inventory availability view will start cold");
+            return;
+        }
+
+        final MappedInventorySnapshot snapshot;
+        try {
+            snapshot = loadSnapshot(file);
+        } catch (Exception e) {
+            LOG.error("Unable to load the inventory snapshot at " + file.getPath() + ", the inventory availability view will start cold", e);
+            return;
+        }
+        int loaded = populateView(snapshot);
+        LOG.info("Loaded " + loaded + " inventory records from the snapshot at " + file.getPath());
+
+        //the snapshot is served while the changes made since it was exported are read in the background
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    int changed = catchUp(snapshot);
+                    LOG.info("Caught up " + changed + " inventory records changed since the snapshot was exported");
+                } catch (RuntimeException e) {
+                    LOG.error("Unable to catch the inventory availability view up with the database", e);
+                }
+            }
+        }, "blInventorySnapshotCatchUp");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    public void setPageSize(int pageSize) {
+        this.pageSize = pageSize;
+    }
+
+    public void setWarmStartFile(String warmStartFile) {
+        this.warmStartFile = warmStartFile;
+    }
+
+}
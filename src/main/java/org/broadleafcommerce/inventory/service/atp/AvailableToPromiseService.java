@@ -0,0 +1,100 @@
+/**
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.broadleafcommerce.inventory.service.atp;
+
+import org.broadleafcommerce.core.catalog.domain.Sku;
+import org.broadleafcommerce.inventory.domain.FulfillmentLocation;
+import org.broadleafcommerce.inventory.domain.Inventory;
+
+import java.util.Date;
+import java.util.SortedMap;
+
+/**
+ * Calculates available-to-promise quantities for backorders and preorders by combining the current quantity
+ * available of an {@link Inventory} with the quantities expected to arrive over time at its fulfillment location.
+ *
+ * Inbound quantities are held in an in-memory index sorted by date, which is fed by whatever system knows about
+ * purchase orders and transfers. Answering a question costs a binary search, so it is cheap enough to do on every
+ * page view. Inbound quantities that have been received should be removed from the schedule at the same time they
+ * are added to the quantity available.
+ */
+public interface AvailableToPromiseService {
+
+    /**
+     * Replaces the inbound schedule for a sku at a fulfillment location
+     * @param skuId
+     * @param fulfillmentLocationId
+     * @param inbound the quantity expected to arrive on each date
+     */
+    public void setInboundSchedule(Long skuId, Long fulfillmentLocationId, SortedMap<Date, Integer> inbound);
+
+    /**
+     * Adds a quantity expected to arrive on a date to the inbound schedule for a sku at a fulfillment location
+     * @param skuId
+     * @param fulfillmentLocationId
+     * @param date
+     * @param quantity
+     */
+    public void addInbound(Long skuId, Long fulfillmentLocationId, Date date, int quantity);
+
+    /**
+     * Removes the inbound schedule for a sku at a fulfillment location
+     * @param skuId
+     * @param fulfillmentLocationId
+     */
+    public void clearInboundSchedule(Long skuId, Long fulfillmentLocationId);
+
+    /**
+     * Retrieves the inbound schedule for a sku at a fulfillment location
+     * @param skuId
+     * @param fulfillmentLocationId
+     * @return the quantity expected to arrive on each date; empty if there is none
+     */
+    public SortedMap<Date, Integer> readInboundSchedule(Long skuId, Long fulfillmentLocationId);
+
+    /**
+     * Retrieves how many units can be promised for delivery from this inventory by the given date
+     * @param inventory
+     * @param date
+     * @return the quantity available now plus everything expected to arrive on or before the date
+     */
+    public int getQuantityPromisable(Inventory inventory, Date date);
+
+    /**
+     * Same as {@link #getQuantityPromisable(Inventory, Date)}, reading the inventory for the sku at the fulfillment
+     * location. If fulfillmentLocation is null, the default fulfillment location is used.
+     */
+    public int getQuantityPromisable(Sku sku, FulfillmentLocation fulfillmentLocation, Date date);
+
+    /**
+     * Retrieves the earliest date by which the quantity can be promised from this inventory.
+     *
+     * If there is no inbound schedule for the inventory, its {@link Inventory#getExpectedAvailabilityDate()} is
+     * used as the best known restock date.
+     * @param inventory
+     * @param quantity
+     * @return the current date if the quantity is available now, the date it will be available, or null if it
+     * cannot be promised
+     */
+    public Date getEarliestAvailabilityDate(Inventory inventory, int quantity);
+
+    /**
+     * Same as {@link #getEarliestAvailabilityDate(Inventory, int)}, reading the inventory for the sku at the
+     * fulfillment location. If fulfillmentLocation is null, the default fulfillment location is used.
+     */
+    public Date getEarliestAvailabilityDate(Sku sku, FulfillmentLocation fulfillmentLocation, int quantity);
+
+}
@@ -0,0 +1,123 @@
+/**
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.broadleafcommerce.inventory.service.atp;
+
+import org.broadleafcommerce.core.catalog.domain.Sku;
+import org.broadleafcommerce.inventory.cache.InventoryKey;
+import org.broadleafcommerce.inventory.domain.FulfillmentLocation;
+import org.broadleafcommerce.inventory.domain.Inventory;
+import org.broadleafcommerce.inventory.service.InventoryService;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.Resource;
+
+import java.util.Date;
+import java.util.SortedMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+@Service("blAvailableToPromiseService")
+public class AvailableToPromiseServiceImpl implements AvailableToPromiseService {
+
+    @Resource(name = "blInventoryService")
+    protected InventoryService inventoryService;
+
+    protected final ConcurrentMap<InventoryKey, InboundSchedule> schedules = new ConcurrentHashMap<InventoryKey, InboundSchedule>();
+
+    @Override
+    public void setInboundSchedule(Long skuId, Long fulfillmentLocationId, SortedMap<Date, Integer> inbound) {
+        schedules.put(new InventoryKey(skuId, fulfillmentLocationId), InboundSchedule.fromMap(inbound));
+    }
+
+    @Override
+    public void addInbound(Long skuId, Long fulfillmentLocationId, Date date, int quantity) {
+        InventoryKey key = new InventoryKey(skuId, fulfillmentLocationId);
+        //schedules are immutable, so readers never see a partially applied addition
+        while (true) {
+            InboundSchedule existing = schedules.get(key);
+            if (existing == null) {
+                if (schedules.putIfAbsent(key, InboundSchedule.EMPTY.with(date, quantity)) == null) {
+                    return;
+                }
+            } else if (schedules.replace(key, existing, existing.with(date, quantity))) {
+                return;
+            }
+        }
+    }
+
+    @Override
+    public void clearInboundSchedule(Long skuId, Long fulfillmentLocationId) {
+        schedules.remove(new InventoryKey(skuId, fulfillmentLocationId));
+    }
+
+    @Override
+    public SortedMap<Date, Integer> readInboundSchedule(Long skuId, Long fulfillmentLocationId) {
+        return getSchedule(skuId, fulfillmentLocationId).toMap();
+    }
+
+    @Override
+    public int getQuantityPromisable(Inventory inventory, Date date) {
+        if (inventory == null) {
+            return 0;
+        }
+        InboundSchedule schedule = getSchedule(inventory);
+        return Math.max(inventory.getQuantityAvailable(), 0) + schedule.getQuantityArrivingBy(date.getTime());
+    }
+
+    @Override
+    public int getQuantityPromisable(Sku sku, FulfillmentLocation fulfillmentLocation, Date date) {
+        return getQuantityPromisable(readInventory(sku, fulfillmentLocation), date);
+    }
+
+    @Override
+    public Date getEarliestAvailabilityDate(Inventory inventory, int quantity) {
+        if (inventory == null) {
+            return null;
+        }
+        int quantityAvailable = Math.max(inventory.getQuantityAvailable(), 0);
+        if (quantityAvailable >= quantity) {
+            return new Date();
+        }
+
+        InboundSchedule schedule = getSchedule(inventory);
+        if (schedule.isEmpty()) {
+            return inventory.getExpectedAvailabilityDate();
+        }
+        return schedule.getDateArriving(quantity - quantityAvailable);
+    }
+
+    @Override
+    public Date getEarliestAvailabilityDate(Sku sku, FulfillmentLocation fulfillmentLocation, int quantity) {
+        return getEarliestAvailabilityDate(readInventory(sku, fulfillmentLocation), quantity);
+    }
+
+    protected Inventory readInventory(Sku sku, FulfillmentLocation fulfillmentLocation) {
+        if (fulfillmentLocation == null) {
+            return inventoryService.readInventory(sku);
+        }
+        return inventoryService.readInventory(sku, fulfillmentLocation);
+    }
+
+    protected InboundSchedule getSchedule(Inventory inventory) {
+        return getSchedule(inventory.getSku().getId(), inventory.getFulfillmentLocation().getId());
+    }
+
+    protected InboundSchedule getSchedule(Long skuId, Long fulfillmentLocationId) {
+        InboundSchedule schedule = schedules.get(new InventoryKey(skuId, fulfillmentLocationId));
+        return schedule == null ? InboundSchedule.EMPTY : schedule;
+    }
+
+}
@@ -0,0 +1,117 @@
+/**
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.broadleafcommerce.inventory.service.atp;
+
+import java.util.Arrays;
+import java.util.Date;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * An immutable, date ordered schedule of inbound quantities for one sku at one fulfillment location. Quantities are
+ * stored as running totals in primitive arrays so that both "how many by date" and "which date for quantity" are a
+ * single binary search.
+ */
+public class InboundSchedule {
+
+    public static final InboundSchedule EMPTY = new InboundSchedule(new long[0], new int[0]);
+
+    protected final long[] dates;
+    protected final int[] cumulativeQuantities;
+
+    protected InboundSchedule(long[] dates, int[] cumulativeQuantities) {
+        this.dates = dates;
+        this.cumulativeQuantities = cumulativeQuantities;
+    }
+
+    /**
+     * Builds a schedule from a map of expected arrival date to quantity arriving on that date
+     * @param inbound
+     * @return the schedule
+     */
+    public static InboundSchedule fromMap(SortedMap<Date, Integer> inbound) {
+        long[] dates = new long[inbound.size()];
+        int[] cumulativeQuantities = new int[inbound.size()];
+        int total = 0;
+        int i = 0;
+        for (Map.Entry<Date, Integer> entry : inbound.entrySet()) {
+            if (entry.getValue() == null || entry.getValue() < 0) {
+                throw new IllegalArgumentException("Inbound quantities must be positive integers");
+            }
+            total += entry.getValue();
+            dates[i] = entry.getKey().getTime();
+            cumulativeQuantities[i] = total;
+            i++;
+        }
+        return new InboundSchedule(dates, cumulativeQuantities);
+    }
+
+    /**
+     * @return a new schedule that also includes the given quantity arriving on the given date
+     */
+    public InboundSchedule with(Date date, int quantity) {
+        SortedMap<Date, Integer> inbound = toMap();
+        Integer existing = inbound.get(date);
+        inbound.put(date, existing == null ? quantity : existing + quantity);
+        return fromMap(inbound);
+    }
+
+    /**
+     * @return the quantity arriving on each date, in date order
+     */
+    public SortedMap<Date, Integer> toMap() {
+        SortedMap<Date, Integer> inbound = new TreeMap<Date, Integer>();
+        for (int i = 0; i < dates.length; i++) {
+            inbound.put(new Date(dates[i]), cumulativeQuantities[i] - (i == 0 ? 0 : cumulativeQuantities[i - 1]));
+        }
+        return inbound;
+    }
+
+    public boolean isEmpty() {
+        return dates.length == 0;
+    }
+
+    /**
+     * @return the total quantity expected to arrive on or before the given time
+     */
+    public int getQuantityArrivingBy(long time) {
+        int index = Arrays.binarySearch(dates, time);
+        if (index < 0) {
+            //not an exact match; step back to the last arrival before the insertion point
+            index = -index - 2;
+        }
+        return index < 0 ? 0 : cumulativeQuantities[index];
+    }
+
+    /**
+     * @return the earliest date by which at least the given quantity will have arrived, or null if the schedule
+     * never reaches it
+     */
+    public Date getDateArriving(int quantity) {
+        int index = Arrays.binarySearch(cumulativeQuantities, quantity);
+        if (index < 0) {
+            index = -index - 1;
+        } else {
+            //running totals repeat when a date has a zero quantity; take the first date that reaches the quantity
+            while (index > 0 && cumulativeQuantities[index - 1] == quantity) {
+                index--;
+            }
+        }
+        return index < dates.length ? new Date(dates[index]) : null;
+    }
+
+}
@@ -0,0 +1,105 @@
+/**
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.broadleafcommerce.inventory.service.call;
+
+import org.broadleafcommerce.inventory.service.type.InventoryChangeReason;
+
+import java.io.Serializable;
+
+/**
+ * A relative change to the quantities of a single inventory record. The record is identified either by its
+ * inventory id or by the combination of sku id and fulfillment location id.
+ */
+public class InventoryAdjustmentRequest implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    protected Long inventoryId;
+    protected Long skuId;
+    protected Long fulfillmentLocationId;
+    protected int quantityAvailableChange;
+    protected int quantityOnHandChange;
+    protected InventoryChangeReason reason = InventoryChangeReason.ADMIN;
+
+    public InventoryAdjustmentRequest() {
+    }
+
+    public InventoryAdjustmentRequest(Long inventoryId, int quantityAvailableChange, int quantityOnHandChange) {
+        this.inventoryId = inventoryId;
+        this.quantityAvailableChange = quantityAvailableChange;
+        this.quantityOnHandChange = quantityOnHandChange;
+    }
+
+    public InventoryAdjustmentRequest(Long skuId, Long fulfillmentLocationId, int quantityAvailableChange, int quantityOnHandChange) {
+        this.skuId = skuId;
+        this.fulfillmentLocationId = fulfillmentLocationId;
+        this.quantityAvailableChange = quantityAvailableChange;
+        this.quantityOnHandChange = quantityOnHandChange;
+    }
+
+    public Long getInventoryId() {
+        return inventoryId;
+    }
+
+    public void setInventoryId(Long inventoryId) {
+        this.inventoryId = inventoryId;
+    }
+
+    public Long getSkuId() {
+        return skuId;
+    }
+
+    public void setSkuId(Long skuId) {
+        this.skuId = skuId;
+    }
+
+    public Long getFulfillmentLocationId() {
+        return fulfillmentLocationId;
+    }
+
+    public void setFulfillmentLocationId(Long fulfillmentLocationId) {
+        this.fulfillmentLocationId = fulfillmentLocationId;
+    }
+
+    public int getQuantityAvailableChange() {
+        return quantityAvailableChange;
+    }
+
+    public void setQuantityAvailableChange(int quantityAvailableChange) {
+        this.quantityAvailableChange = quantityAvailableChange;
+    }
+
+    public int getQuantityOnHandChange() {
+        return quantityOnHandChange;
+    }
+
+    public void setQuantityOnHandChange(int quantityOnHandChange) {
+        this.quantityOnHandChange = quantityOnHandChange;
+    }
+
+    /**
+     * @return why the change is made, as recorded in the inventory history. Defaults to
+     * {@link InventoryChangeReason#ADMIN}.
+     */
+    public InventoryChangeReason getReason() {
+        return reason;
+    }
+
+    public void setReason(InventoryChangeReason reason) {
+        this.reason = reason;
+    }
+
+}
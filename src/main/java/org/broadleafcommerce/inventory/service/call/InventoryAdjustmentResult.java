@@ -0,0 +1,77 @@
+/**
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.broadleafcommerce.inventory.service.call;
+
+import org.broadleafcommerce.inventory.domain.Inventory;
+
+import java.io.Serializable;
+
+/**
+ * The outcome of a single {@link InventoryAdjustmentRequest}. On success, {@link #getInventory()} holds the record
+ * with its post-update quantities. On failure, the validation error uses the same field names and message keys as
+ * the admin inventory form.
+ */
+public class InventoryAdjustmentResult implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    public static final String QUANTITY_AVAILABLE_CHANGE_FIELD = "quantityAvailableChange";
+    public static final String QUANTITY_ON_HAND_CHANGE_FIELD = "quantityOnHandChange";
+
+    public static final String INVENTORY_NOT_FOUND = "inventoryNotFound";
+    public static final String INVENTORY_NOT_SPECIFIED = "inventoryNotSpecified";
+    public static final String QUANTITY_AVAILABLE_IS_NEGATIVE = "quantityAvailableIsNegative";
+    public static final String QUANTITY_ON_HAND_IS_NEGATIVE = "quantityOnHandIsNegative";
+
+    protected InventoryAdjustmentRequest request;
+    protected Inventory inventory;
+    protected String validationErrorField;
+    protected String validationErrorMessage;
+
+    public InventoryAdjustmentResult(InventoryAdjustmentRequest request) {
+        this.request = request;
+    }
+
+    public InventoryAdjustmentRequest getRequest() {
+        return request;
+    }
+
+    public Inventory getInventory() {
+        return inventory;
+    }
+
+    public void setInventory(Inventory inventory) {
+        this.inventory = inventory;
+    }
+
+    public boolean isValidationFailure() {
+        return validationErrorMessage != null;
+    }
+
+    public String getValidationErrorField() {
+        return validationErrorField;
+    }
+
+    public String getValidationErrorMessage() {
+        return validationErrorMessage;
+    }
+
+    public void setValidationError(String field, String message) {
+        this.validationErrorField = field;
+        this.validationErrorMessage = message;
+    }
+
+}
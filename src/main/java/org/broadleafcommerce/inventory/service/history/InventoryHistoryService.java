@@ -0,0 +1,66 @@
+/**
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.broadleafcommerce.inventory.service.history;
+
+import org.broadleafcommerce.inventory.domain.Inventory;
+import org.broadleafcommerce.inventory.domain.InventoryHistory;
+import org.broadleafcommerce.inventory.service.type.InventoryChangeReason;
+
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Keeps a history of the changes to inventory quantities. Changes are captured in the transaction that makes them
+ * but only handed to the {@link InventoryHistoryWriter} once it commits, so recording history adds no writes to
+ * checkout.
+ */
+public interface InventoryHistoryService {
+
+    /**
+     * Records a change made in the current transaction. Nothing is recorded if the transaction rolls back.
+     * @param inventory the record after the change
+     * @param previousQuantityAvailable the quantity available before the change
+     * @param previousQuantityOnHand the quantity on hand before the change
+     * @param reason
+     * @param reference the operation reference the change was made under, or null
+     */
+    public void recordChange(Inventory inventory, Integer previousQuantityAvailable, Integer previousQuantityOnHand,
+            InventoryChangeReason reason, String reference);
+
+    /**
+     * Writes history handed over by the {@link InventoryHistoryWriter}
+     * @param history
+     */
+    public void writeHistory(List<InventoryHistory> history);
+
+    /**
+     * @param skuId
+     * @param fulfillmentLocationId
+     * @param maxResults
+     * @return the most recent history of the sku at the fulfillment location, newest first
+     */
+    public List<InventoryHistory> readHistory(Long skuId, Long fulfillmentLocationId, int maxResults);
+
+    /**
+     * Deletes entries from the oldest day of history, if it is entirely before the date. Each call deletes at most
+     * the given number of entries so that retention never holds a long transaction, even for a busy day.
+     * @param date
+     * @param maxResults
+     * @return the number of entries deleted, or -1 if there is no history before the date
+     */
+    public int purgeOldestPartition(Date date, int maxResults);
+
+}
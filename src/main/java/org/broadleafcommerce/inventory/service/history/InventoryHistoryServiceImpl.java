@@ -0,0 +1,132 @@
+/**
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.broadleafcommerce.inventory.service.history;
+
+import org.broadleafcommerce.common.persistence.EntityConfiguration;
+import org.broadleafcommerce.inventory.dao.InventoryHistoryDao;
+import org.broadleafcommerce.inventory.domain.Inventory;
+import org.broadleafcommerce.inventory.domain.InventoryHistory;
+import org.broadleafcommerce.inventory.domain.InventoryHistoryImpl;
+import org.broadleafcommerce.inventory.service.InventoryIdAllocator;
+import org.broadleafcommerce.inventory.service.InventoryIdRange;
+import org.broadleafcommerce.inventory.service.type.InventoryChangeReason;
+import org.broadleafcommerce.inventory.util.InventoryTransactionUtils;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.annotation.Resource;
+
+import java.util.Calendar;
+import java.util.Date;
+import java.util.List;
+import java.util.TimeZone;
+
+@Service("blInventoryHistoryService")
+public class InventoryHistoryServiceImpl implements InventoryHistoryService {
+
+    protected static final TimeZone UTC = TimeZone.getTimeZone("UTC");
+
+    @Resource(name = "blInventoryHistoryDao")
+    protected InventoryHistoryDao inventoryHistoryDao;
+
+    @Resource(name = "blInventoryHistoryWriter")
+    protected InventoryHistoryWriter inventoryHistoryWriter;
+
+    @Resource(name = "blInventoryIdAllocator")
+    protected InventoryIdAllocator inventoryIdAllocator;
+
+    @Resource(name = "blEntityConfiguration")
+    protected EntityConfiguration entityConfiguration;
+
+    @Override
+    public void recordChange(Inventory inventory, Integer previousQuantityAvailable, Integer previousQuantityOnHand,
+            InventoryChangeReason reason, String reference) {
+        if (!inventoryHistoryWriter.isEnabled()) {
+            return;
+        }
+        if (reason == null) {
+            throw new IllegalArgumentException("A reason is required to record an inventory change");
+        }
+        Date now = new Date();
+        final InventoryHistory history = (InventoryHistory) entityConfiguration.createEntityInstance(InventoryHistory.class.getName());
+        history.setInventoryId(inventory.getId());
+        history.setSkuId(inventory.getSku().getId());
+        history.setFulfillmentLocationId(inventory.getFulfillmentLocation().getId());
+        history.setPreviousQuantityAvailable(previousQuantityAvailable);
+        history.setQuantityAvailable(inventory.getQuantityAvailable());
+        history.setPreviousQuantityOnHand(previousQuantityOnHand);
+        history.setQuantityOnHand(inventory.getQuantityOnHand());
+        history.setReason(reason);
+        history.setReference(reference);
+        history.setChangedBy(getCurrentUserName());
+        history.setDateChanged(now);
+        history.setPartitionKey(getPartitionKey(now));
+
+        InventoryTransactionUtils.runAfterCommit(new Runnable() {
+            @Override
+            public void run() {
+                inventoryHistoryWriter.offer(history);
+            }
+        });
+    }
+
+    @Override
+    @Transactional("blTransactionManager")
+    public void writeHistory(List<InventoryHistory> history) {
+        InventoryIdRange ids = inventoryIdAllocator.reserve(InventoryHistoryImpl.class, history.size());
+        for (InventoryHistory entry : history) {
+            entry.setId(ids.next());
+        }
+        inventoryHistoryDao.insertAll(history);
+    }
+
+    @Override
+    @Transactional(value = "blTransactionManager", readOnly = true)
+    public List<InventoryHistory> readHistory(Long skuId, Long fulfillmentLocationId, int maxResults) {
+        return inventoryHistoryDao.readHistory(skuId, fulfillmentLocationId, maxResults);
+    }
+
+    @Override
+    @Transactional("blTransactionManager")
+    public int purgeOldestPartition(Date date, int maxResults) {
+        Integer oldest = inventoryHistoryDao.readOldestPartitionKey();
+        if (oldest == null || oldest >= getPartitionKey(date)) {
+            return -1;
+        }
+        return inventoryHistoryDao.deletePartition(oldest, maxResults);
+    }
+
+    /**
+     * @param date
+     * @return the day of the date as yyyymmdd in UTC
+     */
+    protected int getPartitionKey(Date date) {
+        Calendar calendar = Calendar.getInstance(UTC);
+        calendar.setTime(date);
+        return calendar.get(Calendar.YEAR) * 10000 + (calendar.get(Calendar.MONTH) + 1) * 100 + calendar.get(Calendar.DAY_OF_MONTH);
+    }
+
+    /**
+     * @return the name of the authenticated user, or null
+     */
+    protected String getCurrentUserName() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        return authentication == null ? null : authentication.getName();
+    }
+
+}
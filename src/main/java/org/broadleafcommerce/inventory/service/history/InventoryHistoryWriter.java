@@ -0,0 +1,258 @@
+/**
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.broadleafcommerce.inventory.service.history;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.broadleafcommerce.inventory.domain.InventoryHistory;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Buffers committed inventory history in a bounded queue and writes it in large batches on a background thread, so
+ * that the threads changing inventory never wait on the history table. A batch is written every
+ * {@link #flushInterval}, or as soon as {@link #batchSize} entries are waiting. When the queue is full, new entries
+ * are dropped and counted rather than slowing down checkout.
+ *
+ * Every {@link #purgeInterval}, history older than {@link #retentionDays} is deleted oldest day first, at most
+ * {@link #purgeBatchSize} entries per transaction. Where the table is range partitioned on PARTITION_KEY, retention
+ * can instead be left to dropping old partitions and switched off here with a retention of zero.
+ */
+@Component("blInventoryHistoryWriter")
+@ManagedResource(objectName = "org.broadleafcommerce:name=InventoryHistoryWriter", description = "Inventory history writer")
+public class InventoryHistoryWriter {
+
+    private static final Log LOG = LogFactory.getLog(InventoryHistoryWriter.class);
+
+    @Resource(name = "blInventoryHistoryService")
+    protected InventoryHistoryService inventoryHistoryService;
+
+    protected boolean enabled = true;
+
+    /**
+     * The maximum number of entries waiting to be written
+     */
+    protected int queueCapacity = 10000;
+
+    /**
+     * The maximum number of entries written in one transaction
+     */
+    protected int batchSize = 1000;
+
+    /**
+     * How often, in milliseconds, waiting entries are written
+     */
+    protected long flushInterval = 1000;
+
+    /**
+     * The number of days of history kept. Zero keeps everything.
+     */
+    protected int retentionDays = 90;
+
+    /**
+     * How often, in milliseconds, old history is purged
+     */
+    protected long purgeInterval = 60 * 60 * 1000L;
+
+    /**
+     * The maximum number of entries deleted in one transaction while purging
+     */
+    protected int purgeBatchSize = 5000;
+
+    protected BlockingQueue<InventoryHistory> queue;
+
+    protected ScheduledExecutorService executor;
+
+    protected final AtomicBoolean flushScheduled = new AtomicBoolean();
+
+    protected final AtomicLong written = new AtomicLong();
+    protected final AtomicLong dropped = new AtomicLong();
+    protected final AtomicLong failed = new AtomicLong();
+
+    @PostConstruct
+    public void init() {
+        if (!enabled) {
+            return;
+        }
+        queue = new ArrayBlockingQueue<InventoryHistory>(queueCapacity);
+        executor = Executors.newScheduledThreadPool(1, new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "blInventoryHistoryWriter");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        executor.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                flush();
+            }
+        }, flushInterval, flushInterval, TimeUnit.MILLISECONDS);
+        if (retentionDays > 0) {
+            executor.scheduleWithFixedDelay(new Runnable() {
+                @Override
+                public void run() {
+                    purge();
+                }
+            }, purgeInterval, purgeInterval, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if (executor != null) {
+            executor.shutdownNow();
+            //write what is still waiting rather than losing it on a clean shutdown
+            flush();
+        }
+    }
+
+    /**
+     * Queues the entry to be written, or drops it if the queue is full
+     * @param history
+     */
+    public void offer(InventoryHistory history) {
+        if (queue == null) {
+            return;
+        }
+        if (!queue.offer(history)) {
+            if (dropped.incrementAndGet() % queueCapacity == 1) {
+                LOG.warn("The inventory history queue is full, " + dropped.get() + " entries have been dropped so far");
+            }
+            return;
+        }
+        if (queue.size() >= batchSize && flushScheduled.compareAndSet(false, true)) {
+            try {
+                executor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        flushScheduled.set(false);
+                        flush();
+                    }
+                });
+            } catch (RuntimeException e) {
+                flushScheduled.set(false);
+            }
+        }
+    }
+
+    /**
+     * Writes everything waiting in the queue, one batch at a time
+     */
+    @ManagedOperation(description = "Writes the history waiting in the queue")
+    public synchronized void flush() {
+        if (queue == null) {
+            return;
+        }
+        List<InventoryHistory> batch = new ArrayList<InventoryHistory>(batchSize);
+        while (queue.drainTo(batch, batchSize) > 0) {
+            try {
+                inventoryHistoryService.writeHistory(batch);
+                written.addAndGet(batch.size());
+            } catch (RuntimeException e) {
+                failed.addAndGet(batch.size());
+                LOG.error("Unable to write " + batch.size() + " inventory history entries", e);
+            }
+            batch.clear();
+        }
+    }
+
+    public void purge() {
+        Date date = new Date(System.currentTimeMillis() - retentionDays * 24 * 60 * 60 * 1000L);
+        try {
+            int purged;
+            while ((purged = inventoryHistoryService.purgeOldestPartition(date, purgeBatchSize)) >= 0) {
+                if (LOG.isDebugEnabled()) {
+                    LOG.debug("Purged " + purged + " inventory history entries");
+                }
+            }
+        } catch (RuntimeException e) {
+            LOG.error("Unable to purge inventory history", e);
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public void setQueueCapacity(int queueCapacity) {
+        this.queueCapacity = queueCapacity;
+    }
+
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    public void setFlushInterval(long flushInterval) {
+        this.flushInterval = flushInterval;
+    }
+
+    public void setRetentionDays(int retentionDays) {
+        this.retentionDays = retentionDays;
+    }
+
+    public void setPurgeInterval(long purgeInterval) {
+        this.purgeInterval = purgeInterval;
+    }
+
+    public void setPurgeBatchSize(int purgeBatchSize) {
+        this.purgeBatchSize = purgeBatchSize;
+    }
+
+    @ManagedAttribute(description = "The number of entries waiting to be written")
+    public int getQueueSize() {
+        return queue == null ? 0 : queue.size();
+    }
+
+    @ManagedAttribute(description = "The number of entries written")
+    public long getWritten() {
+        return written.get();
+    }
+
+    @ManagedAttribute(description = "The number of entries dropped because the queue was full")
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    @ManagedAttribute(description = "The number of entries that could not be written")
+    public long getFailed() {
+        return failed.get();
+    }
+
+}
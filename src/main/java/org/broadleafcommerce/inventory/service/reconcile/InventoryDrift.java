@@ -0,0 +1,104 @@
+/**
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.broadleafcommerce.inventory.service.reconcile;
+
+import org.broadleafcommerce.inventory.cache.InventorySnapshotRecord;
+
+import java.io.Serializable;
+
+/**
+ * One inconsistency found by the {@link InventoryReconciler}. Drift in an inventory record carries the record's
+ * sku, location and quantities; drift in an order's inventory operations carries the operation reference.
+ */
+public class InventoryDrift implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    protected final InventoryDriftType type;
+    protected final Long skuId;
+    protected final Long fulfillmentLocationId;
+    protected final Integer quantityAvailable;
+    protected final Integer quantityOnHand;
+    protected final String reference;
+    protected final String detail;
+    protected boolean repaired;
+
+    public InventoryDrift(InventoryDriftType type, InventorySnapshotRecord record) {
+        this.type = type;
+        this.skuId = record.getSkuId();
+        this.fulfillmentLocationId = record.getFulfillmentLocationId();
+        this.quantityAvailable = record.getQuantityAvailable();
+        this.quantityOnHand = record.getQuantityOnHand();
+        this.reference = null;
+        this.detail = null;
+    }
+
+    public InventoryDrift(InventoryDriftType type, String reference, String detail) {
+        this.type = type;
+        this.skuId = null;
+        this.fulfillmentLocationId = null;
+        this.quantityAvailable = null;
+        this.quantityOnHand = null;
+        this.reference = reference;
+        this.detail = detail;
+    }
+
+    public InventoryDriftType getType() {
+        return type;
+    }
+
+    public Long getSkuId() {
+        return skuId;
+    }
+
+    public Long getFulfillmentLocationId() {
+        return fulfillmentLocationId;
+    }
+
+    public Integer getQuantityAvailable() {
+        return quantityAvailable;
+    }
+
+    public Integer getQuantityOnHand() {
+        return quantityOnHand;
+    }
+
+    public String getReference() {
+        return reference;
+    }
+
+    public String getDetail() {
+        return detail;
+    }
+
+    public boolean isRepaired() {
+        return repaired;
+    }
+
+    public void setRepaired(boolean repaired) {
+        this.repaired = repaired;
+    }
+
+    @Override
+    public String toString() {
+        if (reference != null) {
+            return "InventoryDrift [type=" + type + ", reference=" + reference + ", detail=" + detail + "]";
+        }
+        return "InventoryDrift [type=" + type + ", skuId=" + skuId + ", fulfillmentLocationId=" + fulfillmentLocationId
+                + ", quantityAvailable=" + quantityAvailable + ", quantityOnHand=" + quantityOnHand + ", repaired=" + repaired + "]";
+    }
+
+}
@@ -0,0 +1,39 @@
+/**
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.broadleafcommerce.inventory.service.reconcile;
+
+/**
+ * The kinds of inconsistency the {@link InventoryReconciler} looks for
+ */
+public enum InventoryDriftType {
+
+    /**
+     * An inventory record claims more available than is on hand
+     */
+    AVAILABLE_EXCEEDS_ON_HAND,
+
+    /**
+     * An inventory record holds a negative quantity
+     */
+    NEGATIVE_QUANTITY,
+
+    /**
+     * Inventory was decremented for an order that was never submitted and was not incremented back, so the
+     * compensation of a failed checkout did not land
+     */
+    UNCOMPENSATED_DECREMENT
+
+}
@@ -0,0 +1,315 @@
+/**
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.broadleafcommerce.inventory.service.reconcile;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Scans all inventory for drift: records whose quantity available exceeds their quantity on hand or that went
+ * negative, and decrements for orders that were never submitted and never compensated. The sku ids are split into
+ * ranges of {@link #skuRangeSize} that are worked through in parallel by {@link #parallelism} threads, each range
+ * read in pages of {@link #pageSize} by keyset rather than by offset. The threads take the next range from a shared
+ * cursor as they finish one, so however sparse the ids, no more than one range per thread exists at a time. All threads share a budget of
+ * {@link #maxRowsPerSecond}, so a run can be left going during business hours without competing with checkout for
+ * the database.
+ *
+ * Drift is logged and reported. Only drift that can be repaired without guessing is repaired, and only when
+ * {@link #repair} is set; see {@link InventoryReconciliationService#reconcileInventory}.
+ */
+@Component("blInventoryReconciler")
+public class InventoryReconciler {
+
+    private static final Log LOG = LogFactory.getLog(InventoryReconciler.class);
+
+    @Resource(name = "blInventoryReconciliationService")
+    protected InventoryReconciliationService inventoryReconciliationService;
+
+    /**
+     * Whether reconciliation runs on a schedule. A run can always be started with {@link #reconcile()}.
+     */
+    protected boolean enabled = false;
+
+    /**
+     * How often, in milliseconds, a scheduled reconciliation runs
+     */
+    protected long reconcileInterval = 24 * 60 * 60 * 1000L;
+
+    protected int parallelism = 2;
+
+    /**
+     * The number of sku ids in each unit of work
+     */
+    protected long skuRangeSize = 10000L;
+
+    protected int pageSize = 200;
+
+    /**
+     * The number of rows all threads together may read per second. Zero or less removes the limit.
+     */
+    protected int maxRowsPerSecond = 1000;
+
+    protected boolean repair = false;
+
+    /**
+     * How far back, in milliseconds, decrements are checked against their orders
+     */
+    protected long operationWindow = 24 * 60 * 60 * 1000L;
+
+    /**
+     * How old, in milliseconds, a decrement has to be before it is checked, so that checkouts still in progress are
+     * not reported
+     */
+    protected long operationGracePeriod = 60 * 60 * 1000L;
+
+    /**
+     * The number of drifts kept in the report of a run
+     */
+    protected int maxReportedDrifts = 1000;
+
+    protected final AtomicBoolean running = new AtomicBoolean();
+
+    /**
+     * The time, in nanoseconds, from which the next row may be read
+     */
+    protected final AtomicLong nextPermit = new AtomicLong(System.nanoTime());
+
+    protected ScheduledExecutorService scheduler;
+
+    @PostConstruct
+    public void init() {
+        if (!enabled) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "blInventoryReconciler");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        scheduler.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    reconcile();
+                } catch (RuntimeException e) {
+                    LOG.error("Unable to reconcile inventory", e);
+                }
+            }
+        }, reconcileInterval, reconcileInterval, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    /**
+     * Runs a reconciliation and waits for it to finish
+     * @return the report, or null if a reconciliation was already running
+     */
+    public InventoryReconciliationReport reconcile() {
+        if (!running.compareAndSet(false, true)) {
+            LOG.warn("Inventory reconciliation is already running");
+            return null;
+        }
+        final InventoryReconciliationReport report = new InventoryReconciliationReport(maxReportedDrifts);
+        ExecutorService executor = Executors.newFixedThreadPool(parallelism, new ThreadFactory() {
+            protected final AtomicInteger count = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "blInventoryReconciler-" + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        try {
+            List<Future<?>> futures = new ArrayList<Future<?>>();
+            long[] bounds = inventoryReconciliationService.readSkuIdBounds();
+            if (bounds != null) {
+                AtomicLong nextRangeStart = new AtomicLong(bounds[0]);
+                for (int i = 0; i < parallelism; i++) {
+                    futures.add(submitSkuRanges(executor, nextRangeStart, bounds[1], report));
+                }
+            }
+            long before = System.currentTimeMillis() - operationGracePeriod;
+            futures.add(submit(executor, InventoryReconciliationCursor.forOperations(new Date(before - operationWindow),
+                    new Date(before)), report));
+
+            for (Future<?> future : futures) {
+                try {
+                    future.get();
+                } catch (ExecutionException e) {
+                    report.addFailedUnit();
+                    LOG.error("Unable to reconcile a unit of inventory", e.getCause());
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            executor.shutdownNow();
+            report.finish();
+            running.set(false);
+        }
+
+        LOG.info(report.toString());
+        return report;
+    }
+
+    /**
+     * Submits a worker that reconciles one sku range after another, taking the start of each from the shared cursor,
+     * until the ranges pass the highest sku id
+     */
+    protected Future<?> submitSkuRanges(ExecutorService executor, final AtomicLong nextRangeStart, final long maxSkuId,
+            final InventoryReconciliationReport report) {
+        return executor.submit(new Runnable() {
+            @Override
+            public void run() {
+                while (!Thread.currentThread().isInterrupted()) {
+                    long start = nextRangeStart.getAndAdd(skuRangeSize);
+                    if (start > maxSkuId) {
+                        return;
+                    }
+                    try {
+                        reconcile(InventoryReconciliationCursor.forSkuRange(start, start + skuRangeSize), report);
+                    } catch (RuntimeException e) {
+                        report.addFailedUnit();
+                        LOG.error("Unable to reconcile inventory for sku ids from " + start, e);
+                    }
+                }
+            }
+        });
+    }
+
+    protected Future<?> submit(ExecutorService executor, final InventoryReconciliationCursor cursor, final InventoryReconciliationReport report) {
+        return executor.submit(new Runnable() {
+            @Override
+            public void run() {
+                reconcile(cursor, report);
+            }
+        });
+    }
+
+    protected void reconcile(InventoryReconciliationCursor cursor, InventoryReconciliationReport report) {
+        while (!cursor.isDone() && !Thread.currentThread().isInterrupted()) {
+            long rowsRead = cursor.getRowsRead();
+            List<InventoryDrift> drifts;
+            if (cursor.isSkuRange()) {
+                drifts = inventoryReconciliationService.reconcileInventory(cursor, pageSize, repair);
+            } else {
+                drifts = inventoryReconciliationService.reconcileOperations(cursor, pageSize);
+            }
+            for (InventoryDrift drift : drifts) {
+                LOG.warn(drift.toString());
+            }
+            report.addDrifts(drifts);
+            report.addRowsRead(cursor.getRowsRead() - rowsRead);
+            throttle(cursor.getRowsRead() - rowsRead);
+        }
+    }
+
+    /**
+     * Waits until the rows just read fit within the shared rate
+     * @param rows
+     */
+    protected void throttle(long rows) {
+        if (maxRowsPerSecond <= 0 || rows == 0) {
+            return;
+        }
+        long cost = rows * TimeUnit.SECONDS.toNanos(1) / maxRowsPerSecond;
+        long now = System.nanoTime();
+        long permit;
+        long next;
+        do {
+            permit = nextPermit.get();
+            next = Math.max(permit, now) + cost;
+        } while (!nextPermit.compareAndSet(permit, next));
+
+        long wait = next - cost - now;
+        if (wait > 0) {
+            try {
+                TimeUnit.NANOSECONDS.sleep(wait);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public void setReconcileInterval(long reconcileInterval) {
+        this.reconcileInterval = reconcileInterval;
+    }
+
+    public void setParallelism(int parallelism) {
+        this.parallelism = parallelism;
+    }
+
+    public void setSkuRangeSize(long skuRangeSize) {
+        this.skuRangeSize = skuRangeSize;
+    }
+
+    public void setPageSize(int pageSize) {
+        this.pageSize = pageSize;
+    }
+
+    public void setMaxRowsPerSecond(int maxRowsPerSecond) {
+        this.maxRowsPerSecond = maxRowsPerSecond;
+    }
+
+    public void setRepair(boolean repair) {
+        this.repair = repair;
+    }
+
+    public void setOperationWindow(long operationWindow) {
+        this.operationWindow = operationWindow;
+    }
+
+    public void setOperationGracePeriod(long operationGracePeriod) {
+        this.operationGracePeriod = operationGracePeriod;
+    }
+
+    public void setMaxReportedDrifts(int maxReportedDrifts) {
+        this.maxReportedDrifts = maxReportedDrifts;
+    }
+
+}
@@ -0,0 +1,143 @@
+/**
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.broadleafcommerce.inventory.service.reconcile;
+
+import java.util.Date;
+
+/**
+ * The position of one unit of reconciliation work: either a range of sku ids in the inventory table or a window of
+ * inventory operations. Each page read advances the cursor past the last row read, so a scan never re-reads rows and
+ * never holds more than one page. A cursor is only used by one thread at a time.
+ */
+public class InventoryReconciliationCursor {
+
+    protected Long afterSkuId;
+    protected Long afterFulfillmentLocationId;
+    protected Long maxSkuId;
+
+    protected Date after;
+    protected Date before;
+    protected String afterReference;
+
+    protected boolean done;
+    protected long rowsRead;
+
+    /**
+     * @param minSkuId the first sku id of the range
+     * @param maxSkuId the sku id, exclusive, that ends the range
+     * @return a cursor over the inventory records of the skus in the range
+     */
+    public static InventoryReconciliationCursor forSkuRange(long minSkuId, long maxSkuId) {
+        InventoryReconciliationCursor cursor = new InventoryReconciliationCursor();
+        cursor.afterSkuId = minSkuId - 1;
+        cursor.afterFulfillmentLocationId = Long.MAX_VALUE;
+        cursor.maxSkuId = maxSkuId;
+        return cursor;
+    }
+
+    /**
+     * @param after the start of the window, inclusive
+     * @param before the end of the window, exclusive
+     * @return a cursor over the inventory operations last updated within the window
+     */
+    public static InventoryReconciliationCursor forOperations(Date after, Date before) {
+        InventoryReconciliationCursor cursor = new InventoryReconciliationCursor();
+        cursor.after = after;
+        cursor.before = before;
+        cursor.afterReference = "";
+        return cursor;
+    }
+
+    public boolean isSkuRange() {
+        return maxSkuId != null;
+    }
+
+    public Long getAfterSkuId() {
+        return afterSkuId;
+    }
+
+    public Long getAfterFulfillmentLocationId() {
+        return afterFulfillmentLocationId;
+    }
+
+    public Long getMaxSkuId() {
+        return maxSkuId;
+    }
+
+    public Date getAfter() {
+        return after;
+    }
+
+    public Date getBefore() {
+        return before;
+    }
+
+    public String getAfterReference() {
+        return afterReference;
+    }
+
+    /**
+     * @return whether every row has been read
+     */
+    public boolean isDone() {
+        return done;
+    }
+
+    /**
+     * @return the number of rows read so far
+     */
+    public long getRowsRead() {
+        return rowsRead;
+    }
+
+    /**
+     * Moves past a page of inventory records
+     * @param lastSkuId the sku id of the last record read
+     * @param lastFulfillmentLocationId the fulfillment location id of the last record read
+     * @param rows the number of records read
+     * @param pageSize the number of records asked for
+     */
+    public void advance(long lastSkuId, long lastFulfillmentLocationId, int rows, int pageSize) {
+        afterSkuId = lastSkuId;
+        afterFulfillmentLocationId = lastFulfillmentLocationId;
+        advance(rows, pageSize);
+    }
+
+    /**
+     * Moves past a page of inventory operations
+     * @param lastReference the reference of the last operation read
+     * @param rows the number of operations read
+     * @param pageSize the number of operations asked for
+     */
+    public void advance(String lastReference, int rows, int pageSize) {
+        afterReference = lastReference;
+        advance(rows, pageSize);
+    }
+
+    protected void advance(int rows, int pageSize) {
+        rowsRead += rows;
+        done = rows < pageSize;
+    }
+
+    @Override
+    public String toString() {
+        if (isSkuRange()) {
+            return "InventoryReconciliationCursor [afterSkuId=" + afterSkuId + ", maxSkuId=" + maxSkuId + ", rowsRead=" + rowsRead + "]";
+        }
+        return "InventoryReconciliationCursor [after=" + after + ", before=" + before + ", afterReference=" + afterReference + ", rowsRead=" + rowsRead + "]";
+    }
+
+}
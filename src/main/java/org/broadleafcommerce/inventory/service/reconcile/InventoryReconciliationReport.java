@@ -0,0 +1,109 @@
+/**
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.broadleafcommerce.inventory.service.reconcile;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The outcome of one reconciliation run. Work units running in parallel add to the same report, so every method is
+ * synchronized. Only the first {@link #maxDrifts} drifts are kept; the counts cover all of them.
+ */
+public class InventoryReconciliationReport {
+
+    protected final int maxDrifts;
+    protected final long started = System.currentTimeMillis();
+    protected long finished;
+    protected long rowsRead;
+    protected int repaired;
+    protected int failedUnits;
+    protected final Map<InventoryDriftType, Integer> driftCounts = new EnumMap<InventoryDriftType, Integer>(InventoryDriftType.class);
+    protected final List<InventoryDrift> drifts = new ArrayList<InventoryDrift>();
+
+    public InventoryReconciliationReport(int maxDrifts) {
+        this.maxDrifts = maxDrifts;
+    }
+
+    public synchronized void addRowsRead(long rows) {
+        rowsRead += rows;
+    }
+
+    public synchronized void addDrifts(List<InventoryDrift> found) {
+        for (InventoryDrift drift : found) {
+            Integer count = driftCounts.get(drift.getType());
+            driftCounts.put(drift.getType(), count == null ? 1 : count + 1);
+            if (drift.isRepaired()) {
+                repaired++;
+            }
+            if (drifts.size() < maxDrifts) {
+                drifts.add(drift);
+            }
+        }
+    }
+
+    public synchronized void addFailedUnit() {
+        failedUnits++;
+    }
+
+    public synchronized void finish() {
+        finished = System.currentTimeMillis();
+    }
+
+    public synchronized long getRowsRead() {
+        return rowsRead;
+    }
+
+    /**
+     * @param type
+     * @return the number of drifts of the type found
+     */
+    public synchronized int getDriftCount(InventoryDriftType type) {
+        Integer count = driftCounts.get(type);
+        return count == null ? 0 : count;
+    }
+
+    public synchronized int getRepaired() {
+        return repaired;
+    }
+
+    /**
+     * @return the number of work units that stopped on an error before reading all of their rows
+     */
+    public synchronized int getFailedUnits() {
+        return failedUnits;
+    }
+
+    public synchronized List<InventoryDrift> getDrifts() {
+        return Collections.unmodifiableList(new ArrayList<InventoryDrift>(drifts));
+    }
+
+    /**
+     * @return how long the run took, in milliseconds, or has taken so far
+     */
+    public synchronized long getElapsed() {
+        return (finished == 0 ? System.currentTimeMillis() : finished) - started;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "InventoryReconciliationReport [rowsRead=" + rowsRead + ", drift=" + driftCounts + ", repaired=" + repaired
+                + ", failedUnits=" + failedUnits + ", elapsed=" + getElapsed() + "ms]";
+    }
+
+}
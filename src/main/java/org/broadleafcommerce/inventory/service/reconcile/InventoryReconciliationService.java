@@ -0,0 +1,51 @@
+/**
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.broadleafcommerce.inventory.service.reconcile;
+
+import java.util.List;
+
+/**
+ * Checks inventory one page at a time. Each call is a short transaction of its own, so a reconciliation running
+ * alongside checkout never holds locks for longer than one page.
+ */
+public interface InventoryReconciliationService {
+
+    /**
+     * @return the lowest and highest sku id that have inventory, or null if there is no inventory
+     */
+    public long[] readSkuIdBounds();
+
+    /**
+     * Checks the next page of inventory records in the cursor's sku range and advances the cursor
+     * @param cursor a cursor created with {@link InventoryReconciliationCursor#forSkuRange(long, long)}
+     * @param pageSize the number of records to read
+     * @param repair whether to repair the drift that can be repaired safely. A record whose quantity available
+     * exceeds its quantity on hand is lowered to the quantity on hand, unless it changed since it was read.
+     * @return the drift found in the page
+     */
+    public List<InventoryDrift> reconcileInventory(InventoryReconciliationCursor cursor, int pageSize, boolean repair);
+
+    /**
+     * Checks the next page of decrements in the cursor's window against the orders they were made for, and
+     * advances the cursor. A decrement whose order was not submitted should have been followed by an increment
+     * for the same reference. Decrements whose reference is not an order id are skipped.
+     * @param cursor a cursor created with {@link InventoryReconciliationCursor#forOperations(java.util.Date, java.util.Date)}
+     * @param pageSize the number of operations to read
+     * @return the drift found in the page
+     */
+    public List<InventoryDrift> reconcileOperations(InventoryReconciliationCursor cursor, int pageSize);
+
+}
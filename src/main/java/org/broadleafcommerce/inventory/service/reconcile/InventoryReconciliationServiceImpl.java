@@ -0,0 +1,124 @@
+/**
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.broadleafcommerce.inventory.service.reconcile;
+
+import org.broadleafcommerce.core.order.service.type.OrderStatus;
+import org.broadleafcommerce.inventory.cache.InventorySnapshotRecord;
+import org.broadleafcommerce.inventory.dao.InventoryDao;
+import org.broadleafcommerce.inventory.dao.InventoryOperationDao;
+import org.broadleafcommerce.inventory.dao.InventoryReconciliationDao;
+import org.broadleafcommerce.inventory.domain.Inventory;
+import org.broadleafcommerce.inventory.domain.InventoryOperation;
+import org.broadleafcommerce.inventory.service.history.InventoryHistoryService;
+import org.broadleafcommerce.inventory.service.type.InventoryChangeReason;
+import org.broadleafcommerce.inventory.service.type.InventoryOperationType;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.annotation.Resource;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+@Service("blInventoryReconciliationService")
+public class InventoryReconciliationServiceImpl implements InventoryReconciliationService {
+
+    @Resource(name = "blInventoryDao")
+    protected InventoryDao inventoryDao;
+
+    @Resource(name = "blInventoryOperationDao")
+    protected InventoryOperationDao inventoryOperationDao;
+
+    @Resource(name = "blInventoryReconciliationDao")
+    protected InventoryReconciliationDao inventoryReconciliationDao;
+
+    @Resource(name = "blInventoryHistoryService")
+    protected InventoryHistoryService inventoryHistoryService;
+
+    @Override
+    @Transactional(value = "blTransactionManager", readOnly = true)
+    public long[] readSkuIdBounds() {
+        return inventoryDao.readInventorySkuIdBounds();
+    }
+
+    @Override
+    @Transactional("blTransactionManager")
+    public List<InventoryDrift> reconcileInventory(InventoryReconciliationCursor cursor, int pageSize, boolean repair) {
+        List<InventorySnapshotRecord> records = inventoryDao.readInventoryRecordsInSkuRange(cursor.getAfterSkuId(),
+                cursor.getAfterFulfillmentLocationId(), cursor.getMaxSkuId(), pageSize);
+
+        List<InventoryDrift> drifts = new ArrayList<InventoryDrift>();
+        for (InventorySnapshotRecord record : records) {
+            if (record.getQuantityAvailable() < 0 || record.getQuantityOnHand() < 0) {
+                drifts.add(new InventoryDrift(InventoryDriftType.NEGATIVE_QUANTITY, record));
+            } else if (record.getQuantityAvailable() > record.getQuantityOnHand()) {
+                InventoryDrift drift = new InventoryDrift(InventoryDriftType.AVAILABLE_EXCEEDS_ON_HAND, record);
+                if (repair && inventoryDao.clampQuantityAvailableToOnHand(record.getSkuId(),
+                        record.getFulfillmentLocationId(), record.getVersion())) {
+                    drift.setRepaired(true);
+                    Inventory repaired = inventoryDao.readInventory(record.getSkuId(), record.getFulfillmentLocationId());
+                    inventoryHistoryService.recordChange(repaired, record.getQuantityAvailable(), record.getQuantityOnHand(),
+                            InventoryChangeReason.RECONCILIATION, null);
+                }
+                drifts.add(drift);
+            }
+        }
+
+        if (records.isEmpty()) {
+            cursor.advance(cursor.getAfterSkuId(), cursor.getAfterFulfillmentLocationId(), 0, pageSize);
+        } else {
+            InventorySnapshotRecord last = records.get(records.size() - 1);
+            cursor.advance(last.getSkuId(), last.getFulfillmentLocationId(), records.size(), pageSize);
+        }
+        return drifts;
+    }
+
+    @Override
+    @Transactional(value = "blTransactionManager", readOnly = true)
+    public List<InventoryDrift> reconcileOperations(InventoryReconciliationCursor cursor, int pageSize) {
+        List<InventoryOperation> operations = inventoryOperationDao.readOperations(InventoryOperationType.DECREMENT,
+                cursor.getAfter(), cursor.getBefore(), cursor.getAfterReference(), pageSize);
+
+        Map<Long, InventoryOperation> byOrderId = new LinkedHashMap<Long, InventoryOperation>();
+        for (InventoryOperation operation : operations) {
+            try {
+                byOrderId.put(Long.valueOf(operation.getReference()), operation);
+            } catch (NumberFormatException e) {
+                //not made on behalf of an order
+            }
+        }
+
+        List<InventoryDrift> drifts = new ArrayList<InventoryDrift>();
+        Map<Long, String> statuses = inventoryReconciliationDao.readOrderStatuses(byOrderId.keySet());
+        for (Map.Entry<Long, InventoryOperation> entry : byOrderId.entrySet()) {
+            String status = statuses.get(entry.getKey());
+            if (status == null) {
+                drifts.add(new InventoryDrift(InventoryDriftType.UNCOMPENSATED_DECREMENT, entry.getValue().getReference(),
+                        "order does not exist"));
+            } else if (!OrderStatus.SUBMITTED.getType().equals(status)) {
+                drifts.add(new InventoryDrift(InventoryDriftType.UNCOMPENSATED_DECREMENT, entry.getValue().getReference(),
+                        "order status is " + status));
+            }
+        }
+
+        String lastReference = operations.isEmpty() ? cursor.getAfterReference() : operations.get(operations.size() - 1).getReference();
+        cursor.advance(lastReference, operations.size(), pageSize);
+        return drifts;
+    }
+
+}
@@ -0,0 +1,31 @@
+/**
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.broadleafcommerce.inventory.service.retry;
+
+import org.broadleafcommerce.inventory.exception.ConcurrentInventoryModificationException;
+
+/**
+ * An inventory change run by an {@link InventoryRetryPolicy}. It is called again each time it throws a
+ * {@link ConcurrentInventoryModificationException}, so it must start its own transaction and re-read what it changes.
+ *
+ * @param <T> the result of the change
+ * @param <E> any other checked exception the change throws
+ */
+public interface InventoryRetryCallback<T, E extends Exception> {
+
+    public T doWithRetry() throws ConcurrentInventoryModificationException, E;
+
+}
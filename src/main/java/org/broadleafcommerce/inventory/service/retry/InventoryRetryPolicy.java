@@ -0,0 +1,71 @@
+/**
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.broadleafcommerce.inventory.service.retry;
+
+import org.broadleafcommerce.inventory.exception.ConcurrentInventoryModificationException;
+import org.broadleafcommerce.inventory.exception.InventorySaturatedException;
+
+import java.util.Collection;
+
+/**
+ * Decides how often, and how far apart, an inventory change that lost an optimistic lock is retried. The policy
+ * tracks how often recent changes to each sku have conflicted, so that retries back off further as contention on
+ * a sku grows, and changes to a sku that is saturated fail fast instead of adding to the contention.
+ */
+public interface InventoryRetryPolicy {
+
+    /**
+     * Runs the change, retrying it when it throws a {@link ConcurrentInventoryModificationException}
+     * @param skuIds the skus the change modifies
+     * @param callback
+     * @return the result of the callback
+     * @throws InventorySaturatedException if the skus are saturated, in which case the callback is not run
+     * @throws ConcurrentInventoryModificationException if the retry budget was exhausted
+     * @throws E if the callback throws it
+     */
+    public <T, E extends Exception> T execute(Collection<Long> skuIds, InventoryRetryCallback<T, E> callback) throws ConcurrentInventoryModificationException, E;
+
+    /**
+     * Same as {@link #execute(Collection, InventoryRetryCallback)}, with the caller's own limit in place of the
+     * policy's, so that one caller can be configured without changing how other changes are retried
+     * @param skuIds the skus the change modifies
+     * @param callback
+     * @param maxAttempts the number of attempts, including the first, allowed when the skus are not contended
+     * @return the result of the callback
+     * @throws InventorySaturatedException if the skus are saturated, in which case the callback is not run
+     * @throws ConcurrentInventoryModificationException if the retry budget was exhausted
+     * @throws E if the callback throws it
+     */
+    public <T, E extends Exception> T execute(Collection<Long> skuIds, InventoryRetryCallback<T, E> callback, int maxAttempts) throws ConcurrentInventoryModificationException, E;
+
+    /**
+     * Runs a change that must not be shed, such as compensating for inventory already decremented. The change still
+     * backs off according to the contention on its skus, but is given the full retry budget.
+     * @param skuIds the skus the change modifies
+     * @param callback
+     * @return the result of the callback
+     * @throws ConcurrentInventoryModificationException if the retry budget was exhausted
+     * @throws E if the callback throws it
+     */
+    public <T, E extends Exception> T executeWithoutShedding(Collection<Long> skuIds, InventoryRetryCallback<T, E> callback) throws ConcurrentInventoryModificationException, E;
+
+    /**
+     * @param skuId
+     * @return the share of recent changes to the sku that conflicted, between 0 and 1
+     */
+    public double getConflictRate(Long skuId);
+
+}
@@ -0,0 +1,321 @@
+/**
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.broadleafcommerce.inventory.service.retry;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.broadleafcommerce.inventory.dao.InventoryContentionDetector;
+import org.broadleafcommerce.inventory.exception.ConcurrentInventoryModificationException;
+import org.broadleafcommerce.inventory.exception.InventorySaturatedException;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.Resource;
+
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Default {@link InventoryRetryPolicy}. For each sku it keeps counts of attempts and conflicts that decay with a
+ * half life of {@link #halfLife}, so the conflict rate reflects the last few seconds of traffic.
+ *
+ * The hottest sku of a change determines how it is retried. Up to {@link #maxAttempts} attempts, counting the
+ * first, are allowed when there is no contention, fewer as the conflict rate rises, and none at all once the rate
+ * passes {@link #saturationThreshold}, at which point the change is rejected with an {@link InventorySaturatedException}.
+ * A {@link #probeRate fraction} of those changes is still let through for a single attempt, so that the conflict
+ * rate keeps being measured and shedding stops as soon as contention eases.
+ * Retries wait for a random time up to an exponentially growing ceiling that is itself stretched by the conflict
+ * rate, which spreads competing retries apart instead of having them collide again.
+ */
+@Component("blInventoryRetryPolicy")
+public class InventoryRetryPolicyImpl implements InventoryRetryPolicy {
+
+    private static final Log LOG = LogFactory.getLog(InventoryRetryPolicyImpl.class);
+
+    /**
+     * The number of attempts, including the first, allowed for a change to skus without recent conflicts. This is
+     * how the maxRetries property of DecrementInventoryActivity has always been counted.
+     */
+    protected int maxAttempts = 5;
+
+    /**
+     * The number of attempts, including the first, allowed for a change to contended skus that are not yet saturated
+     */
+    protected int minAttempts = 2;
+
+    /**
+     * The conflict rate at or above which changes are shed
+     */
+    protected double saturationThreshold = 0.8;
+
+    /**
+     * The fraction of changes to saturated skus that are attempted once instead of being shed
+     */
+    protected double probeRate = 0.05;
+
+    /**
+     * The decayed number of attempts a sku needs before its conflict rate is trusted
+     */
+    protected double minSampleSize = 10;
+
+    /**
+     * The time, in milliseconds, after which the weight of an attempt is halved
+     */
+    protected long halfLife = 10 * 1000L;
+
+    /**
+     * The ceiling, in milliseconds, of the wait before the first retry of an uncontended change
+     */
+    protected long baseBackoff = 10;
+
+    /**
+     * The largest wait, in milliseconds, before any retry
+     */
+    protected long maxBackoff = 1000;
+
+    /**
+     * How much a conflict rate of 1 stretches the backoff ceiling
+     */
+    protected double contentionBackoffFactor = 4;
+
+    /**
+     * Skus whose decayed attempts fall below this are dropped once more than {@link #maxTrackedSkus} are tracked
+     */
+    protected int maxTrackedSkus = 10000;
+
+    @Resource(name = "blInventoryContentionDetector")
+    protected InventoryContentionDetector contentionDetector;
+
+    protected final ConcurrentMap<Long, ConflictStats> stats = new ConcurrentHashMap<Long, ConflictStats>();
+
+    protected final Random random = new Random();
+
+    @Override
+    public <T, E extends Exception> T execute(Collection<Long> skuIds, InventoryRetryCallback<T, E> callback) throws ConcurrentInventoryModificationException, E {
+        return execute(skuIds, callback, maxAttempts);
+    }
+
+    @Override
+    public <T, E extends Exception> T execute(Collection<Long> skuIds, InventoryRetryCallback<T, E> callback, int maxAttempts) throws ConcurrentInventoryModificationException, E {
+        double conflictRate = getConflictRate(skuIds);
+        int attempts = getAttemptBudget(conflictRate, maxAttempts);
+        if (conflictRate >= saturationThreshold) {
+            if (!isProbe()) {
+                if (LOG.isDebugEnabled()) {
+                    LOG.debug("Shedding an inventory change for skus " + skuIds + " with a conflict rate of " + conflictRate);
+                }
+                throw new InventorySaturatedException("Inventory for skus " + skuIds + " is being modified by too many " +
+                        "concurrent requests. Please try again shortly.");
+            }
+            //shed changes record no attempts, so without probes the rate would only fall by decaying
+            attempts = 1;
+        }
+        return doExecute(skuIds, callback, attempts);
+    }
+
+    @Override
+    public <T, E extends Exception> T executeWithoutShedding(Collection<Long> skuIds, InventoryRetryCallback<T, E> callback) throws ConcurrentInventoryModificationException, E {
+        return doExecute(skuIds, callback, maxAttempts);
+    }
+
+    protected <T, E extends Exception> T doExecute(Collection<Long> skuIds, InventoryRetryCallback<T, E> callback, int attempts) throws ConcurrentInventoryModificationException, E {
+        contentionDetector.startRetryLoop();
+        int attempt = 0;
+        try {
+            for (; ; attempt++) {
+                boolean conflict = false;
+                try {
+                    return callback.doWithRetry();
+                } catch (ConcurrentInventoryModificationException e) {
+                    conflict = true;
+                    if (e instanceof InventorySaturatedException || attempt + 1 >= attempts) {
+                        throw e;
+                    }
+                } finally {
+                    recordAttempt(skuIds, conflict);
+                }
+
+                try {
+                    Thread.sleep(getBackoff(attempt, getConflictRate(skuIds)));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new ConcurrentInventoryModificationException("Interrupted while waiting to retry an inventory change for skus " + skuIds, e);
+                }
+            }
+        } finally {
+            contentionDetector.finishRetryLoop(skuIds, attempt);
+        }
+    }
+
+    @Override
+    public double getConflictRate(Long skuId) {
+        ConflictStats skuStats = stats.get(skuId);
+        return skuStats == null ? 0 : skuStats.getConflictRate(System.currentTimeMillis(), halfLife, minSampleSize);
+    }
+
+    /**
+     * @return the highest conflict rate among the skus
+     */
+    protected double getConflictRate(Collection<Long> skuIds) {
+        double conflictRate = 0;
+        for (Long skuId : skuIds) {
+            if (skuId != null) {
+                conflictRate = Math.max(conflictRate, getConflictRate(skuId));
+            }
+        }
+        return conflictRate;
+    }
+
+    /**
+     * Scales the number of attempts down linearly from the maximum, at no conflicts, to {@link #minAttempts}, at
+     * the saturation threshold
+     */
+    protected int getAttemptBudget(double conflictRate, int maxAttempts) {
+        int min = Math.min(minAttempts, maxAttempts);
+        double headroom = 1 - Math.min(conflictRate / saturationThreshold, 1);
+        return Math.max(1, min + (int) Math.round((maxAttempts - min) * headroom));
+    }
+
+    protected boolean isProbe() {
+        synchronized (random) {
+            return random.nextDouble() < probeRate;
+        }
+    }
+
+    protected long getBackoff(int attempt, double conflictRate) {
+        double ceiling = baseBackoff * (1L << Math.min(attempt, 16)) * (1 + contentionBackoffFactor * conflictRate);
+        long bound = (long) Math.min(ceiling, maxBackoff);
+        synchronized (random) {
+            return bound <= 0 ? 0 : (long) (random.nextDouble() * bound);
+        }
+    }
+
+    protected void recordAttempt(Collection<Long> skuIds, boolean conflict) {
+        long now = System.currentTimeMillis();
+        for (Long skuId : skuIds) {
+            if (skuId == null) {
+                continue;
+            }
+            ConflictStats skuStats = stats.get(skuId);
+            if (skuStats == null) {
+                ConflictStats created = new ConflictStats(now);
+                skuStats = stats.putIfAbsent(skuId, created);
+                if (skuStats == null) {
+                    skuStats = created;
+                }
+            }
+            skuStats.record(conflict, now, halfLife);
+        }
+        if (stats.size() > maxTrackedSkus) {
+            purgeIdle(now);
+        }
+    }
+
+    protected void purgeIdle(long now) {
+        Iterator<Map.Entry<Long, ConflictStats>> iterator = stats.entrySet().iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next().getValue().isIdle(now, halfLife)) {
+                iterator.remove();
+            }
+        }
+    }
+
+    public void setMaxAttempts(int maxAttempts) {
+        this.maxAttempts = maxAttempts;
+    }
+
+    public void setMinAttempts(int minAttempts) {
+        this.minAttempts = minAttempts;
+    }
+
+    public void setSaturationThreshold(double saturationThreshold) {
+        this.saturationThreshold = saturationThreshold;
+    }
+
+    public void setProbeRate(double probeRate) {
+        this.probeRate = probeRate;
+    }
+
+    public void setMinSampleSize(double minSampleSize) {
+        this.minSampleSize = minSampleSize;
+    }
+
+    public void setHalfLife(long halfLife) {
+        this.halfLife = halfLife;
+    }
+
+    public void setBaseBackoff(long baseBackoff) {
+        this.baseBackoff = baseBackoff;
+    }
+
+    public void setMaxBackoff(long maxBackoff) {
+        this.maxBackoff = maxBackoff;
+    }
+
+    public void setContentionBackoffFactor(double contentionBackoffFactor) {
+        this.contentionBackoffFactor = contentionBackoffFactor;
+    }
+
+    public void setMaxTrackedSkus(int maxTrackedSkus) {
+        this.maxTrackedSkus = maxTrackedSkus;
+    }
+
+    /**
+     * Exponentially decayed counts of attempts and conflicts for one sku
+     */
+    protected static class ConflictStats {
+
+        protected double attempts;
+        protected double conflicts;
+        protected long lastUpdated;
+
+        protected ConflictStats(long now) {
+            this.lastUpdated = now;
+        }
+
+        protected synchronized void record(boolean conflict, long now, long halfLife) {
+            decay(now, halfLife);
+            attempts++;
+            if (conflict) {
+                conflicts++;
+            }
+        }
+
+        protected synchronized double getConflictRate(long now, long halfLife, double minAttempts) {
+            decay(now, halfLife);
+            return attempts < minAttempts ? 0 : conflicts / attempts;
+        }
+
+        protected synchronized boolean isIdle(long now, long halfLife) {
+            decay(now, halfLife);
+            return attempts < 0.5;
+        }
+
+        protected void decay(long now, long halfLife) {
+            if (now > lastUpdated) {
+                double factor = Math.pow(0.5, (double) (now - lastUpdated) / halfLife);
+                attempts *= factor;
+                conflicts *= factor;
+                lastUpdated = now;
+            }
+        }
+
+    }
+
+}
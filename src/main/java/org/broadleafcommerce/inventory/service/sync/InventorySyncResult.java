@@ -0,0 +1,87 @@
+/**
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.broadleafcommerce.inventory.service.sync;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The outcome of synchronizing one stock snapshot. Only the first {@link #maxRejections} rejections are kept with
+ * their reason; the count covers all of them.
+ */
+public class InventorySyncResult {
+
+    protected final int maxRejections;
+    protected int unchanged;
+    protected int changed;
+    protected int rejected;
+    protected final List<String> rejections = new ArrayList<String>();
+
+    public InventorySyncResult(int maxRejections) {
+        this.maxRejections = maxRejections;
+    }
+
+    public void addUnchanged() {
+        unchanged++;
+    }
+
+    public void addChanged() {
+        changed++;
+    }
+
+    /**
+     * @param lineNumber the line of the snapshot that was rejected
+     * @param reason
+     */
+    public void addRejected(int lineNumber, String reason) {
+        rejected++;
+        if (rejections.size() < maxRejections) {
+            rejections.add("line " + lineNumber + ": " + reason);
+        }
+    }
+
+    /**
+     * @return the number of rows that matched the current inventory and were not written
+     */
+    public int getUnchanged() {
+        return unchanged;
+    }
+
+    /**
+     * @return the number of rows applied as an adjustment
+     */
+    public int getChanged() {
+        return changed;
+    }
+
+    /**
+     * @return the number of rows that could not be read or applied
+     */
+    public int getRejected() {
+        return rejected;
+    }
+
+    public List<String> getRejections() {
+        return Collections.unmodifiableList(rejections);
+    }
+
+    @Override
+    public String toString() {
+        return "InventorySyncResult [unchanged=" + unchanged + ", changed=" + changed + ", rejected=" + rejected + "]";
+    }
+
+}
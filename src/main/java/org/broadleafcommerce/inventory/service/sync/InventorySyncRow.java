@@ -0,0 +1,84 @@
+/**
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.broadleafcommerce.inventory.service.sync;
+
+/**
+ * One row of an incoming stock snapshot
+ */
+public class InventorySyncRow implements Comparable<InventorySyncRow> {
+
+    protected final long skuId;
+    protected final long fulfillmentLocationId;
+    protected final int quantityOnHand;
+    protected final Integer quantityAvailable;
+    protected final int lineNumber;
+
+    /**
+     * @param skuId
+     * @param fulfillmentLocationId
+     * @param quantityOnHand
+     * @param quantityAvailable the quantity available, or null if the snapshot only carries the quantity on hand
+     * @param lineNumber the line of the snapshot the row was read from
+     */
+    public InventorySyncRow(long skuId, long fulfillmentLocationId, int quantityOnHand, Integer quantityAvailable, int lineNumber) {
+        this.skuId = skuId;
+        this.fulfillmentLocationId = fulfillmentLocationId;
+        this.quantityOnHand = quantityOnHand;
+        this.quantityAvailable = quantityAvailable;
+        this.lineNumber = lineNumber;
+    }
+
+    public long getSkuId() {
+        return skuId;
+    }
+
+    public long getFulfillmentLocationId() {
+        return fulfillmentLocationId;
+    }
+
+    public int getQuantityOnHand() {
+        return quantityOnHand;
+    }
+
+    public Integer getQuantityAvailable() {
+        return quantityAvailable;
+    }
+
+    public int getLineNumber() {
+        return lineNumber;
+    }
+
+    /**
+     * Orders rows by fulfillment location, then sku, then the line they were read from
+     */
+    @Override
+    public int compareTo(InventorySyncRow other) {
+        if (fulfillmentLocationId != other.fulfillmentLocationId) {
+            return fulfillmentLocationId < other.fulfillmentLocationId ? -1 : 1;
+        }
+        if (skuId != other.skuId) {
+            return skuId < other.skuId ? -1 : 1;
+        }
+        return lineNumber < other.lineNumber ? -1 : (lineNumber == other.lineNumber ? 0 : 1);
+    }
+
+    @Override
+    public String toString() {
+        return "InventorySyncRow [line=" + lineNumber + ", skuId=" + skuId + ", fulfillmentLocationId=" + fulfillmentLocationId
+                + ", quantityOnHand=" + quantityOnHand + ", quantityAvailable=" + quantityAvailable + "]";
+    }
+
+}
@@ -0,0 +1,232 @@
+/**
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.broadleafcommerce.inventory.service.sync;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Sorts the rows of a stock snapshot by fulfillment location, sku and line while holding at most
+ * {@link #maxRowsInMemory} of them. Once that many are buffered they are sorted and spilled to a temporary file, and
+ * the sorted rows are read back as a merge of those files and the rows still buffered, so a snapshot that fits in
+ * memory never touches the disk. The temporary files are deleted by {@link #close()}.
+ */
+public class InventorySyncRowSorter {
+
+    private static final Log LOG = LogFactory.getLog(InventorySyncRowSorter.class);
+
+    protected static final int BUFFER_SIZE = 64 * 1024;
+
+    protected final int maxRowsInMemory;
+    protected final List<InventorySyncRow> buffer = new ArrayList<InventorySyncRow>();
+    protected final List<File> runs = new ArrayList<File>();
+    protected final List<DataInputStream> inputs = new ArrayList<DataInputStream>();
+
+    public InventorySyncRowSorter(int maxRowsInMemory) {
+        this.maxRowsInMemory = maxRowsInMemory;
+    }
+
+    public void add(InventorySyncRow row) throws IOException {
+        buffer.add(row);
+        if (buffer.size() >= maxRowsInMemory) {
+            spill();
+        }
+    }
+
+    /**
+     * Stops accepting rows and starts reading them back in order
+     * @return the rows added so far, sorted
+     * @throws IOException if a spilled file cannot be read
+     */
+    public SortedRows sort() throws IOException {
+        Collections.sort(buffer);
+        PriorityQueue<RowCursor> cursors = new PriorityQueue<RowCursor>(runs.size() + 1);
+        RowCursor bufferCursor = new ListCursor(buffer);
+        if (bufferCursor.advance()) {
+            cursors.add(bufferCursor);
+        }
+        for (File run : runs) {
+            DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(run), BUFFER_SIZE));
+            inputs.add(input);
+            RowCursor runCursor = new RunCursor(input);
+            if (runCursor.advance()) {
+                cursors.add(runCursor);
+            }
+        }
+        return new SortedRows(cursors);
+    }
+
+    /**
+     * Closes and deletes the temporary files
+     */
+    public void close() {
+        for (DataInputStream input : inputs) {
+            try {
+                input.close();
+            } catch (IOException e) {
+                LOG.warn("Unable to close a spilled inventory snapshot file", e);
+            }
+        }
+        for (File run : runs) {
+            if (!run.delete()) {
+                LOG.warn("Unable to delete the spilled inventory snapshot file " + run);
+            }
+        }
+    }
+
+    protected void spill() throws IOException {
+        Collections.sort(buffer);
+        File run = File.createTempFile("blInventorySync", ".run");
+        runs.add(run);
+        DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(run), BUFFER_SIZE));
+        try {
+            output.writeInt(buffer.size());
+            for (InventorySyncRow row : buffer) {
+                output.writeLong(row.getSkuId());
+                output.writeLong(row.getFulfillmentLocationId());
+                output.writeInt(row.getQuantityOnHand());
+                output.writeBoolean(row.getQuantityAvailable() != null);
+                output.writeInt(row.getQuantityAvailable() == null ? 0 : row.getQuantityAvailable());
+                output.writeInt(row.getLineNumber());
+            }
+        } finally {
+            output.close();
+        }
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("Spilled " + buffer.size() + " inventory snapshot rows to " + run);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * The sorted rows, read one at a time
+     */
+    public static class SortedRows {
+
+        protected final PriorityQueue<RowCursor> cursors;
+
+        protected SortedRows(PriorityQueue<RowCursor> cursors) {
+            this.cursors = cursors;
+        }
+
+        /**
+         * @return the next row without consuming it, or null once every row has been read
+         */
+        public InventorySyncRow peek() {
+            RowCursor cursor = cursors.peek();
+            return cursor == null ? null : cursor.current;
+        }
+
+        /**
+         * @return the next row, or null once every row has been read
+         * @throws IOException if a spilled file cannot be read
+         */
+        public InventorySyncRow next() throws IOException {
+            RowCursor cursor = cursors.poll();
+            if (cursor == null) {
+                return null;
+            }
+            InventorySyncRow row = cursor.current;
+            if (cursor.advance()) {
+                cursors.add(cursor);
+            }
+            return row;
+        }
+
+    }
+
+    protected abstract static class RowCursor implements Comparable<RowCursor> {
+
+        protected InventorySyncRow current;
+
+        /**
+         * Moves to the next row
+         * @return false if there are no more rows
+         */
+        protected abstract boolean advance() throws IOException;
+
+        @Override
+        public int compareTo(RowCursor other) {
+            return current.compareTo(other.current);
+        }
+
+    }
+
+    protected static class ListCursor extends RowCursor {
+
+        protected final List<InventorySyncRow> rows;
+        protected int position = 0;
+
+        protected ListCursor(List<InventorySyncRow> rows) {
+            this.rows = rows;
+        }
+
+        @Override
+        protected boolean advance() {
+            if (position == rows.size()) {
+                return false;
+            }
+            current = rows.get(position++);
+            return true;
+        }
+
+    }
+
+    protected static class RunCursor extends RowCursor {
+
+        protected final DataInputStream input;
+        protected int remaining = -1;
+
+        protected RunCursor(DataInputStream input) {
+            this.input = input;
+        }
+
+        @Override
+        protected boolean advance() throws IOException {
+            if (remaining < 0) {
+                remaining = input.readInt();
+            }
+            if (remaining == 0) {
+                return false;
+            }
+            remaining--;
+            long skuId = input.readLong();
+            long fulfillmentLocationId = input.readLong();
+            int quantityOnHand = input.readInt();
+            boolean hasQuantityAvailable = input.readBoolean();
+            int quantityAvailable = input.readInt();
+            int lineNumber = input.readInt();
+            current = new InventorySyncRow(skuId, fulfillmentLocationId, quantityOnHand,
+                    hasQuantityAvailable ? Integer.valueOf(quantityAvailable) : null, lineNumber);
+            return true;
+        }
+
+    }
+
+}
@@ -0,0 +1,47 @@
+/**
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.broadleafcommerce.inventory.service.sync;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * Brings inventory in line with a full stock snapshot from an external system, such as a warehouse management
+ * system, while writing only the records that differ.
+ *
+ * A snapshot is a comma separated file with one line per inventory record:
+ * <code>skuId,fulfillmentLocationId,quantityOnHand[,quantityAvailable]</code>. Blank lines, lines starting with
+ * <code>#</code> and a header line are skipped. When the quantity available is left out it moves by the same amount
+ * as the quantity on hand.
+ */
+public interface InventorySyncService {
+
+    /**
+     * @param snapshot a UTF-8 snapshot file
+     * @return how many rows were unchanged, changed or rejected
+     * @throws IOException if the file cannot be read
+     */
+    public InventorySyncResult synchronize(File snapshot) throws IOException;
+
+    /**
+     * @param snapshot
+     * @return how many rows were unchanged, changed or rejected
+     * @throws IOException if the snapshot cannot be read
+     */
+    public InventorySyncResult synchronize(Reader snapshot) throws IOException;
+
+}
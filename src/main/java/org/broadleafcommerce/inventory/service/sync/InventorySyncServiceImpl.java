@@ -0,0 +1,251 @@
+/**
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.broadleafcommerce.inventory.service.sync;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.broadleafcommerce.inventory.cache.InventorySnapshotRecord;
+import org.broadleafcommerce.inventory.dao.InventoryDao;
+import org.broadleafcommerce.inventory.service.InventoryService;
+import org.broadleafcommerce.inventory.service.call.InventoryAdjustmentRequest;
+import org.broadleafcommerce.inventory.service.call.InventoryAdjustmentResult;
+import org.broadleafcommerce.inventory.service.type.InventoryChangeReason;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.Resource;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Default {@link InventorySyncService}. The snapshot is sorted by fulfillment location and sku id, then merged with
+ * the current inventory of each location, which is read in pages of {@link #readPageSize} in the same
+ * order without loading the inventory entities. Rows that match are counted and skipped. Rows that differ are
+ * applied through {@link InventoryService#adjustInventory(List)} as the difference between the snapshot and the
+ * quantities just read, so a checkout that decrements the record in the meantime is kept rather than overwritten,
+ * and an adjustment that would make a quantity negative is rejected instead of applied.
+ *
+ * At most {@link #maxRowsInMemory} snapshot rows are held at once; larger snapshots are sorted through temporary
+ * files by an {@link InventorySyncRowSorter}, so memory does not grow with the size of the snapshot.
+ */
+@Service("blInventorySyncService")
+public class InventorySyncServiceImpl implements InventorySyncService {
+
+    private static final Log LOG = LogFactory.getLog(InventorySyncServiceImpl.class);
+
+    @Resource(name = "blInventoryDao")
+    protected InventoryDao inventoryDao;
+
+    @Resource(name = "blInventoryService")
+    protected InventoryService inventoryService;
+
+    protected int readPageSize = 1000;
+
+    /**
+     * The number of adjustments applied in each transaction
+     */
+    protected int adjustmentBatchSize = 100;
+
+    protected int maxReportedRejections = 1000;
+
+    /**
+     * The number of snapshot rows held in memory before they are spilled to a temporary file
+     */
+    protected int maxRowsInMemory = 200000;
+
+    @Override
+    public InventorySyncResult synchronize(File snapshot) throws IOException {
+        Reader reader = new InputStreamReader(new FileInputStream(snapshot), "UTF-8");
+        try {
+            return synchronize(reader);
+        } finally {
+            reader.close();
+        }
+    }
+
+    @Override
+    public InventorySyncResult synchronize(Reader snapshot) throws IOException {
+        InventorySyncResult result = new InventorySyncResult(maxReportedRejections);
+        InventorySyncRowSorter sorter = new InventorySyncRowSorter(maxRowsInMemory);
+        try {
+            read(snapshot, result, sorter);
+            InventorySyncRowSorter.SortedRows rows = sorter.sort();
+            while (rows.peek() != null) {
+                synchronizeLocation(rows.peek().getFulfillmentLocationId(), rows, result);
+            }
+        } finally {
+            sorter.close();
+        }
+
+        if (LOG.isInfoEnabled()) {
+            LOG.info("Synchronized inventory snapshot: " + result);
+        }
+        return result;
+    }
+
+    protected void read(Reader snapshot, InventorySyncResult result, InventorySyncRowSorter sorter) throws IOException {
+        BufferedReader reader = new BufferedReader(snapshot, 64 * 1024);
+        int lineNumber = 0;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            line = line.trim();
+            if (line.length() == 0 || line.startsWith("#")) {
+                continue;
+            }
+            String[] fields = StringUtils.splitPreserveAllTokens(line, ',');
+            if (lineNumber == 1 && !StringUtils.isNumeric(fields[0].trim())) {
+                //header
+                continue;
+            }
+
+            InventorySyncRow row;
+            try {
+                row = parse(fields, lineNumber);
+            } catch (IllegalArgumentException e) {
+                result.addRejected(lineNumber, e.getMessage());
+                continue;
+            }
+            sorter.add(row);
+        }
+    }
+
+    protected InventorySyncRow parse(String[] fields, int lineNumber) {
+        if (fields.length < 3 || fields.length > 4) {
+            throw new IllegalArgumentException("expected 3 or 4 fields but found " + fields.length);
+        }
+        long skuId = Long.parseLong(fields[0].trim());
+        long fulfillmentLocationId = Long.parseLong(fields[1].trim());
+        int quantityOnHand = Integer.parseInt(fields[2].trim());
+        Integer quantityAvailable = fields.length == 4 && fields[3].trim().length() > 0 ? Integer.valueOf(fields[3].trim()) : null;
+        if (quantityOnHand < 0 || (quantityAvailable != null && quantityAvailable < 0)) {
+            throw new IllegalArgumentException("quantities cannot be negative");
+        }
+        return new InventorySyncRow(skuId, fulfillmentLocationId, quantityOnHand, quantityAvailable, lineNumber);
+    }
+
+    /**
+     * Merges the sorted rows of one location with the current inventory of that location, consuming the rows up to
+     * the first one for another location
+     */
+    protected void synchronizeLocation(long fulfillmentLocationId, InventorySyncRowSorter.SortedRows rows, InventorySyncResult result) throws IOException {
+        List<InventorySnapshotRecord> page = Collections.emptyList();
+        int position = 0;
+        boolean lastPage = false;
+        long afterSkuId = Long.MIN_VALUE;
+
+        List<InventorySyncRow> pendingRows = new ArrayList<InventorySyncRow>();
+        List<InventoryAdjustmentRequest> pendingAdjustments = new ArrayList<InventoryAdjustmentRequest>();
+        InventorySyncRow previous = null;
+        while (rows.peek() != null && rows.peek().getFulfillmentLocationId() == fulfillmentLocationId) {
+            InventorySyncRow row = rows.next();
+            if (previous != null && previous.getSkuId() == row.getSkuId()) {
+                result.addRejected(row.getLineNumber(), "duplicate of line " + previous.getLineNumber());
+                continue;
+            }
+            previous = row;
+
+            InventorySnapshotRecord current = null;
+            while (true) {
+                if (position == page.size()) {
+                    if (lastPage) {
+                        break;
+                    }
+                    page = inventoryDao.readInventoryRecordsForFulfillmentLocation(fulfillmentLocationId, afterSkuId, readPageSize);
+                    position = 0;
+                    lastPage = page.size() < readPageSize;
+                    if (page.isEmpty()) {
+                        break;
+                    }
+                    afterSkuId = page.get(page.size() - 1).getSkuId();
+                }
+                InventorySnapshotRecord candidate = page.get(position);
+                if (candidate.getSkuId() < row.getSkuId()) {
+                    position++;
+                    continue;
+                }
+                if (candidate.getSkuId() == row.getSkuId()) {
+                    current = candidate;
+                    position++;
+                }
+                break;
+            }
+
+            if (current == null) {
+                result.addRejected(row.getLineNumber(), "no inventory for sku " + row.getSkuId() + " at fulfillment location " + fulfillmentLocationId);
+                continue;
+            }
+            int quantityOnHandChange = row.getQuantityOnHand() - current.getQuantityOnHand();
+            int quantityAvailableChange = row.getQuantityAvailable() == null ? quantityOnHandChange
+                    : row.getQuantityAvailable() - current.getQuantityAvailable();
+            if (quantityOnHandChange == 0 && quantityAvailableChange == 0) {
+                result.addUnchanged();
+                continue;
+            }
+
+            pendingRows.add(row);
+            InventoryAdjustmentRequest adjustment = new InventoryAdjustmentRequest(row.getSkuId(), fulfillmentLocationId, quantityAvailableChange, quantityOnHandChange);
+            adjustment.setReason(InventoryChangeReason.IMPORT);
+            pendingAdjustments.add(adjustment);
+            if (pendingAdjustments.size() >= adjustmentBatchSize) {
+                apply(pendingRows, pendingAdjustments, result);
+            }
+        }
+        apply(pendingRows, pendingAdjustments, result);
+    }
+
+    protected void apply(List<InventorySyncRow> rows, List<InventoryAdjustmentRequest> adjustments, InventorySyncResult result) {
+        if (adjustments.isEmpty()) {
+            return;
+        }
+        List<InventoryAdjustmentResult> adjustmentResults = inventoryService.adjustInventory(adjustments);
+        for (int i = 0; i < adjustmentResults.size(); i++) {
+            InventoryAdjustmentResult adjustmentResult = adjustmentResults.get(i);
+            if (adjustmentResult.isValidationFailure()) {
+                result.addRejected(rows.get(i).getLineNumber(), adjustmentResult.getValidationErrorMessage());
+            } else {
+                result.addChanged();
+            }
+        }
+        rows.clear();
+        adjustments.clear();
+    }
+
+    public void setReadPageSize(int readPageSize) {
+        this.readPageSize = readPageSize;
+    }
+
+    public void setAdjustmentBatchSize(int adjustmentBatchSize) {
+        this.adjustmentBatchSize = adjustmentBatchSize;
+    }
+
+    public void setMaxReportedRejections(int maxReportedRejections) {
+        this.maxReportedRejections = maxReportedRejections;
+    }
+
+    public void setMaxRowsInMemory(int maxRowsInMemory) {
+        this.maxRowsInMemory = maxRowsInMemory;
+    }
+
+}
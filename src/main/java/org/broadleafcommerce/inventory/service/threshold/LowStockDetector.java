@@ -0,0 +1,38 @@
+/**
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.broadleafcommerce.inventory.service.threshold;
+
+import org.broadleafcommerce.inventory.domain.Inventory;
+
+/**
+ * Detects low stock incrementally as inventory is changed, instead of by periodically scanning all inventory. Only
+ * a committed change that moves the quantity available from above the reorder threshold to at or below it raises a
+ * {@link LowStockSignal}, and only on the node that made the change. A quantity that hovers around the threshold
+ * signals again each time it crosses back down.
+ */
+public interface LowStockDetector {
+
+    /**
+     * Evaluates a change to the quantity available of the inventory. Any resulting signal is delivered to the
+     * registered listeners once the current transaction commits.
+     * @param inventory the inventory with its new quantity available
+     * @param previousQuantityAvailable the quantity available before the change
+     */
+    public void evaluate(Inventory inventory, int previousQuantityAvailable);
+
+    public void addListener(LowStockListener listener);
+
+}
@@ -0,0 +1,89 @@
+/**
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.broadleafcommerce.inventory.service.threshold;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.broadleafcommerce.inventory.domain.Inventory;
+import org.broadleafcommerce.inventory.util.InventoryTransactionUtils;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Default {@link LowStockDetector}. Signals are keyed on the transition itself rather than remembered per node: the
+ * previous quantity available is the one the changing transaction read under its lock or version check, so each
+ * committed crossing of the threshold is seen by exactly one transaction, on exactly one node. Nodes that only read
+ * the inventory never raise a signal for it.
+ */
+@Component("blLowStockDetector")
+public class LowStockDetectorImpl implements LowStockDetector {
+
+    private static final Log LOG = LogFactory.getLog(LowStockDetectorImpl.class);
+
+    protected final List<LowStockListener> listeners = new CopyOnWriteArrayList<LowStockListener>();
+
+    /**
+     * The threshold used for inventory records that do not define their own. Null disables detection for them.
+     */
+    protected Integer defaultReorderThreshold;
+
+    @Override
+    public void evaluate(Inventory inventory, int previousQuantityAvailable) {
+        Integer threshold = inventory.getReorderThreshold() != null ? inventory.getReorderThreshold() : defaultReorderThreshold;
+        if (threshold == null || inventory.getQuantityAvailable() > threshold || previousQuantityAvailable <= threshold) {
+            return;
+        }
+
+        final LowStockSignal signal = new LowStockSignal(inventory.getId(), inventory.getSku().getId(),
+                inventory.getFulfillmentLocation().getId(), inventory.getQuantityAvailable(), threshold);
+        InventoryTransactionUtils.runAfterCommit(new Runnable() {
+            @Override
+            public void run() {
+                signal(signal);
+            }
+        });
+    }
+
+    protected void signal(LowStockSignal signal) {
+        if (LOG.isInfoEnabled()) {
+            LOG.info(signal.toString());
+        }
+        for (LowStockListener listener : listeners) {
+            try {
+                listener.lowStock(signal);
+            } catch (RuntimeException e) {
+                LOG.error("Unable to deliver low stock signal to " + listener, e);
+            }
+        }
+    }
+
+    @Override
+    public void addListener(LowStockListener listener) {
+        listeners.add(listener);
+    }
+
+    public void setListeners(List<LowStockListener> listeners) {
+        this.listeners.clear();
+        this.listeners.addAll(listeners);
+    }
+
+    public void setDefaultReorderThreshold(Integer defaultReorderThreshold) {
+        this.defaultReorderThreshold = defaultReorderThreshold;
+    }
+
+}
@@ -0,0 +1,74 @@
+/**
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.broadleafcommerce.inventory.service.threshold;
+
+import java.io.Serializable;
+import java.util.Date;
+
+/**
+ * Raised when a change moves the quantity available of an inventory record to or below its reorder threshold
+ */
+public class LowStockSignal implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    protected final Long inventoryId;
+    protected final Long skuId;
+    protected final Long fulfillmentLocationId;
+    protected final int quantityAvailable;
+    protected final int reorderThreshold;
+    protected final Date date;
+
+    public LowStockSignal(Long inventoryId, Long skuId, Long fulfillmentLocationId, int quantityAvailable, int reorderThreshold) {
+        this.inventoryId = inventoryId;
+        this.skuId = skuId;
+        this.fulfillmentLocationId = fulfillmentLocationId;
+        this.quantityAvailable = quantityAvailable;
+        this.reorderThreshold = reorderThreshold;
+        this.date = new Date();
+    }
+
+    public Long getInventoryId() {
+        return inventoryId;
+    }
+
+    public Long getSkuId() {
+        return skuId;
+    }
+
+    public Long getFulfillmentLocationId() {
+        return fulfillmentLocationId;
+    }
+
+    public int getQuantityAvailable() {
+        return quantityAvailable;
+    }
+
+    public int getReorderThreshold() {
+        return reorderThreshold;
+    }
+
+    public Date getDate() {
+        return date;
+    }
+
+    @Override
+    public String toString() {
+        return "Sku " + skuId + " at fulfillment location " + fulfillmentLocationId + " has " + quantityAvailable +
+                " available, at or below its reorder threshold of " + reorderThreshold;
+    }
+
+}
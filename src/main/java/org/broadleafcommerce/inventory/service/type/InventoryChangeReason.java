@@ -0,0 +1,97 @@
+/**
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.broadleafcommerce.inventory.service.type;
+
+import org.broadleafcommerce.common.BroadleafEnumerationType;
+
+import java.io.Serializable;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Why the quantities of an inventory record changed, as recorded in its history
+ */
+public class InventoryChangeReason implements Serializable, BroadleafEnumerationType {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final Map<String, InventoryChangeReason> TYPES = new LinkedHashMap<String, InventoryChangeReason>();
+
+    public static final InventoryChangeReason CHECKOUT = new InventoryChangeReason("CHECKOUT", "Checkout");
+    public static final InventoryChangeReason COMPENSATION = new InventoryChangeReason("COMPENSATION", "Compensation");
+    public static final InventoryChangeReason ADMIN = new InventoryChangeReason("ADMIN", "Admin");
+    public static final InventoryChangeReason IMPORT = new InventoryChangeReason("IMPORT", "Import");
+    public static final InventoryChangeReason RECONCILIATION = new InventoryChangeReason("RECONCILIATION", "Reconciliation");
+
+    public static InventoryChangeReason getInstance(final String type) {
+        return TYPES.get(type);
+    }
+
+    private String type;
+    private String friendlyType;
+
+    public InventoryChangeReason() {
+        //do nothing
+    }
+
+    public InventoryChangeReason(final String type, final String friendlyType) {
+        this.friendlyType = friendlyType;
+        setType(type);
+    }
+
+    @Override
+    public String getType() {
+        return type;
+    }
+
+    @Override
+    public String getFriendlyType() {
+        return friendlyType;
+    }
+
+    private void setType(final String type) {
+        this.type = type;
+        if (!TYPES.containsKey(type)) {
+            TYPES.put(type, this);
+        }
+    }
+
+    @Override
+    public int hashCode() {
+        final int prime = 31;
+        int result = 1;
+        result = prime * result + ((type == null) ? 0 : type.hashCode());
+        return result;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj)
+            return true;
+        if (obj == null)
+            return false;
+        if (getClass() != obj.getClass())
+            return false;
+        InventoryChangeReason other = (InventoryChangeReason) obj;
+        if (type == null) {
+            if (other.type != null)
+                return false;
+        } else if (!type.equals(other.type))
+            return false;
+        return true;
+    }
+
+}
@@ -25,11 +25,21 @@ import org.broadleafcommerce.core.order.service.workflow.CartOperationContext;
 import org.broadleafcommerce.core.order.service.workflow.CartOperationRequest;
 import org.broadleafcommerce.core.workflow.BaseActivity;
 import org.broadleafcommerce.core.workflow.ProcessContext;
+import org.broadleafcommerce.inventory.cache.SoldOutSkuRegistry;
 import org.broadleafcommerce.inventory.exception.InventoryUnavailableException;
 import org.broadleafcommerce.inventory.service.InventoryService;
+import org.broadleafcommerce.inventory.util.InventoryFlightEvent;
+import org.broadleafcommerce.inventory.util.InventoryFlightRecorder;
+import org.broadleafcommerce.inventory.util.InventoryOrderItemUtils;
+import org.broadleafcommerce.inventory.util.trace.InventorySpan;
+import org.broadleafcommerce.inventory.util.trace.InventoryTracer;
 
 import javax.annotation.Resource;
 
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
 public class CheckAvailabilityActivity extends BaseActivity {
 
     @Resource(name = "blCatalogService")
@@ -41,35 +51,105 @@ public class CheckAvailabilityActivity extends BaseActivity {
     @Resource(name = "blInventoryService")
     protected InventoryService inventoryService;
 
+    @Resource(name = "blSoldOutSkuRegistry")
+    protected SoldOutSkuRegistry soldOutSkuRegistry;
+
+    @Resource(name = "blInventoryFlightRecorder")
+    protected InventoryFlightRecorder flightRecorder;
+
+    @Resource(name = "blInventoryTracer")
+    protected InventoryTracer tracer;
+
     public ProcessContext execute(ProcessContext context) throws Exception {
+        InventoryFlightEvent event = flightRecorder.begin(InventoryFlightRecorder.CHECK_AVAILABILITY_ACTIVITY);
+        InventorySpan span = tracer.startSpan(InventoryTracer.CHECK_AVAILABILITY_ACTIVITY);
+        String outcome = InventoryFlightEvent.FAILURE;
+        try {
+            context = checkAvailability(context);
+            outcome = InventoryFlightEvent.AVAILABLE;
+            return context;
+        } catch (InventoryUnavailableException e) {
+            outcome = InventoryFlightEvent.UNAVAILABLE;
+            throw e;
+        } finally {
+            event.end(1, null, 0, outcome);
+            span.end(1, null, 0, outcome);
+        }
+    }
+
+    protected ProcessContext checkAvailability(ProcessContext context) throws Exception {
 
         CartOperationRequest request = ((CartOperationContext) context).getSeedData();
         Long skuId = request.getItemRequest().getSkuId();
+        Integer quantity = request.getItemRequest().getQuantity();
+
+        //turn away requests for skus known to be sold out before going to the database
+        if (skuId != null && quantity != null && quantity > 0 && soldOutSkuRegistry.isSoldOut(skuId)) {
+            throw new InventoryUnavailableException(buildUnavailableMessage(skuId, quantity));
+        }
+
+        if (quantity == null || quantity < 0) {
+            throw new IllegalArgumentException("Quantity must be a positive integer");
+        }
+
+        OrderItem orderItem = null;
+        if (request.getItemRequest().getOrderItemId() != null) {
+            orderItem = orderItemService.readOrderItemById(request.getItemRequest().getOrderItemId());
+        }
 
         Sku sku = null;
         if (skuId != null) {
             sku = catalogService.findSkuById(skuId);
-        } else {
-            OrderItem orderItem = orderItemService.readOrderItemById(request.getItemRequest().getOrderItemId());
-            if (orderItem instanceof DiscreteOrderItem) {
-                sku = ((DiscreteOrderItem) orderItem).getSku();
-                request.getItemRequest().setSkuId(sku.getId());
-                skuId = sku.getId();
-            }
+        } else if (orderItem instanceof DiscreteOrderItem) {
+            sku = ((DiscreteOrderItem) orderItem).getSku();
+            request.getItemRequest().setSkuId(sku.getId());
+            skuId = sku.getId();
+        }
+
+        //removing an item, or an item without a sku, needs no inventory
+        if (sku == null || quantity == 0) {
+            return context;
         }
 
         //Available inventory will not be decremented for this sku until checkout. This activity is assumed to be
-        //part of the add to cart / update cart workflow
+        //part of the add to cart / update cart workflow, so what has to be available is the total the cart will
+        //hold for the sku once this request is applied, not just the quantity requested.
+        int cartQuantity = quantity;
+        if (request.getOrder() != null && request.getOrder().getOrderItems() != null) {
+            cartQuantity += getCartQuantity(request.getOrder().getOrderItems(), sku);
+            if (orderItem != null) {
+                //an update replaces the quantity of the item rather than adding to it
+                cartQuantity -= InventoryOrderItemUtils.getSkuQuantity(orderItem, skuId);
+            }
+        }
 
-        boolean quantityAvailable = inventoryService.isQuantityAvailable(sku, request.getItemRequest().getQuantity());
+        Map<Sku, Integer> skuQuantities = new HashMap<Sku, Integer>();
+        skuQuantities.put(sku, cartQuantity);
+        Boolean quantityAvailable = inventoryService.isQuantityAvailable(skuQuantities).get(sku);
 
-        if (!quantityAvailable) {
-            String errorMessage = "Error: Sku with id of " + skuId + " does not have " +
-                    request.getItemRequest().getQuantity() + " items in available inventory.";
-            throw new InventoryUnavailableException(errorMessage);
+        if (!Boolean.TRUE.equals(quantityAvailable)) {
+            throw new InventoryUnavailableException(buildUnavailableMessage(skuId, cartQuantity));
         }
         
         return context;
     }
 
+    /**
+     * @param orderItems the items already in the cart
+     * @param sku
+     * @return the quantity of the sku the cart already holds, including the items of bundles
+     */
+    protected int getCartQuantity(List<OrderItem> orderItems, Sku sku) {
+        for (Map.Entry<Sku, Integer> entry : InventoryOrderItemUtils.aggregateSkuQuantities(orderItems).entrySet()) {
+            if (entry.getKey().getId().equals(sku.getId())) {
+                return entry.getValue();
+            }
+        }
+        return 0;
+    }
+
+    protected String buildUnavailableMessage(Long skuId, Integer quantity) {
+        return "Error: Sku with id of " + skuId + " does not have " + quantity + " items in available inventory.";
+    }
+
 }
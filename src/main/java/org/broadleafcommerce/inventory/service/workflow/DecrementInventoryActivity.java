@@ -18,26 +18,46 @@ package org.broadleafcommerce.inventory.service.workflow;
 import org.broadleafcommerce.core.catalog.domain.Sku;
 import org.broadleafcommerce.core.checkout.service.workflow.CheckoutContext;
 import org.broadleafcommerce.core.checkout.service.workflow.CheckoutSeed;
-import org.broadleafcommerce.core.order.domain.BundleOrderItem;
-import org.broadleafcommerce.core.order.domain.DiscreteOrderItem;
 import org.broadleafcommerce.core.order.domain.OrderItem;
 import org.broadleafcommerce.core.workflow.BaseActivity;
 import org.broadleafcommerce.core.workflow.ProcessContext;
 import org.broadleafcommerce.inventory.exception.ConcurrentInventoryModificationException;
+import org.broadleafcommerce.inventory.exception.InventoryUnavailableException;
 import org.broadleafcommerce.inventory.service.InventoryService;
+import org.broadleafcommerce.inventory.service.retry.InventoryRetryCallback;
+import org.broadleafcommerce.inventory.service.retry.InventoryRetryPolicy;
+import org.broadleafcommerce.inventory.util.InventoryFlightEvent;
+import org.broadleafcommerce.inventory.util.InventoryFlightRecorder;
+import org.broadleafcommerce.inventory.util.InventoryOrderItemUtils;
+import org.broadleafcommerce.inventory.util.trace.InventorySpan;
+import org.broadleafcommerce.inventory.util.trace.InventoryTracer;
 
 import javax.annotation.Resource;
 
-import java.util.HashMap;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class DecrementInventoryActivity extends BaseActivity {
 
     @Resource(name = "blInventoryService")
-    private InventoryService inventoryService;
+    protected InventoryService inventoryService;
 
-    protected Integer maxRetries = 5;
+    @Resource(name = "blInventoryRetryPolicy")
+    protected InventoryRetryPolicy inventoryRetryPolicy;
+
+    @Resource(name = "blInventoryFlightRecorder")
+    protected InventoryFlightRecorder flightRecorder;
+
+    @Resource(name = "blInventoryTracer")
+    protected InventoryTracer tracer;
+
+    /**
+     * The number of attempts, including the first, allowed for this activity's decrement when its skus are not
+     * contended. Passed to the retry policy for this activity only; when null, the policy's own limit applies.
+     */
+    protected Integer maxRetries;
 
     @Override
     public ProcessContext execute(ProcessContext context) throws Exception {
@@ -45,20 +65,8 @@ public class DecrementInventoryActivity extends BaseActivity {
         CheckoutSeed seed = ((CheckoutContext) context).getSeedData();
         List<OrderItem> orderItems = seed.getOrder().getOrderItems();
 
-        //map to hold skus and quantity purchased
-        Map<Sku, Integer> skuInventoryMap = new HashMap<Sku, Integer>();
-
-        for (OrderItem orderItem : orderItems) {
-            Sku sku = null;
-            if (orderItem instanceof DiscreteOrderItem) {
-                DiscreteOrderItem item = (DiscreteOrderItem) orderItem;
-                sku = item.getSku();
-            } else if (orderItem instanceof BundleOrderItem) {
-                BundleOrderItem item = (BundleOrderItem) orderItem;
-                sku = item.getSku();
-            }
-            skuInventoryMap.put(sku, orderItem.getQuantity());
-        }
+        //the total quantity purchased of each sku, across every item and bundle in the order
+        final Map<Sku, Integer> skuInventoryMap = InventoryOrderItemUtils.aggregateSkuQuantities(orderItems);
 
         // There is a retry policy set in case of concurrent update exceptions where several
         // requests would try to update the inventory at the same time. The call to decrement inventory, 
@@ -66,31 +74,63 @@ public class DecrementInventoryActivity extends BaseActivity {
         // inside of the same transaction. Essentially, we want to try to transactionally decrement the 
         // inventory, but if it fails due to locking, then we need to leave the transaction and re-read 
         // the data to ensure repeatable reads don't prevent us from getting the freshest data. The 
-        // retry count is in place to handle higher concurrency situations where there may be more than one 
-        // failure.
-        int retryCount = 0;
-
-        while (retryCount < maxRetries) {
-            try {
-                inventoryService.decrementInventory(skuInventoryMap);
-                
-                //Stash this in the context for later, in case something fails, so that we can 
-                //create a compensating transaction for this inventory
-                seed.getUserDefinedFields().put("BLC_INVENTORY_DECREMENTED", skuInventoryMap);
-                break;
-            } catch (ConcurrentInventoryModificationException ex) {
-                retryCount++;
-                if (retryCount == maxRetries) {
-                    //maximum number of retries has been reached, bubble up exception
-                    throw ex;
+        // policy backs off between attempts and sheds the checkout outright when the skus are too contended 
+        // for a retry to succeed.
+        List<Long> skuIds = new ArrayList<Long>(skuInventoryMap.size());
+        for (Sku sku : skuInventoryMap.keySet()) {
+            skuIds.add(sku.getId());
+        }
+
+        // Keyed by the order, a retry after a decrement that committed but appeared to fail is skipped
+        final String orderReference = seed.getOrder().getId() == null ? null : String.valueOf(seed.getOrder().getId());
+
+        final AtomicInteger attempts = new AtomicInteger();
+        InventoryFlightEvent event = flightRecorder.begin(InventoryFlightRecorder.DECREMENT_INVENTORY_ACTIVITY);
+        InventorySpan span = tracer.startSpan(InventoryTracer.DECREMENT_INVENTORY_ACTIVITY);
+        String outcome = InventoryFlightEvent.FAILURE;
+        try {
+            InventoryRetryCallback<Void, InventoryUnavailableException> callback = new InventoryRetryCallback<Void, InventoryUnavailableException>() {
+                @Override
+                public Void doWithRetry() throws ConcurrentInventoryModificationException, InventoryUnavailableException {
+                    attempts.incrementAndGet();
+                    if (orderReference == null) {
+                        inventoryService.decrementInventory(skuInventoryMap);
+                    } else {
+                        inventoryService.decrementInventory(skuInventoryMap, null, orderReference);
+                    }
+                    return null;
                 }
+            };
+            if (maxRetries == null) {
+                inventoryRetryPolicy.execute(skuIds, callback);
+            } else {
+                inventoryRetryPolicy.execute(skuIds, callback, maxRetries);
             }
+            outcome = InventoryFlightEvent.SUCCESS;
+        } catch (InventoryUnavailableException e) {
+            outcome = InventoryFlightEvent.UNAVAILABLE;
+            throw e;
+        } catch (ConcurrentInventoryModificationException e) {
+            outcome = InventoryFlightEvent.CONFLICT;
+            throw e;
+        } finally {
+            int retries = Math.max(0, attempts.get() - 1);
+            event.end(skuInventoryMap.size(), null, retries, outcome);
+            span.end(skuInventoryMap.size(), null, retries, outcome);
         }
 
+        //Stash this in the context for later, in case something fails, so that we can 
+        //create a compensating transaction for this inventory
+        seed.getUserDefinedFields().put("BLC_INVENTORY_DECREMENTED", skuInventoryMap);
+
         return context;
 
     }
 
+    public void setInventoryService(InventoryService inventoryService) {
+        this.inventoryService = inventoryService;
+    }
+
     public void setMaxRetries(Integer maxRetries) {
         this.maxRetries = maxRetries;
     }
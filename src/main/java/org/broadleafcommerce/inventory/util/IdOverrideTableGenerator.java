@@ -0,0 +1,40 @@
+/**
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.broadleafcommerce.inventory.util;
+
+import org.hibernate.engine.SessionImplementor;
+import org.hibernate.id.MultipleHiLoPerTableGenerator;
+
+import java.io.Serializable;
+
+/**
+ * The hi/lo table generator that JPA's {@link javax.persistence.TableGenerator} maps to, except that an entity
+ * whose id has already been assigned keeps it. Bulk loaders assign ids from ranges reserved through
+ * {@link org.broadleafcommerce.inventory.service.InventoryIdAllocator} so that they do not go back to the
+ * sequence table every block; everything else is allocated exactly as before.
+ */
+public class IdOverrideTableGenerator extends MultipleHiLoPerTableGenerator {
+
+    @Override
+    public Serializable generate(SessionImplementor session, Object obj) {
+        Serializable id = session.getEntityPersister(null, obj).getIdentifier(obj, session);
+        if (id != null) {
+            return id;
+        }
+        return super.generate(session, obj);
+    }
+
+}
@@ -0,0 +1,74 @@
+/**
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.broadleafcommerce.inventory.util;
+
+import java.lang.reflect.Method;
+
+/**
+ * One inventory operation being timed for the JDK Flight Recorder. Obtained from
+ * {@link InventoryFlightRecorder#begin(String)} and ended exactly once with the outcome of the operation. When
+ * flight recording is unavailable or off, the shared {@link #DISABLED} event is handed out and ending it does nothing.
+ */
+public class InventoryFlightEvent {
+
+    public static final String SUCCESS = "success";
+    public static final String FAILURE = "failure";
+    public static final String AVAILABLE = "available";
+    public static final String UNAVAILABLE = "unavailable";
+    public static final String FOUND = "found";
+    public static final String NOT_FOUND = "notFound";
+    public static final String CONFLICT = "conflict";
+
+    public static final InventoryFlightEvent DISABLED = new InventoryFlightEvent(null, null);
+
+    protected final Object event;
+    protected final InventoryFlightRecorder.EventMethods methods;
+
+    protected InventoryFlightEvent(Object event, InventoryFlightRecorder.EventMethods methods) {
+        this.event = event;
+        this.methods = methods;
+    }
+
+    /**
+     * Ends the operation and commits the event if the recording asks for it
+     * @param skuCount the number of skus the operation covered
+     * @param fulfillmentLocationId the fulfillment location, or null for the default location or several locations
+     * @param retries the number of retries the operation needed
+     * @param outcome one of the outcome constants of this class
+     */
+    public void end(int skuCount, Long fulfillmentLocationId, int retries, String outcome) {
+        if (event == null) {
+            return;
+        }
+        try {
+            invoke(methods.end);
+            if (Boolean.TRUE.equals(invoke(methods.shouldCommit))) {
+                invoke(methods.set, 0, skuCount);
+                invoke(methods.set, 1, fulfillmentLocationId == null ? 0L : fulfillmentLocationId);
+                invoke(methods.set, 2, retries);
+                invoke(methods.set, 3, outcome);
+                invoke(methods.commit);
+            }
+        } catch (Exception e) {
+            //a recording problem must never fail the inventory operation
+        }
+    }
+
+    protected Object invoke(Method method, Object... args) throws Exception {
+        return method.invoke(event, args);
+    }
+
+}
@@ -0,0 +1,191 @@
+/**
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.broadleafcommerce.inventory.util;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Emits JDK Flight Recorder events for inventory operations, so that checkout latency can be profiled with
+ * continuous recording and lined up with garbage collection and lock profiles. Each event type below carries the
+ * number of skus, the fulfillment location id (zero when not specific), the number of retries and the outcome.
+ *
+ * This module still runs on JVMs without the Flight Recorder, so the event types are defined at startup through
+ * <code>jdk.jfr.EventFactory</code> (JDK 12 and later) by reflection. Where that is not available, or when
+ * {@link #enabled} is off, {@link #begin(String)} returns {@link InventoryFlightEvent#DISABLED} and nothing is
+ * recorded. Whether an event type is recorded at all is controlled by the recording's settings, as for any JFR event;
+ * while no running recording has it enabled, {@link #begin(String)} also returns the disabled event without creating
+ * one.
+ */
+@Component("blInventoryFlightRecorder")
+public class InventoryFlightRecorder {
+
+    private static final Log LOG = LogFactory.getLog(InventoryFlightRecorder.class);
+
+    public static final String AVAILABILITY_CHECK = "org.broadleafcommerce.inventory.AvailabilityCheck";
+    public static final String DECREMENT = "org.broadleafcommerce.inventory.Decrement";
+    public static final String INCREMENT = "org.broadleafcommerce.inventory.Increment";
+    public static final String READ = "org.broadleafcommerce.inventory.Read";
+    public static final String LOCKED_READ = "org.broadleafcommerce.inventory.LockedRead";
+    public static final String SAVE = "org.broadleafcommerce.inventory.Save";
+    public static final String CHECK_AVAILABILITY_ACTIVITY = "org.broadleafcommerce.inventory.CheckAvailabilityActivity";
+    public static final String DECREMENT_INVENTORY_ACTIVITY = "org.broadleafcommerce.inventory.DecrementInventoryActivity";
+
+    protected static final String[] EVENT_TYPES = {AVAILABILITY_CHECK, DECREMENT, INCREMENT, READ, LOCKED_READ, SAVE,
+            CHECK_AVAILABILITY_ACTIVITY, DECREMENT_INVENTORY_ACTIVITY};
+
+    protected boolean enabled = true;
+
+    /**
+     * The event factory and <code>jdk.jfr.EventType</code> of each event type, when the Flight Recorder is available
+     */
+    protected final Map<String, EventRegistration> factories = new ConcurrentHashMap<String, EventRegistration>();
+
+    protected Method newEvent;
+    protected Method isEventTypeEnabled;
+    protected EventMethods eventMethods;
+
+    @PostConstruct
+    public void init() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            Class<?> factoryClass = Class.forName("jdk.jfr.EventFactory");
+            Class<?> eventClass = Class.forName("jdk.jfr.Event");
+            newEvent = factoryClass.getMethod("newEvent");
+            isEventTypeEnabled = Class.forName("jdk.jfr.EventType").getMethod("isEnabled");
+            EventMethods methods = new EventMethods();
+            methods.begin = eventClass.getMethod("begin");
+            methods.end = eventClass.getMethod("end");
+            methods.shouldCommit = eventClass.getMethod("shouldCommit");
+            methods.set = eventClass.getMethod("set", int.class, Object.class);
+            methods.commit = eventClass.getMethod("commit");
+
+            Method create = factoryClass.getMethod("create", List.class, List.class);
+            Method register = factoryClass.getMethod("register");
+            Method getEventType = factoryClass.getMethod("getEventType");
+            for (String eventType : EVENT_TYPES) {
+                Object factory = create.invoke(null, getEventAnnotations(eventType), getEventFields());
+                register.invoke(factory);
+                EventRegistration registration = new EventRegistration();
+                registration.factory = factory;
+                registration.eventType = getEventType.invoke(factory);
+                factories.put(eventType, registration);
+            }
+            eventMethods = methods;
+        } catch (ClassNotFoundException e) {
+            if (LOG.isDebugEnabled()) {
+                LOG.debug("The JDK Flight Recorder is not available; inventory flight events will not be recorded");
+            }
+        } catch (Exception e) {
+            factories.clear();
+            LOG.warn("Unable to define inventory flight events; they will not be recorded", e);
+        }
+    }
+
+    /**
+     * Starts timing an operation
+     * @param eventType one of the event type constants of this class
+     * @return the event to end once the operation completes
+     */
+    public InventoryFlightEvent begin(String eventType) {
+        if (eventMethods == null) {
+            return InventoryFlightEvent.DISABLED;
+        }
+        EventRegistration registration = factories.get(eventType);
+        if (registration == null) {
+            return InventoryFlightEvent.DISABLED;
+        }
+        try {
+            //there is nothing to time unless a running recording has the event type enabled
+            if (!((Boolean) isEventTypeEnabled.invoke(registration.eventType))) {
+                return InventoryFlightEvent.DISABLED;
+            }
+            Object event = newEvent.invoke(registration.factory);
+            eventMethods.begin.invoke(event);
+            return new InventoryFlightEvent(event, eventMethods);
+        } catch (Exception e) {
+            return InventoryFlightEvent.DISABLED;
+        }
+    }
+
+    protected List<Object> getEventAnnotations(String eventType) throws Exception {
+        String label = eventType.substring(eventType.lastIndexOf('.') + 1).replaceAll("([a-z])([A-Z])", "$1 $2");
+        List<Object> annotations = new ArrayList<Object>();
+        annotations.add(newAnnotation("jdk.jfr.Name", eventType));
+        annotations.add(newAnnotation("jdk.jfr.Label", label));
+        annotations.add(newAnnotation("jdk.jfr.Category", new String[] {"Broadleaf", "Inventory"}));
+        return annotations;
+    }
+
+    protected List<Object> getEventFields() throws Exception {
+        return Arrays.asList(
+                newField(int.class, "skuCount", "SKU Count"),
+                newField(long.class, "fulfillmentLocationId", "Fulfillment Location Id"),
+                newField(int.class, "retries", "Retries"),
+                newField(String.class, "outcome", "Outcome"));
+    }
+
+    protected Object newAnnotation(String annotationType, Object value) throws Exception {
+        Class<?> annotationElementClass = Class.forName("jdk.jfr.AnnotationElement");
+        Constructor<?> constructor = annotationElementClass.getConstructor(Class.class, Object.class);
+        return constructor.newInstance(Class.forName(annotationType), value);
+    }
+
+    protected Object newField(Class<?> type, String name, String label) throws Exception {
+        Class<?> valueDescriptorClass = Class.forName("jdk.jfr.ValueDescriptor");
+        Constructor<?> constructor = valueDescriptorClass.getConstructor(Class.class, String.class, List.class);
+        List<Object> annotations = Collections.singletonList(newAnnotation("jdk.jfr.Label", label));
+        return constructor.newInstance(type, name, annotations);
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * A registered <code>jdk.jfr.EventFactory</code> and its <code>jdk.jfr.EventType</code>
+     */
+    protected static class EventRegistration {
+        protected Object factory;
+        protected Object eventType;
+    }
+
+    /**
+     * The reflected methods of <code>jdk.jfr.Event</code>
+     */
+    protected static class EventMethods {
+        protected Method begin;
+        protected Method end;
+        protected Method shouldCommit;
+        protected Method set;
+        protected Method commit;
+    }
+
+}
@@ -0,0 +1,86 @@
+/**
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.broadleafcommerce.inventory.util;
+
+import org.broadleafcommerce.core.catalog.domain.Sku;
+import org.broadleafcommerce.core.order.domain.BundleOrderItem;
+import org.broadleafcommerce.core.order.domain.DiscreteOrderItem;
+import org.broadleafcommerce.core.order.domain.OrderItem;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Helpers for working out how much inventory the items of an order need
+ */
+public class InventoryOrderItemUtils {
+
+    /**
+     * Totals the quantity of each sku across the order items in one pass. Items for the same sku are added together,
+     * and the items inside a bundle count once for each bundle ordered, alongside the bundle's own sku.
+     * @param orderItems
+     * @return the total quantity of each sku, keyed by the first instance of the sku found
+     */
+    public static Map<Sku, Integer> aggregateSkuQuantities(Collection<OrderItem> orderItems) {
+        Map<Long, Sku> skusById = new HashMap<Long, Sku>();
+        Map<Sku, Integer> skuQuantities = new LinkedHashMap<Sku, Integer>();
+        for (OrderItem orderItem : orderItems) {
+            if (orderItem instanceof DiscreteOrderItem) {
+                add(skusById, skuQuantities, ((DiscreteOrderItem) orderItem).getSku(), orderItem.getQuantity());
+            } else if (orderItem instanceof BundleOrderItem) {
+                BundleOrderItem bundle = (BundleOrderItem) orderItem;
+                add(skusById, skuQuantities, bundle.getSku(), bundle.getQuantity());
+                for (DiscreteOrderItem item : bundle.getDiscreteOrderItems()) {
+                    add(skusById, skuQuantities, item.getSku(), item.getQuantity() * bundle.getQuantity());
+                }
+            }
+        }
+        return skuQuantities;
+    }
+
+    /**
+     * @param orderItem
+     * @param skuId
+     * @return the quantity of the sku the order item needs, including the items of a bundle, or zero if it needs none
+     */
+    public static int getSkuQuantity(OrderItem orderItem, Long skuId) {
+        Map<Sku, Integer> skuQuantities = aggregateSkuQuantities(Collections.singletonList(orderItem));
+        for (Map.Entry<Sku, Integer> entry : skuQuantities.entrySet()) {
+            if (entry.getKey().getId().equals(skuId)) {
+                return entry.getValue();
+            }
+        }
+        return 0;
+    }
+
+    protected static void add(Map<Long, Sku> skusById, Map<Sku, Integer> skuQuantities, Sku sku, int quantity) {
+        if (sku == null) {
+            return;
+        }
+        //order items may hold different instances of the same sku, so they are matched by id
+        Sku key = skusById.get(sku.getId());
+        if (key == null) {
+            skusById.put(sku.getId(), sku);
+            skuQuantities.put(sku, quantity);
+        } else {
+            skuQuantities.put(key, skuQuantities.get(key) + quantity);
+        }
+    }
+
+}
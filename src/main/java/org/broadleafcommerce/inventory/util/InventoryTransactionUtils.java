@@ -0,0 +1,65 @@
+/**
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.broadleafcommerce.inventory.util;
+
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Helpers for deferring node-local side effects of inventory changes until the change is known to be committed
+ */
+public class InventoryTransactionUtils {
+
+    /**
+     * Runs the task once the current transaction commits, or immediately if there is no transaction. The task is
+     * not run if the transaction rolls back.
+     * @param task
+     */
+    public static void runAfterCommit(final Runnable task) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCommit() {
+                    task.run();
+                }
+            });
+        } else {
+            task.run();
+        }
+    }
+
+    /**
+     * Runs the task once the current transaction commits and the keys it changed have been handed to the
+     * {@link org.broadleafcommerce.inventory.cache.InventoryInvalidationBus}, or immediately if there is no
+     * transaction. Use this for node-local state that the transaction's own invalidation would otherwise clear.
+     * @param task
+     */
+    public static void runAfterInvalidation(final Runnable task) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status == STATUS_COMMITTED) {
+                        task.run();
+                    }
+                }
+            });
+        } else {
+            task.run();
+        }
+    }
+
+}
@@ -0,0 +1,80 @@
+/**
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.broadleafcommerce.inventory.util.trace;
+
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+
+/**
+ * Keeps the most recently ended spans in memory, for load tests and for inspecting where checkout time goes on a
+ * single node. Once {@link #capacity} spans are held, the oldest are dropped.
+ */
+public class InMemoryInventorySpanExporter implements InventorySpanExporter {
+
+    protected int capacity = 10000;
+
+    protected final LinkedList<InventorySpanData> spans = new LinkedList<InventorySpanData>();
+
+    @Override
+    public void export(InventorySpanData span) {
+        synchronized (spans) {
+            spans.addLast(span);
+            while (spans.size() > capacity) {
+                spans.removeFirst();
+            }
+        }
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return true;
+    }
+
+    /**
+     * @return the spans held, oldest first
+     */
+    public List<InventorySpanData> getSpans() {
+        synchronized (spans) {
+            return new ArrayList<InventorySpanData>(spans);
+        }
+    }
+
+    /**
+     * @param traceId
+     * @return the spans held for the trace, oldest first
+     */
+    public List<InventorySpanData> getSpans(String traceId) {
+        List<InventorySpanData> result = new ArrayList<InventorySpanData>();
+        for (InventorySpanData span : getSpans()) {
+            if (span.getTraceId().equals(traceId)) {
+                result.add(span);
+            }
+        }
+        return result;
+    }
+
+    public void clear() {
+        synchronized (spans) {
+            spans.clear();
+        }
+    }
+
+    public void setCapacity(int capacity) {
+        this.capacity = capacity;
+    }
+
+}
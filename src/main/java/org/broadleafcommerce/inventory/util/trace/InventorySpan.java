@@ -0,0 +1,64 @@
+/**
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.broadleafcommerce.inventory.util.trace;
+
+import org.broadleafcommerce.inventory.util.InventoryFlightEvent;
+
+/**
+ * A timed unit of inventory work, such as a workflow activity or a DAO call. Spans opened on a thread while another
+ * is open become its children, so a checkout shows up as a tree of activities and the inventory calls they made.
+ *
+ * A span must be ended exactly once, normally in a finally block. Spans are only used by the thread that opened them.
+ */
+public interface InventorySpan {
+
+    public static final String SKU_COUNT = "inventory.sku.count";
+    public static final String FULFILLMENT_LOCATION_ID = "inventory.fulfillment.location.id";
+    public static final String RETRIES = "inventory.retries";
+    public static final String CONFLICT = "inventory.conflict";
+    public static final String OUTCOME = "inventory.outcome";
+
+    /**
+     * Sets an attribute on the span. Null values are ignored.
+     * @param key
+     * @param value
+     * @return this span
+     */
+    public InventorySpan setAttribute(String key, Object value);
+
+    /**
+     * Sets the {@link #OUTCOME} attribute, and the {@link #CONFLICT} attribute when the outcome is
+     * {@link InventoryFlightEvent#CONFLICT}
+     * @param outcome one of the outcomes defined by {@link InventoryFlightEvent}
+     * @return this span
+     */
+    public InventorySpan setOutcome(String outcome);
+
+    /**
+     * Ends the span and hands it to the exporter
+     */
+    public void end();
+
+    /**
+     * Records the attributes common to inventory spans and ends the span
+     * @param skuCount
+     * @param fulfillmentLocationId null when the work was not specific to one location
+     * @param retries
+     * @param outcome one of the outcomes defined by {@link InventoryFlightEvent}
+     */
+    public void end(int skuCount, Long fulfillmentLocationId, int retries, String outcome);
+
+}
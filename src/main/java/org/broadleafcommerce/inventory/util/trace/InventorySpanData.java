@@ -0,0 +1,94 @@
+/**
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.broadleafcommerce.inventory.util.trace;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * A finished {@link InventorySpan}, as handed to an {@link InventorySpanExporter}
+ */
+public class InventorySpanData {
+
+    protected final String name;
+    protected final String traceId;
+    protected final String spanId;
+    protected final String parentSpanId;
+    protected final String threadName;
+    protected final long startTime;
+    protected final long durationNanos;
+    protected final Map<String, Object> attributes;
+
+    public InventorySpanData(String name, String traceId, String spanId, String parentSpanId, String threadName,
+            long startTime, long durationNanos, Map<String, Object> attributes) {
+        this.name = name;
+        this.traceId = traceId;
+        this.spanId = spanId;
+        this.parentSpanId = parentSpanId;
+        this.threadName = threadName;
+        this.startTime = startTime;
+        this.durationNanos = durationNanos;
+        this.attributes = Collections.unmodifiableMap(attributes);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return the id shared by every span opened under the same root span
+     */
+    public String getTraceId() {
+        return traceId;
+    }
+
+    public String getSpanId() {
+        return spanId;
+    }
+
+    /**
+     * @return the id of the enclosing span, or null for a root span
+     */
+    public String getParentSpanId() {
+        return parentSpanId;
+    }
+
+    public String getThreadName() {
+        return threadName;
+    }
+
+    /**
+     * @return the wall clock time, in milliseconds, at which the span was opened
+     */
+    public long getStartTime() {
+        return startTime;
+    }
+
+    public long getDurationNanos() {
+        return durationNanos;
+    }
+
+    public Map<String, Object> getAttributes() {
+        return attributes;
+    }
+
+    @Override
+    public String toString() {
+        return name + " [trace=" + traceId + ", span=" + spanId + ", parent=" + parentSpanId + ", duration="
+                + (durationNanos / 1000L) + "us, attributes=" + attributes + "]";
+    }
+
+}
@@ -0,0 +1,33 @@
+/**
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.broadleafcommerce.inventory.util.trace;
+
+/**
+ * Receives each span once it has ended. Implementations are called on the thread that ended the span, so they
+ * should hand the span off rather than doing slow work, and must be safe for concurrent use.
+ *
+ * To send spans to a tracing backend, register an implementation as the exporter of {@link InventoryTracerImpl}.
+ */
+public interface InventorySpanExporter {
+
+    public void export(InventorySpanData span);
+
+    /**
+     * @return whether spans should be recorded at all. When false, the tracer hands out spans that record nothing.
+     */
+    public boolean isEnabled();
+
+}
@@ -0,0 +1,38 @@
+/**
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.broadleafcommerce.inventory.util.trace;
+
+/**
+ * Opens {@link InventorySpan}s for inventory work. Spans are exported through a pluggable
+ * {@link InventorySpanExporter}; with the default {@link NoOpInventorySpanExporter}, nothing is recorded.
+ */
+public interface InventoryTracer {
+
+    public static final String CHECK_AVAILABILITY_ACTIVITY = "CheckAvailabilityActivity";
+    public static final String DECREMENT_INVENTORY_ACTIVITY = "DecrementInventoryActivity";
+    public static final String COMPENSATE_INVENTORY = "InventoryCompensatingCheckoutErrorHandler";
+    public static final String READ = "InventoryDao.readInventory";
+    public static final String LOCKED_READ = "InventoryDao.lock";
+    public static final String SAVE = "InventoryDao.save";
+
+    /**
+     * Opens a span as a child of the span currently open on this thread, if any
+     * @param name
+     * @return the span, which must be ended
+     */
+    public InventorySpan startSpan(String name);
+
+}
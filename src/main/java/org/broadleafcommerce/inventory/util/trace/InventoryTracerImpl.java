@@ -0,0 +1,159 @@
+/**
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.broadleafcommerce.inventory.util.trace;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.broadleafcommerce.inventory.util.InventoryFlightEvent;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+
+@Component("blInventoryTracer")
+public class InventoryTracerImpl implements InventoryTracer {
+
+    private static final Log LOG = LogFactory.getLog(InventoryTracerImpl.class);
+
+    protected static final InventorySpan NOOP_SPAN = new InventorySpan() {
+
+        @Override
+        public InventorySpan setAttribute(String key, Object value) {
+            return this;
+        }
+
+        @Override
+        public InventorySpan setOutcome(String outcome) {
+            return this;
+        }
+
+        @Override
+        public void end() {
+        }
+
+        @Override
+        public void end(int skuCount, Long fulfillmentLocationId, int retries, String outcome) {
+        }
+
+    };
+
+    protected volatile InventorySpanExporter exporter = new NoOpInventorySpanExporter();
+
+    protected final ThreadLocal<RecordingSpan> currentSpan = new ThreadLocal<RecordingSpan>();
+
+    protected final Random random = new Random();
+
+    @Override
+    public InventorySpan startSpan(String name) {
+        InventorySpanExporter spanExporter = exporter;
+        if (!spanExporter.isEnabled()) {
+            return NOOP_SPAN;
+        }
+        RecordingSpan parent = currentSpan.get();
+        String traceId = parent != null ? parent.traceId : nextId();
+        RecordingSpan span = new RecordingSpan(spanExporter, name, traceId, nextId(), parent);
+        currentSpan.set(span);
+        return span;
+    }
+
+    protected String nextId() {
+        long id;
+        synchronized (random) {
+            id = random.nextLong();
+        }
+        return Long.toHexString(id);
+    }
+
+    public InventorySpanExporter getExporter() {
+        return exporter;
+    }
+
+    public void setExporter(InventorySpanExporter exporter) {
+        this.exporter = exporter;
+    }
+
+    protected class RecordingSpan implements InventorySpan {
+
+        protected final InventorySpanExporter exporter;
+        protected final String name;
+        protected final String traceId;
+        protected final String spanId;
+        protected final RecordingSpan parent;
+        protected final long startTime = System.currentTimeMillis();
+        protected final long startNanos = System.nanoTime();
+        protected final Map<String, Object> attributes = new LinkedHashMap<String, Object>();
+        protected boolean ended;
+
+        protected RecordingSpan(InventorySpanExporter exporter, String name, String traceId, String spanId, RecordingSpan parent) {
+            this.exporter = exporter;
+            this.name = name;
+            this.traceId = traceId;
+            this.spanId = spanId;
+            this.parent = parent;
+        }
+
+        @Override
+        public InventorySpan setAttribute(String key, Object value) {
+            if (value != null) {
+                attributes.put(key, value);
+            }
+            return this;
+        }
+
+        @Override
+        public InventorySpan setOutcome(String outcome) {
+            setAttribute(OUTCOME, outcome);
+            if (InventoryFlightEvent.CONFLICT.equals(outcome)) {
+                setAttribute(CONFLICT, Boolean.TRUE);
+            }
+            return this;
+        }
+
+        @Override
+        public void end(int skuCount, Long fulfillmentLocationId, int retries, String outcome) {
+            setAttribute(SKU_COUNT, skuCount);
+            setAttribute(FULFILLMENT_LOCATION_ID, fulfillmentLocationId);
+            setAttribute(RETRIES, retries);
+            setOutcome(outcome);
+            end();
+        }
+
+        @Override
+        public void end() {
+            if (ended) {
+                return;
+            }
+            ended = true;
+            long durationNanos = System.nanoTime() - startNanos;
+            if (currentSpan.get() == this) {
+                if (parent != null) {
+                    currentSpan.set(parent);
+                } else {
+                    currentSpan.remove();
+                }
+            }
+            try {
+                exporter.export(new InventorySpanData(name, traceId, spanId, parent != null ? parent.spanId : null,
+                        Thread.currentThread().getName(), startTime, durationNanos, attributes));
+            } catch (RuntimeException e) {
+                LOG.warn("Unable to export inventory span " + name, e);
+            }
+        }
+
+    }
+
+}
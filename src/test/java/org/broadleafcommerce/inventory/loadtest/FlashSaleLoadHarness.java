@@ -0,0 +1,345 @@
+/**
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.broadleafcommerce.inventory.loadtest;
+
+import org.broadleafcommerce.common.persistence.EntityConfiguration;
+import org.broadleafcommerce.core.catalog.domain.Product;
+import org.broadleafcommerce.core.catalog.domain.Sku;
+import org.broadleafcommerce.core.catalog.service.CatalogService;
+import org.broadleafcommerce.core.checkout.service.workflow.CheckoutContext;
+import org.broadleafcommerce.core.checkout.service.workflow.CheckoutSeed;
+import org.broadleafcommerce.core.inventory.service.type.InventoryType;
+import org.broadleafcommerce.core.order.domain.DiscreteOrderItem;
+import org.broadleafcommerce.core.order.domain.Order;
+import org.broadleafcommerce.core.order.domain.OrderItem;
+import org.broadleafcommerce.inventory.domain.FulfillmentLocation;
+import org.broadleafcommerce.inventory.domain.Inventory;
+import org.broadleafcommerce.inventory.exception.ConcurrentInventoryModificationException;
+import org.broadleafcommerce.inventory.exception.InventorySaturatedException;
+import org.broadleafcommerce.inventory.exception.InventoryUnavailableException;
+import org.broadleafcommerce.inventory.service.FulfillmentLocationService;
+import org.broadleafcommerce.inventory.service.InventoryService;
+import org.broadleafcommerce.inventory.service.workflow.DecrementInventoryActivity;
+import org.broadleafcommerce.profile.core.domain.Address;
+import org.springframework.context.support.ClassPathXmlApplicationContext;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Reproduces flash sale traffic against the checkout decrement path. A number of threads are released at once and
+ * run checkouts through {@link DecrementInventoryActivity}, each cart holding skus drawn from a Zipf distribution so
+ * that a few skus take most of the traffic. Once all checkouts finish, the harness reports throughput, latency
+ * percentiles, optimistic lock conflicts and retries, and checks that no sku was oversold and that every sku's final
+ * quantity matches the units sold.
+ *
+ * The arguments are the Spring config locations of the application to test. Those contexts must include this
+ * module's contexts and a data source for an embedded database, for example an in-memory HSQLDB with the schema
+ * created by Hibernate. The workload is configured through system properties:
+ * <ul>
+ * <li>inventory.loadtest.threads - concurrent checkouts (default 50)</li>
+ * <li>inventory.loadtest.checkouts - total checkouts (default 5000)</li>
+ * <li>inventory.loadtest.skus - skus created for the run (default 100)</li>
+ * <li>inventory.loadtest.stock - starting quantity of each sku (default 200)</li>
+ * <li>inventory.loadtest.cartSize - distinct skus per cart (default 3)</li>
+ * <li>inventory.loadtest.skew - Zipf exponent, 0 for uniform (default 1.1)</li>
+ * </ul>
+ */
+public class FlashSaleLoadHarness {
+
+    protected final ClassPathXmlApplicationContext context;
+    protected final InventoryService inventoryService;
+    protected final CatalogService catalogService;
+    protected final FulfillmentLocationService fulfillmentLocationService;
+    protected final EntityConfiguration entityConfiguration;
+
+    protected int threads = Integer.getInteger("inventory.loadtest.threads", 50);
+    protected int checkouts = Integer.getInteger("inventory.loadtest.checkouts", 5000);
+    protected int skuCount = Integer.getInteger("inventory.loadtest.skus", 100);
+    protected int stock = Integer.getInteger("inventory.loadtest.stock", 200);
+    protected int cartSize = Integer.getInteger("inventory.loadtest.cartSize", 3);
+    protected double skew = Double.parseDouble(System.getProperty("inventory.loadtest.skew", "1.1"));
+
+    protected final AtomicLong decrementAttempts = new AtomicLong();
+    protected final AtomicLong conflicts = new AtomicLong();
+    protected final AtomicInteger succeeded = new AtomicInteger();
+    protected final AtomicInteger soldOut = new AtomicInteger();
+    protected final AtomicInteger shed = new AtomicInteger();
+    protected final AtomicInteger retriesExhausted = new AtomicInteger();
+    protected final AtomicInteger failed = new AtomicInteger();
+
+    public static void main(String[] args) throws Exception {
+        if (args.length == 0) {
+            System.err.println("Usage: FlashSaleLoadHarness <spring config location> [<spring config location> ...]");
+            System.exit(1);
+        }
+        ClassPathXmlApplicationContext context = new ClassPathXmlApplicationContext(args);
+        try {
+            new FlashSaleLoadHarness(context).run();
+        } finally {
+            context.close();
+        }
+    }
+
+    public FlashSaleLoadHarness(ClassPathXmlApplicationContext context) {
+        this.context = context;
+        inventoryService = context.getBean("blInventoryService", InventoryService.class);
+        catalogService = context.getBean("blCatalogService", CatalogService.class);
+        fulfillmentLocationService = context.getBean("blFulfillmentLocationService", FulfillmentLocationService.class);
+        entityConfiguration = context.getBean("blEntityConfiguration", EntityConfiguration.class);
+    }
+
+    public void run() throws Exception {
+        FulfillmentLocation fulfillmentLocation = readOrCreateDefaultFulfillmentLocation();
+        final List<Sku> skus = createSkus(fulfillmentLocation);
+        final double[] cumulativeWeights = buildZipfDistribution(skus.size(), skew);
+        final AtomicIntegerArray unitsSold = new AtomicIntegerArray(skus.size());
+        final long[] latencies = new long[checkouts];
+        final AtomicInteger nextCheckout = new AtomicInteger();
+        final DecrementInventoryActivity activity = createActivity();
+        final CountDownLatch start = new CountDownLatch(1);
+        final CountDownLatch done = new CountDownLatch(threads);
+
+        for (int t = 0; t < threads; t++) {
+            final Random random = new Random(t);
+            Thread worker = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                        int checkout;
+                        while ((checkout = nextCheckout.getAndIncrement()) < checkouts) {
+                            int[] cart = pickCart(random, cumulativeWeights);
+                            long begin = System.nanoTime();
+                            boolean sold = checkout(activity, skus, cart);
+                            latencies[checkout] = System.nanoTime() - begin;
+                            if (sold) {
+                                for (int index : cart) {
+                                    unitsSold.incrementAndGet(index);
+                                }
+                            }
+                        }
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    } finally {
+                        done.countDown();
+                    }
+                }
+            }, "flashSaleCheckout-" + t);
+            worker.start();
+        }
+
+        long begin = System.nanoTime();
+        start.countDown();
+        done.await();
+        long elapsed = System.nanoTime() - begin;
+
+        report(elapsed, latencies, skus, unitsSold, fulfillmentLocation);
+    }
+
+    /**
+     * Runs a single checkout of one unit of each sku in the cart
+     * @return whether the inventory was decremented
+     */
+    protected boolean checkout(DecrementInventoryActivity activity, List<Sku> skus, int[] cart) {
+        Order order = (Order) entityConfiguration.createEntityInstance(Order.class.getName());
+        List<OrderItem> orderItems = new ArrayList<OrderItem>(cart.length);
+        for (int index : cart) {
+            DiscreteOrderItem orderItem = (DiscreteOrderItem) entityConfiguration.createEntityInstance(DiscreteOrderItem.class.getName());
+            orderItem.setSku(skus.get(index));
+            orderItem.setQuantity(1);
+            orderItems.add(orderItem);
+        }
+        order.setOrderItems(orderItems);
+
+        CheckoutContext checkoutContext = new CheckoutContext();
+        checkoutContext.setSeedData(new CheckoutSeed(order, null, new HashMap<String, Object>()));
+        try {
+            activity.execute(checkoutContext);
+            succeeded.incrementAndGet();
+            return true;
+        } catch (InventoryUnavailableException e) {
+            soldOut.incrementAndGet();
+        } catch (InventorySaturatedException e) {
+            shed.incrementAndGet();
+        } catch (ConcurrentInventoryModificationException e) {
+            retriesExhausted.incrementAndGet();
+        } catch (Exception e) {
+            failed.incrementAndGet();
+        }
+        return false;
+    }
+
+    protected void report(long elapsed, long[] latencies, List<Sku> skus, AtomicIntegerArray unitsSold,
+            FulfillmentLocation fulfillmentLocation) {
+        Arrays.sort(latencies);
+        double seconds = elapsed / 1000000000d;
+        long attempts = decrementAttempts.get();
+
+        int oversold = 0;
+        int incorrect = 0;
+        for (int i = 0; i < skus.size(); i++) {
+            Inventory inventory = inventoryService.readInventory(skus.get(i), fulfillmentLocation);
+            int expected = stock - unitsSold.get(i);
+            if (expected < 0 || inventory.getQuantityAvailable() < 0) {
+                oversold++;
+            }
+            if (inventory.getQuantityAvailable() != expected) {
+                incorrect++;
+                System.out.println("Sku " + skus.get(i).getId() + " has " + inventory.getQuantityAvailable()
+                        + " available, expected " + expected);
+            }
+        }
+
+        System.out.println("Checkouts:          " + checkouts + " over " + threads + " threads in "
+                + String.format("%.2f", seconds) + "s");
+        System.out.println("Throughput:         " + String.format("%.1f", checkouts / seconds) + " checkouts/s");
+        System.out.println("Latency p50/p99:    " + String.format("%.2f", percentile(latencies, 0.50) / 1000000d) + "ms / "
+                + String.format("%.2f", percentile(latencies, 0.99) / 1000000d) + "ms");
+        System.out.println("Succeeded:          " + succeeded.get());
+        System.out.println("Sold out:           " + soldOut.get());
+        System.out.println("Shed as saturated:  " + shed.get());
+        System.out.println("Retries exhausted:  " + retriesExhausted.get());
+        System.out.println("Other failures:     " + failed.get());
+        System.out.println("Decrement attempts: " + attempts);
+        System.out.println("Conflicts:          " + conflicts.get());
+        System.out.println("Retries:            " + (attempts - checkouts));
+        System.out.println("Oversold skus:      " + oversold);
+        System.out.println("Incorrect skus:     " + incorrect);
+    }
+
+    protected static long percentile(long[] sorted, double percentile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(percentile * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))];
+    }
+
+    /**
+     * Creates the activity under test, with its inventory service wrapped to count attempts and conflicts
+     */
+    protected DecrementInventoryActivity createActivity() {
+        DecrementInventoryActivity activity = new DecrementInventoryActivity();
+        context.getAutowireCapableBeanFactory().autowireBean(activity);
+        InventoryService countingInventoryService = (InventoryService) Proxy.newProxyInstance(InventoryService.class.getClassLoader(),
+                new Class<?>[] { InventoryService.class }, new InvocationHandler() {
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                if ("decrementInventory".equals(method.getName())) {
+                    decrementAttempts.incrementAndGet();
+                }
+                try {
+                    return method.invoke(inventoryService, args);
+                } catch (InvocationTargetException e) {
+                    if (e.getCause() instanceof ConcurrentInventoryModificationException) {
+                        conflicts.incrementAndGet();
+                    }
+                    throw e.getCause();
+                }
+            }
+        });
+        activity.setInventoryService(countingInventoryService);
+        return activity;
+    }
+
+    protected int[] pickCart(Random random, double[] cumulativeWeights) {
+        int size = Math.min(cartSize, cumulativeWeights.length);
+        Set<Integer> picked = new HashSet<Integer>(size);
+        while (picked.size() < size) {
+            int index = Arrays.binarySearch(cumulativeWeights, random.nextDouble());
+            picked.add(index < 0 ? Math.min(-index - 1, cumulativeWeights.length - 1) : index);
+        }
+        int[] cart = new int[size];
+        int i = 0;
+        for (Integer index : picked) {
+            cart[i++] = index;
+        }
+        return cart;
+    }
+
+    /**
+     * @return the cumulative probability of picking each rank, where rank k is picked with weight 1 / k^skew
+     */
+    protected static double[] buildZipfDistribution(int size, double skew) {
+        double[] cumulative = new double[size];
+        double total = 0;
+        for (int k = 0; k < size; k++) {
+            total += 1d / Math.pow(k + 1, skew);
+            cumulative[k] = total;
+        }
+        for (int k = 0; k < size; k++) {
+            cumulative[k] /= total;
+        }
+        return cumulative;
+    }
+
+    protected FulfillmentLocation readOrCreateDefaultFulfillmentLocation() {
+        for (FulfillmentLocation fulfillmentLocation : fulfillmentLocationService.readAll()) {
+            if (Boolean.TRUE.equals(fulfillmentLocation.getDefaultLocation())) {
+                return fulfillmentLocation;
+            }
+        }
+        Address address = (Address) entityConfiguration.createEntityInstance(Address.class.getName());
+        address.setAddressLine1("1 Load Test Way");
+        address.setCity("Load Test");
+        address.setPostalCode("00000");
+        FulfillmentLocation fulfillmentLocation = (FulfillmentLocation) entityConfiguration.createEntityInstance(FulfillmentLocation.class.getName());
+        fulfillmentLocation.setAddress(address);
+        fulfillmentLocation.setDefaultLocation(Boolean.TRUE);
+        return fulfillmentLocationService.save(fulfillmentLocation);
+    }
+
+    protected List<Sku> createSkus(FulfillmentLocation fulfillmentLocation) throws ConcurrentInventoryModificationException {
+        List<Sku> skus = new ArrayList<Sku>(skuCount);
+        Map<Sku, Integer> stockBySku = new HashMap<Sku, Integer>();
+        for (int i = 0; i < skuCount; i++) {
+            Product product = (Product) entityConfiguration.createEntityInstance(Product.class.getName());
+            product = catalogService.saveProduct(product);
+
+            Sku sku = (Sku) entityConfiguration.createEntityInstance(Sku.class.getName());
+            sku.setName("Flash sale sku " + i);
+            sku.setActiveStartDate(new Date(System.currentTimeMillis() - 60 * 60 * 1000L));
+            sku.setInventoryType(InventoryType.BASIC);
+            sku.setDefaultProduct(product);
+            sku = catalogService.saveSku(sku);
+
+            product.setDefaultSku(sku);
+            catalogService.saveProduct(product);
+
+            skus.add(sku);
+            stockBySku.put(sku, stock);
+        }
+        inventoryService.incrementInventory(stockBySku, fulfillmentLocation);
+        return skus;
+    }
+
+}